@@ -4,6 +4,7 @@ import java.lang.reflect.Field;
 import java.util.Map;
 import java.util.Set;
 
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.craftbukkit.v1_14_R1.entity.CraftAbstractVillager;
 import org.bukkit.craftbukkit.v1_14_R1.entity.CraftEntity;
@@ -15,6 +16,7 @@ import org.bukkit.craftbukkit.v1_14_R1.inventory.CraftMerchant;
 import org.bukkit.craftbukkit.v1_14_R1.util.CraftMagicNumbers;
 import org.bukkit.craftbukkit.v1_14_R1.entity.CraftRaider;
 import org.bukkit.entity.AbstractVillager;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Raider;
@@ -25,8 +27,12 @@ import org.bukkit.inventory.Merchant;
 import org.bukkit.inventory.MerchantInventory;
 
 import com.nisovin.shopkeepers.compat.api.NMSCallProvider;
+import com.nisovin.shopkeepers.compat.api.PacketEntity;
+import com.nisovin.shopkeepers.compat.api.PacketEntityListener;
 import com.nisovin.shopkeepers.util.ItemUtils;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
 import net.minecraft.server.v1_14_R1.Entity;
 import net.minecraft.server.v1_14_R1.EntityHuman;
 import net.minecraft.server.v1_14_R1.EntityInsentient;
@@ -198,4 +204,48 @@ public final class NMSHandler implements NMSCallProvider {
 		if (nmsItem == null) return null;
 		return nmsItem.getName();
 	}
+
+	@Override
+	public boolean supportsPacketEntities() {
+		return PacketEntityChannelHandler.isSupported();
+	}
+
+	@Override
+	public PacketEntity createPacketEntity(EntityType entityType, Location location) {
+		return NMSPacketEntity.create(entityType, location);
+	}
+
+	private Channel getChannel(Player player) {
+		EntityPlayer nmsPlayer = ((CraftPlayer) player).getHandle();
+		if (nmsPlayer.playerConnection == null) return null;
+		return nmsPlayer.playerConnection.networkManager.channel;
+	}
+
+	@Override
+	public void injectPacketEntityListener(Player player, PacketEntityListener listener) {
+		Channel channel = this.getChannel(player);
+		if (channel == null) return;
+		PacketEntityChannelHandler handler = new PacketEntityChannelHandler(player, listener);
+		// the pipeline gets modified on the channel's thread:
+		channel.eventLoop().execute(() -> {
+			ChannelPipeline pipeline = channel.pipeline();
+			if (pipeline.get(PacketEntityChannelHandler.NAME) != null) {
+				pipeline.remove(PacketEntityChannelHandler.NAME);
+			}
+			if (pipeline.get(PacketEntityChannelHandler.PACKET_HANDLER_NAME) == null) return; // disconnected
+			pipeline.addBefore(PacketEntityChannelHandler.PACKET_HANDLER_NAME, PacketEntityChannelHandler.NAME, handler);
+		});
+	}
+
+	@Override
+	public void removePacketEntityListener(Player player) {
+		Channel channel = this.getChannel(player);
+		if (channel == null) return;
+		channel.eventLoop().execute(() -> {
+			ChannelPipeline pipeline = channel.pipeline();
+			if (pipeline.get(PacketEntityChannelHandler.NAME) != null) {
+				pipeline.remove(PacketEntityChannelHandler.NAME);
+			}
+		});
+	}
 }
@@ -0,0 +1,99 @@
+package com.nisovin.shopkeepers.compat.v1_14_R1;
+
+import org.bukkit.Location;
+import org.bukkit.craftbukkit.v1_14_R1.CraftWorld;
+import org.bukkit.craftbukkit.v1_14_R1.entity.CraftPlayer;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+import com.nisovin.shopkeepers.compat.api.PacketEntity;
+
+import net.minecraft.server.v1_14_R1.Entity;
+import net.minecraft.server.v1_14_R1.EntityLiving;
+import net.minecraft.server.v1_14_R1.EntityTypes;
+import net.minecraft.server.v1_14_R1.Packet;
+import net.minecraft.server.v1_14_R1.PacketPlayOutEntity.PacketPlayOutEntityLook;
+import net.minecraft.server.v1_14_R1.PacketPlayOutEntityDestroy;
+import net.minecraft.server.v1_14_R1.PacketPlayOutEntityHeadRotation;
+import net.minecraft.server.v1_14_R1.PacketPlayOutEntityMetadata;
+import net.minecraft.server.v1_14_R1.PacketPlayOutSpawnEntityLiving;
+import net.minecraft.server.v1_14_R1.World;
+
+// Wraps an entity that does not get added to the world. Its data is only used to construct the packets.
+class NMSPacketEntity implements PacketEntity {
+
+	// returns null if the entity type is not supported
+	static NMSPacketEntity create(EntityType entityType, Location location) {
+		if (entityType == null || !entityType.isAlive() || location == null || location.getWorld() == null) return null;
+		EntityTypes<?> nmsEntityType = EntityTypes.a(entityType.getKey().getKey()).orElse(null);
+		if (nmsEntityType == null) return null;
+
+		// creates the entity without adding it to the world (also assigns a new unique entity id):
+		World nmsWorld = ((CraftWorld) location.getWorld()).getHandle();
+		Entity nmsEntity = nmsEntityType.a(nmsWorld);
+		if (!(nmsEntity instanceof EntityLiving)) return null;
+		nmsEntity.setPositionRotation(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+		return new NMSPacketEntity(entityType, (EntityLiving) nmsEntity);
+	}
+
+	private static byte toAngle(float degrees) {
+		return (byte) (int) Math.floor(degrees * 256.0F / 360.0F);
+	}
+
+	private final EntityType entityType;
+	private final EntityLiving nmsEntity;
+
+	private NMSPacketEntity(EntityType entityType, EntityLiving nmsEntity) {
+		this.entityType = entityType;
+		this.nmsEntity = nmsEntity;
+	}
+
+	@Override
+	public int getEntityId() {
+		return nmsEntity.getId();
+	}
+
+	@Override
+	public EntityType getType() {
+		return entityType;
+	}
+
+	@Override
+	public org.bukkit.entity.Entity getBukkitEntity() {
+		return nmsEntity.getBukkitEntity();
+	}
+
+	@Override
+	public double getEyeHeight() {
+		return nmsEntity.getHeadHeight();
+	}
+
+	private void sendPacket(Player player, Packet<?> packet) {
+		((CraftPlayer) player).getHandle().playerConnection.sendPacket(packet);
+	}
+
+	@Override
+	public void spawn(Player player) {
+		this.sendPacket(player, new PacketPlayOutSpawnEntityLiving(nmsEntity));
+		// the spawn packet does not include the metadata in all versions (ex. MC 1.15):
+		this.updateMetadata(player);
+		this.sendPacket(player, new PacketPlayOutEntityHeadRotation(nmsEntity, toAngle(nmsEntity.yaw)));
+	}
+
+	@Override
+	public void updateMetadata(Player player) {
+		this.sendPacket(player, new PacketPlayOutEntityMetadata(nmsEntity.getId(), nmsEntity.getDataWatcher(), true));
+	}
+
+	@Override
+	public void look(Player player, float yaw, float pitch) {
+		byte yawAngle = toAngle(yaw);
+		this.sendPacket(player, new PacketPlayOutEntityLook(nmsEntity.getId(), yawAngle, toAngle(pitch), true));
+		this.sendPacket(player, new PacketPlayOutEntityHeadRotation(nmsEntity, yawAngle));
+	}
+
+	@Override
+	public void destroy(Player player) {
+		this.sendPacket(player, new PacketPlayOutEntityDestroy(nmsEntity.getId()));
+	}
+}
@@ -0,0 +1,66 @@
+package com.nisovin.shopkeepers.compat.v1_15_R1;
+
+import java.lang.reflect.Field;
+
+import org.bukkit.entity.Player;
+
+import com.nisovin.shopkeepers.compat.api.PacketEntityListener;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import net.minecraft.server.v1_15_R1.EnumHand;
+import net.minecraft.server.v1_15_R1.PacketPlayInUseEntity;
+import net.minecraft.server.v1_15_R1.PacketPlayInUseEntity.EnumEntityUseAction;
+
+// Intercepts the player's interactions with packet entities, before they reach the server.
+class PacketEntityChannelHandler extends ChannelDuplexHandler {
+
+	static final String NAME = "shopkeepers_packet_entities";
+	// the name of the server's packet handler in the channel pipeline:
+	static final String PACKET_HANDLER_NAME = "packet_handler";
+
+	// the packet's fields are looked up by their types, since their names are obfuscated:
+	private static final Field ENTITY_ID_FIELD = findField(int.class);
+	private static final Field ACTION_FIELD = findField(EnumEntityUseAction.class);
+	private static final Field HAND_FIELD = findField(EnumHand.class);
+
+	private static Field findField(Class<?> type) {
+		for (Field field : PacketPlayInUseEntity.class.getDeclaredFields()) {
+			if (field.getType() == type) {
+				field.setAccessible(true);
+				return field;
+			}
+		}
+		return null;
+	}
+
+	static boolean isSupported() {
+		return (ENTITY_ID_FIELD != null && ACTION_FIELD != null && HAND_FIELD != null);
+	}
+
+	private final Player player;
+	private final PacketEntityListener listener;
+
+	PacketEntityChannelHandler(Player player, PacketEntityListener listener) {
+		this.player = player;
+		this.listener = listener;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof PacketPlayInUseEntity) {
+			int entityId = ENTITY_ID_FIELD.getInt(msg);
+			if (listener.isPacketEntity(entityId)) {
+				Object action = ACTION_FIELD.get(msg);
+				if (action == EnumEntityUseAction.ATTACK) {
+					listener.onInteract(player, entityId, true);
+				} else if (action == EnumEntityUseAction.INTERACT && HAND_FIELD.get(msg) == EnumHand.MAIN_HAND) {
+					listener.onInteract(player, entityId, false);
+				} // else: ignore INTERACT_AT and off-hand interactions
+				// the server does not know this entity, don't pass the packet on:
+				return;
+			}
+		}
+		super.channelRead(ctx, msg);
+	}
+}
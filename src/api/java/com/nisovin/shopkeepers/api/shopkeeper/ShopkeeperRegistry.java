@@ -12,6 +12,7 @@ import org.bukkit.entity.Entity;
 
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObject;
+import com.nisovin.shopkeepers.api.shopobjects.ShopObjectType;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
 
 /**
@@ -84,6 +85,39 @@ public interface ShopkeeperRegistry {
 	 */
 	public Shopkeeper getShopkeeperById(int shopkeeperId);
 
+	// BY TYPE
+
+	/**
+	 * Gets all shopkeepers of the specified shop type.
+	 * <p>
+	 * The returned collection is kept up-to-date by the registry. Retrieving its size is a constant time operation.
+	 * 
+	 * @param shopType
+	 *            the shop type
+	 * @return an unmodifiable view on the shopkeepers, may be empty
+	 */
+	public Collection<? extends Shopkeeper> getShopkeepersByType(ShopType<?> shopType);
+
+	/**
+	 * Gets all shopkeepers using the specified type of shop object.
+	 * <p>
+	 * The returned collection is kept up-to-date by the registry. Retrieving its size is a constant time operation.
+	 * 
+	 * @param shopObjectType
+	 *            the shop object type
+	 * @return an unmodifiable view on the shopkeepers, may be empty
+	 */
+	public Collection<? extends Shopkeeper> getShopkeepersByObjectType(ShopObjectType<?> shopObjectType);
+
+	// ADMIN SHOPS
+
+	/**
+	 * Gets all shopkeepers that are no {@link PlayerShopkeeper player shopkeepers}.
+	 * 
+	 * @return an unmodifiable view on all admin shopkeepers
+	 */
+	public Collection<? extends Shopkeeper> getAllAdminShopkeepers();
+
 	// PLAYER SHOPS
 
 	/**
@@ -227,6 +261,45 @@ public interface ShopkeeperRegistry {
 	 */
 	public Collection<? extends Shopkeeper> getShopkeepersAtLocation(Location location);
 
+	// BY AREA
+
+	/**
+	 * Gets all shopkeepers within the given radius around the specified location.
+	 * <p>
+	 * The distance is measured from the given location to the centers of the shopkeepers' blocks. Only the chunks
+	 * overlapping the given radius are searched.
+	 * 
+	 * @param location
+	 *            the center location
+	 * @param radius
+	 *            the radius, not negative
+	 * @return the shopkeepers, may be empty
+	 */
+	public Collection<? extends Shopkeeper> getShopkeepersNear(Location location, double radius);
+
+	/**
+	 * Gets all shopkeepers located inside the specified box of block coordinates.
+	 * <p>
+	 * The bounds are inclusive. Only the chunks overlapping the box are searched.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param minX
+	 *            the minimum block x coordinate
+	 * @param minY
+	 *            the minimum block y coordinate
+	 * @param minZ
+	 *            the minimum block z coordinate
+	 * @param maxX
+	 *            the maximum block x coordinate
+	 * @param maxY
+	 *            the maximum block y coordinate
+	 * @param maxZ
+	 *            the maximum block z coordinate
+	 * @return the shopkeepers, may be empty
+	 */
+	public Collection<? extends Shopkeeper> getShopkeepersInBox(String worldName, int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+
 	// BY SHOP OBJECT
 
 	/**
@@ -276,4 +349,17 @@ public interface ShopkeeperRegistry {
 	 * @return <code>true</code> if the block is a Shopkeeper
 	 */
 	public boolean isShopkeeper(Block block);
+
+	// SNAPSHOTS
+
+	/**
+	 * Gets the latest published snapshot of all shopkeepers.
+	 * <p>
+	 * Unlike the other methods of this registry, this can be called from any thread. Changes to the shopkeepers get
+	 * published with a delay of up to one tick, unless this is called on the server's main thread, in which case
+	 * any pending changes get published right away.
+	 * 
+	 * @return the latest snapshot, not <code>null</code>
+	 */
+	public ShopkeeperRegistrySnapshot getSnapshot();
 }
@@ -0,0 +1,49 @@
+package com.nisovin.shopkeepers.api.shopkeeper;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * An immutable snapshot of the shopkeepers of the {@link ShopkeeperRegistry}.
+ * <p>
+ * Snapshots can be safely accessed from any thread.
+ * 
+ * @see ShopkeeperRegistry#getSnapshot()
+ */
+public interface ShopkeeperRegistrySnapshot {
+
+	/**
+	 * Gets the version of this snapshot.
+	 * <p>
+	 * The version increases with every published snapshot. Consumers can compare versions to detect whether anything
+	 * has changed since the last snapshot they have processed.
+	 * 
+	 * @return the version
+	 */
+	public long getVersion();
+
+	/**
+	 * Gets the snapshots of all shopkeepers.
+	 * 
+	 * @return an unmodifiable collection of the shopkeeper snapshots
+	 */
+	public Collection<? extends ShopkeeperSnapshot> getShopkeepers();
+
+	/**
+	 * Gets the snapshot of the shopkeeper with the given session id.
+	 * 
+	 * @param shopkeeperId
+	 *            the shopkeeper's session id
+	 * @return the shopkeeper snapshot, or <code>null</code> if there is no such shopkeeper
+	 */
+	public ShopkeeperSnapshot getShopkeeperById(int shopkeeperId);
+
+	/**
+	 * Gets the snapshot of the shopkeeper with the given unique id.
+	 * 
+	 * @param shopkeeperUniqueId
+	 *            the shopkeeper's unique id
+	 * @return the shopkeeper snapshot, or <code>null</code> if there is no such shopkeeper
+	 */
+	public ShopkeeperSnapshot getShopkeeperByUniqueId(UUID shopkeeperUniqueId);
+}
@@ -0,0 +1,101 @@
+package com.nisovin.shopkeepers.api.shopkeeper;
+
+import java.util.UUID;
+
+/**
+ * An immutable snapshot of the data of a {@link Shopkeeper}.
+ * <p>
+ * Unlike shopkeepers, snapshots can be safely accessed from any thread. They don't reflect subsequent changes of the
+ * shopkeeper.
+ * 
+ * @see ShopkeeperRegistry#getSnapshot()
+ */
+public interface ShopkeeperSnapshot {
+
+	/**
+	 * Gets the shopkeeper's session id.
+	 * 
+	 * @return the shopkeeper's session id
+	 * @see Shopkeeper#getId()
+	 */
+	public int getId();
+
+	/**
+	 * Gets the shopkeeper's unique id.
+	 * 
+	 * @return the shopkeeper's unique id
+	 */
+	public UUID getUniqueId();
+
+	/**
+	 * Gets the identifier of the shopkeeper's {@link ShopType}.
+	 * 
+	 * @return the shop type identifier
+	 */
+	public String getShopTypeId();
+
+	/**
+	 * Gets the identifier of the shopkeeper's shop object type.
+	 * 
+	 * @return the shop object type identifier
+	 */
+	public String getShopObjectTypeId();
+
+	/**
+	 * Gets the unique id of the shop owner.
+	 * 
+	 * @return the owner's unique id, or <code>null</code> if the shopkeeper is no player shopkeeper
+	 */
+	public UUID getOwnerUUID();
+
+	/**
+	 * Gets the name of the shop owner.
+	 * 
+	 * @return the owner's name, or <code>null</code> if the shopkeeper is no player shopkeeper
+	 */
+	public String getOwnerName();
+
+	/**
+	 * Gets the name of the world the shopkeeper is located in.
+	 * 
+	 * @return the world name, or <code>null</code> for virtual shopkeepers
+	 */
+	public String getWorldName();
+
+	/**
+	 * Gets the shopkeeper's x coordinate.
+	 * 
+	 * @return the x coordinate, <code>0</code> for virtual shopkeepers
+	 */
+	public int getX();
+
+	/**
+	 * Gets the shopkeeper's y coordinate.
+	 * 
+	 * @return the y coordinate, <code>0</code> for virtual shopkeepers
+	 */
+	public int getY();
+
+	/**
+	 * Gets the shopkeeper's z coordinate.
+	 * 
+	 * @return the z coordinate, <code>0</code> for virtual shopkeepers
+	 */
+	public int getZ();
+
+	/**
+	 * Gets the shopkeeper's name.
+	 * 
+	 * @return the shopkeeper's name, can be empty
+	 */
+	public String getName();
+
+	/**
+	 * Gets the number of offers the shopkeeper has set up.
+	 * <p>
+	 * This does not take the current stock of player shopkeepers into account.
+	 * 
+	 * @return the number of offers
+	 */
+	public int getOffersCount();
+}
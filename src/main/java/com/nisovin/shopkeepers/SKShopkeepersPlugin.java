@@ -1,15 +1,15 @@
 package com.nisovin.shopkeepers;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 import org.bstats.bukkit.Metrics;
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.Configuration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.EntityType;
@@ -27,17 +27,16 @@ import com.nisovin.shopkeepers.api.events.ShopkeeperRemoveEvent;
 import com.nisovin.shopkeepers.api.events.ShopkeepersStartupEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
-import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.offers.BookOffer;
 import com.nisovin.shopkeepers.api.shopkeeper.offers.PriceOffer;
 import com.nisovin.shopkeepers.api.shopkeeper.offers.TradingOffer;
-import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.chestprotection.ProtectedChests;
 import com.nisovin.shopkeepers.chestprotection.RemoveShopOnChestBreak;
 import com.nisovin.shopkeepers.commands.Commands;
 import com.nisovin.shopkeepers.compat.NMSManager;
 import com.nisovin.shopkeepers.config.ConfigLoadException;
+import com.nisovin.shopkeepers.interaction.InteractionChecks;
 import com.nisovin.shopkeepers.metrics.CitizensChart;
 import com.nisovin.shopkeepers.metrics.FeaturesChart;
 import com.nisovin.shopkeepers.metrics.GringottsChart;
@@ -57,6 +56,8 @@ import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.SKShopTypesRegistry;
 import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.InactivePlayerShops;
 import com.nisovin.shopkeepers.shopkeeper.offers.SKBookOffer;
 import com.nisovin.shopkeepers.shopkeeper.offers.SKPriceOffer;
 import com.nisovin.shopkeepers.shopkeeper.offers.SKTradingOffer;
@@ -65,6 +66,7 @@ import com.nisovin.shopkeepers.shopobjects.SKDefaultShopObjectTypes;
 import com.nisovin.shopkeepers.shopobjects.SKShopObjectTypesRegistry;
 import com.nisovin.shopkeepers.shopobjects.citizens.CitizensShops;
 import com.nisovin.shopkeepers.shopobjects.living.LivingShops;
+import com.nisovin.shopkeepers.shopobjects.packet.PacketShops;
 import com.nisovin.shopkeepers.shopobjects.sign.SignShops;
 import com.nisovin.shopkeepers.spigot.SpigotFeatures;
 import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
@@ -87,6 +89,21 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 
 	private static SKShopkeepersPlugin plugin;
 
+	// settings that can only be applied by fully reloading the plugin:
+	private static final Set<String> FULL_RELOAD_SETTINGS = new HashSet<>(Arrays.asList(
+			"config-version", "enable-metrics", "file-encoding", "save-file-per-world",
+			"storage-type", "enabled-living-shops", "enable-citizen-shops", "enable-sign-shops", "enable-packet-shops"));
+	// settings that require the shop objects to be respawned:
+	private static final Set<String> SHOP_OBJECT_SETTINGS = new HashSet<>(Arrays.asList(
+			"bypass-spawn-blocking", "use-legacy-mob-behavior", "disable-gravity"));
+	// settings that get applied to the active shop objects in place (see AbstractShopObject#onSettingsReloaded()):
+	private static final Set<String> SHOP_OBJECT_IN_PLACE_SETTINGS = new HashSet<>(Arrays.asList(
+			"silence-living-shop-entities", "show-nameplates", "always-show-nameplates", "nameplate-prefix",
+			"sign-shop-first-line"));
+	// settings that only take effect after a server restart:
+	private static final Set<String> RESTART_SETTINGS = new HashSet<>(Arrays.asList(
+			"register-world-guard-allow-shop-flag"));
+
 	public static SKShopkeepersPlugin getInstance() {
 		return plugin;
 	}
@@ -113,11 +130,17 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 	private final ShopkeeperNaming shopkeeperNaming = new ShopkeeperNaming(this);
 	private final ShopkeeperCreation shopkeeperCreation = new ShopkeeperCreation(this);
 
+	private final InteractionChecks interactionChecks = new InteractionChecks(this);
 	private final ProtectedChests protectedChests = new ProtectedChests(this);
 	private final RemoveShopOnChestBreak removeShopOnChestBreak = new RemoveShopOnChestBreak(this, protectedChests);
 	private final LivingShops livingShops = new LivingShops(this);
 	private final SignShops signShops = new SignShops(this);
 	private final CitizensShops citizensShops = new CitizensShops(this);
+	private final PacketShops packetShops = new PacketShops(this);
+	private final InactivePlayerShops inactivePlayerShops = new InactivePlayerShops(this);
+	private final BlockVillagerSpawnListener blockVillagerSpawnListener = new BlockVillagerSpawnListener();
+	private final BlockZombieVillagerCuringListener blockZombieVillagerCuringListener = new BlockZombieVillagerCuringListener();
+	private DebugListener debugListener = null;
 
 	private boolean outdatedServer = false;
 	private boolean incompatibleServer = false;
@@ -311,12 +334,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		}
 
 		// process additional permissions
-		String[] perms = Settings.maxShopsPermOptions.replace(" ", "").split(",");
-		for (String perm : perms) {
-			if (Bukkit.getPluginManager().getPermission("shopkeeper.maxshops." + perm) == null) {
-				Bukkit.getPluginManager().addPermission(new Permission("shopkeeper.maxshops." + perm, PermissionDefault.FALSE));
-			}
-		}
+		this.registerMaxShopsPermissions();
 
 		// inform about Spigot exclusive features:
 		if (SpigotFeatures.isSpigotAvailable()) {
@@ -338,6 +356,9 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		// inform ui registry (registers ui event handlers):
 		uiRegistry.onEnable();
 
+		// enable interaction checks:
+		interactionChecks.onEnable();
+
 		// enable ProtectedChests:
 		protectedChests.enable();
 		removeShopOnChestBreak.onEnable();
@@ -359,16 +380,14 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		// enable citizens shops:
 		citizensShops.onEnable();
 
+		// enable packet shops:
+		packetShops.onEnable();
+
 		//
 
 		// handling of regular villagers:
 		pm.registerEvents(new VillagerInteractionListener(this), this);
-		if (Settings.blockVillagerSpawns || Settings.blockWanderingTraderSpawns) {
-			pm.registerEvents(new BlockVillagerSpawnListener(), this);
-		}
-		if (Settings.disableZombieVillagerCuring) {
-			pm.registerEvents(new BlockZombieVillagerCuringListener(), this);
-		}
+		this.registerVillagerListeners();
 
 		// enable commands:
 		commands.onEnable();
@@ -399,15 +418,14 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		// activate (spawn) shopkeepers in loaded chunks of all loaded worlds:
 		shopkeeperRegistry.activateShopkeepersInAllWorlds();
 
-		Bukkit.getScheduler().runTaskLater(this, () -> {
-			// remove inactive player shopkeepers:
-			this.removeInactivePlayerShops();
-		}, 5L);
+		// start the periodic removal of inactive player shopkeepers:
+		inactivePlayerShops.onEnable();
 
 		// let's update the shopkeepers for all already online players:
 		for (Player player : Bukkit.getOnlinePlayers()) {
 			if (CitizensHandler.isNPC(player)) continue;
 			this.updateShopkeepersForPlayer(player.getUniqueId(), player.getName());
+			inactivePlayerShops.onPlayerJoin(player);
 		}
 
 		// write back all updated data:
@@ -424,13 +442,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		if (Settings.debug) {
 			// register debug listener:
 			// run delayed to also catch events / event listeners of other plugins:
-			Bukkit.getScheduler().runTaskLater(this, () -> {
-				boolean logAllEvent = Settings.debugOptions.contains(Settings.DebugOptions.logAllEvents);
-				boolean printListeners = Settings.debugOptions.contains(Settings.DebugOptions.printListeners);
-				if (logAllEvent || printListeners) {
-					DebugListener.register(logAllEvent, printListeners);
-				}
-			}, 10L);
+			Bukkit.getScheduler().runTaskLater(this, this::updateDebugListener, 10L);
 		}
 	}
 
@@ -454,6 +466,12 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		// disable citizens shops:
 		citizensShops.onDisable();
 
+		// disable packet shops:
+		packetShops.onDisable();
+
+		// stop the removal of inactive player shopkeepers:
+		inactivePlayerShops.onDisable();
+
 		// save shopkeepers:
 		shopkeeperStorage.saveImmediateIfDirty();
 
@@ -461,6 +479,9 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		protectedChests.disable();
 		removeShopOnChestBreak.onDisable();
 
+		// disable interaction checks:
+		interactionChecks.onDisable();
+
 		// disable shopkeeper registry: unloads all shopkeepers
 		shopkeeperRegistry.onDisable();
 
@@ -481,6 +502,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		shopObjectTypesRegistry.clearAll();
 		uiRegistry.clearAll();
 
+		debugListener = null; // unregistered together with all other listeners
 		HandlerList.unregisterAll(this);
 		Bukkit.getScheduler().cancelTasks(this);
 
@@ -496,6 +518,134 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		this.onEnable();
 	}
 
+	/**
+	 * Reloads the config and language file and only applies the settings that have actually changed.
+	 * <p>
+	 * Unlike {@link #reload()}, this keeps the loaded shopkeepers and their entities around whenever possible. Only if a
+	 * setting changed that cannot be applied at runtime, or if the config could not be loaded, this falls back to a
+	 * full {@link #reload()}.
+	 * 
+	 * @return <code>true</code> if the plugin had to be fully reloaded
+	 */
+	public boolean reloadSettings() {
+		Map<String, Object> previousValues = Settings.captureValues();
+		ConfigLoadException configError = this.loadConfig();
+		if (configError != null) {
+			Log.severe("Could not load the config! Performing a full reload.", configError);
+			this.reload();
+			return true;
+		}
+		this.loadLanguageFile();
+
+		Set<String> changedSettings = Settings.getChangedSettings(previousValues);
+		for (String changedSetting : changedSettings) {
+			if (FULL_RELOAD_SETTINGS.contains(changedSetting)) {
+				Log.info("Setting '" + changedSetting + "' requires a full reload.");
+				this.reload();
+				return true;
+			}
+		}
+
+		// close all open UIs, since the messages and editor items might have changed:
+		uiRegistry.closeAll();
+
+		for (String changedSetting : changedSettings) {
+			if (RESTART_SETTINGS.contains(changedSetting)) {
+				Log.warning("Setting '" + changedSetting + "' only takes effect after a server restart.");
+			}
+		}
+
+		if (changedSettings.contains("debug") || changedSettings.contains("debug-options")) {
+			this.updateDebugListener();
+		}
+		if (changedSettings.contains("save-instantly")) {
+			shopkeeperStorage.onSettingsChanged();
+		}
+		if (changedSettings.contains("enable-spawn-verifier")) {
+			shopkeeperRegistry.onSettingsChanged();
+		}
+		if (changedSettings.contains("protect-chests") || changedSettings.contains("prevent-item-movement")) {
+			protectedChests.onSettingsChanged();
+		}
+		if (changedSettings.contains("interaction-check-cache-ticks") || changedSettings.contains("world-guard-interaction-checks")) {
+			interactionChecks.clearCache();
+		}
+		if (changedSettings.contains("delete-shopkeeper-on-break-chest")) {
+			removeShopOnChestBreak.onDisable();
+			removeShopOnChestBreak.onEnable();
+		}
+		if (changedSettings.contains("player-shopkeeper-inactive-days")) {
+			inactivePlayerShops.onDisable();
+			inactivePlayerShops.onEnable();
+		}
+		if (changedSettings.contains("max-shops-perm-options")) {
+			this.registerMaxShopsPermissions();
+		}
+		if (changedSettings.contains("block-villager-spawns") || changedSettings.contains("block-wandering-trader-spawns")
+				|| changedSettings.contains("disable-zombie-villager-curing")) {
+			this.unregisterVillagerListeners();
+			this.registerVillagerListeners();
+		}
+		if (changedSettings.stream().anyMatch(SHOP_OBJECT_SETTINGS::contains)) {
+			// respawn the shop objects (this also applies the in-place settings):
+			shopkeeperRegistry.deactivateShopkeepersInAllWorlds();
+			livingShops.onDisable();
+			livingShops.onEnable();
+			shopkeeperRegistry.activateShopkeepersInAllWorlds();
+		} else if (changedSettings.stream().anyMatch(SHOP_OBJECT_IN_PLACE_SETTINGS::contains)) {
+			// update names, sign texts, etc. of the active shop objects without respawning them:
+			for (AbstractShopkeeper shopkeeper : shopkeeperRegistry.getActiveShopkeepers()) {
+				shopkeeper.getShopObject().onSettingsReloaded();
+			}
+		}
+
+		if (changedSettings.isEmpty()) {
+			Log.info("Reloaded settings: No changes.");
+		} else {
+			Log.info("Reloaded settings: Applied changes to " + changedSettings.size() + " setting(s): "
+					+ String.join(", ", changedSettings));
+		}
+		return false;
+	}
+
+	// registers or unregisters the debug listener according to the current debug settings
+	private void updateDebugListener() {
+		if (debugListener != null) {
+			debugListener.unregister();
+			debugListener = null;
+		}
+		if (!Settings.debug) return;
+		boolean logAllEvent = Settings.debugOptions.contains(Settings.DebugOptions.logAllEvents);
+		boolean printListeners = Settings.debugOptions.contains(Settings.DebugOptions.printListeners);
+		if (logAllEvent || printListeners) {
+			debugListener = DebugListener.register(logAllEvent, printListeners);
+		}
+	}
+
+	private void registerMaxShopsPermissions() {
+		String[] perms = Settings.maxShopsPermOptions.replace(" ", "").split(",");
+		for (String perm : perms) {
+			if (Bukkit.getPluginManager().getPermission("shopkeeper.maxshops." + perm) == null) {
+				Bukkit.getPluginManager().addPermission(new Permission("shopkeeper.maxshops." + perm, PermissionDefault.FALSE));
+			}
+		}
+	}
+
+	private void registerVillagerListeners() {
+		PluginManager pm = Bukkit.getPluginManager();
+		if (Settings.blockVillagerSpawns || Settings.blockWanderingTraderSpawns) {
+			pm.registerEvents(blockVillagerSpawnListener, this);
+		}
+		if (Settings.disableZombieVillagerCuring) {
+			pm.registerEvents(blockZombieVillagerCuringListener, this);
+		}
+	}
+
+	private void unregisterVillagerListeners() {
+		HandlerList.unregisterAll(blockVillagerSpawnListener);
+		HandlerList.unregisterAll(blockZombieVillagerCuringListener);
+	}
+
 	// METRICS
 
 	private void setupMetrics() {
@@ -517,9 +667,12 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 
 	void onPlayerJoin(Player player) {
 		this.updateShopkeepersForPlayer(player.getUniqueId(), player.getName());
+		inactivePlayerShops.onPlayerJoin(player);
 	}
 
 	void onPlayerQuit(Player player) {
+		inactivePlayerShops.onPlayerQuit(player);
+
 		// player cleanup:
 		shopTypesRegistry.clearSelection(player);
 		shopObjectTypesRegistry.clearSelection(player);
@@ -562,6 +715,12 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		return defaultUITypes;
 	}
 
+	// INTERACTION CHECKS
+
+	public InteractionChecks getInteractionChecks() {
+		return interactionChecks;
+	}
+
 	// PROTECTED CHESTS:
 
 	public ProtectedChests getProtectedChests() {
@@ -592,6 +751,12 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		return citizensShops;
 	}
 
+	// PACKET SHOPS
+
+	public PacketShops getPacketShops() {
+		return packetShops;
+	}
+
 	// SHOP TYPES
 
 	@Override
@@ -661,111 +826,47 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 
 	// INACTIVE SHOPS
 
-	private void removeInactivePlayerShops() {
-		if (Settings.playerShopkeeperInactiveDays <= 0) return;
-
-		Set<UUID> playerUUIDs = new HashSet<>();
-		for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-			if (shopkeeper instanceof PlayerShopkeeper) {
-				PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-				playerUUIDs.add(playerShop.getOwnerUUID());
-			}
-		}
-		if (playerUUIDs.isEmpty()) {
-			// no player shops found:
-			return;
-		}
-
-		// fetch OfflinePlayers async:
-		int playerShopkeeperInactiveDays = Settings.playerShopkeeperInactiveDays;
-		Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
-			List<OfflinePlayer> inactivePlayers = new ArrayList<>();
-			long now = System.currentTimeMillis();
-			for (UUID uuid : playerUUIDs) {
-				OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
-				if (!offlinePlayer.hasPlayedBefore()) continue;
-
-				long lastPlayed = offlinePlayer.getLastPlayed();
-				if ((lastPlayed > 0) && ((now - lastPlayed) / 86400000 > playerShopkeeperInactiveDays)) {
-					inactivePlayers.add(offlinePlayer);
-				}
-			}
-
-			if (inactivePlayers.isEmpty()) {
-				// no inactive players found:
-				return;
-			}
-
-			// continue in main thread:
-			SchedulerUtils.runTaskOrOmit(SKShopkeepersPlugin.this, () -> {
-				List<PlayerShopkeeper> forRemoval = new ArrayList<>();
-				for (OfflinePlayer inactivePlayer : inactivePlayers) {
-					// remove all shops of this inactive player:
-					UUID playerUUID = inactivePlayer.getUniqueId();
-
-					for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-						if (shopkeeper instanceof PlayerShopkeeper) {
-							PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-							UUID ownerUUID = playerShop.getOwnerUUID();
-							if (ownerUUID.equals(playerUUID)) {
-								forRemoval.add(playerShop);
-							}
-						}
-					}
-				}
-
-				// remove those shopkeepers:
-				if (!forRemoval.isEmpty()) {
-					for (PlayerShopkeeper shopkeeper : forRemoval) {
-						shopkeeper.delete();
-						Log.info("Shopkeeper " + shopkeeper.getIdString() + " at " + shopkeeper.getPositionString()
-								+ " owned by " + shopkeeper.getOwnerString() + " has been removed for owner inactivity.");
-					}
-
-					// save:
-					shopkeeperStorage.save();
-				}
-			});
-		});
+	public InactivePlayerShops getInactivePlayerShops() {
+		return inactivePlayerShops;
 	}
 
 	// HANDLING PLAYER NAME CHANGES:
 
 	// updates owner names for the shopkeepers of the specified player:
 	private void updateShopkeepersForPlayer(UUID playerUUID, String playerName) {
+		Collection<? extends AbstractPlayerShopkeeper> playerShopkeepers = shopkeeperRegistry.getPlayerShopkeepersByOwner(playerUUID);
+		if (playerShopkeepers.isEmpty()) return; // the player does not own any shopkeepers
+
+		if (playerName.equals(shopkeeperRegistry.getStoredOwnerName(playerUUID))) {
+			// The stored owner name of all the player's shops matches the player's current name.
+			// We can therefore skip checking the individual shops here.
+			Log.debug(Settings.DebugOptions.ownerNameUpdates,
+					() -> "The stored owner name of the " + playerShopkeepers.size() + " shopkeepers of "
+							+ TextUtils.getPlayerString(playerName, playerUUID) + " matches the current player name."
+			);
+			return;
+		}
+
 		Log.debug(Settings.DebugOptions.ownerNameUpdates,
-				() -> "Updating shopkeepers for: " + TextUtils.getPlayerString(playerName, playerUUID)
+				() -> "Updating " + playerShopkeepers.size() + " shopkeepers for: " + TextUtils.getPlayerString(playerName, playerUUID)
 		);
 		boolean dirty = false;
-		for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-			if (shopkeeper instanceof PlayerShopkeeper) {
-				PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-				UUID ownerUUID = playerShop.getOwnerUUID();
-				String ownerName = playerShop.getOwnerName();
-
-				if (ownerUUID.equals(playerUUID)) {
-					if (!ownerName.equals(playerName)) {
-						// update the stored name, because the player must have changed it:
-						Log.debug(Settings.DebugOptions.ownerNameUpdates,
-								() -> "  Updating owner name ('" + ownerName + "') of shopkeeper " + shopkeeper.getId() + "."
-						);
-						playerShop.setOwner(playerUUID, playerName);
-						dirty = true;
-					} else {
-						// The stored owner name matches the player's current name.
-						// Assumption: The stored owner names among all shops are consistent.
-						// We can therefore abort checking the other shops here.
-						Log.debug(Settings.DebugOptions.ownerNameUpdates,
-								() -> "  The stored owner name of shopkeeper " + shopkeeper.getId()
-										+ " matches the current player name. Skipping checking of further shops."
-						);
-						return;
-					}
-				}
+		for (AbstractPlayerShopkeeper playerShop : playerShopkeepers) {
+			String ownerName = playerShop.getOwnerName();
+			if (!ownerName.equals(playerName)) {
+				// update the stored name, because the player must have changed it:
+				Log.debug(Settings.DebugOptions.ownerNameUpdates,
+						() -> "  Updating owner name ('" + ownerName + "') of shopkeeper " + playerShop.getId() + "."
+				);
+				// note: this does not modify the owner's shopkeepers collection
+				playerShop.setOwner(playerUUID, playerName);
+				dirty = true;
 			}
 		}
+		shopkeeperRegistry.onOwnerNameUpdated(playerUUID, playerName);
 
 		if (dirty) {
+			// single save for all updated shopkeepers:
 			shopkeeperStorage.save();
 		}
 	}
@@ -5,8 +5,13 @@ import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
@@ -29,6 +34,7 @@ import com.nisovin.shopkeepers.util.PermissionUtils;
 import com.nisovin.shopkeepers.util.StringUtils;
 import com.nisovin.shopkeepers.util.TextUtils;
 import com.nisovin.shopkeepers.util.Utils;
+import com.nisovin.shopkeepers.util.Validate;
 
 public class Settings {
 
@@ -102,6 +108,10 @@ public class Settings {
 	 */
 	public static String fileEncoding = "UTF-8";
 	public static boolean saveInstantly = true;
+	public static int saveMinIntervalTicks = 20;
+	public static int saveMaxDirtyAgeTicks = 100;
+	public static boolean saveFilePerWorld = false;
+	public static String storageType = "yaml";
 
 	/*
 	 * Plugin Compatibility
@@ -109,6 +119,8 @@ public class Settings {
 	public static boolean enableSpawnVerifier = false;
 	public static boolean bypassSpawnBlocking = true;
 	public static boolean checkShopInteractionResult = false;
+	public static int interactionCheckCacheTicks = 40;
+	public static boolean worldGuardInteractionChecks = false;
 
 	public static boolean enableWorldGuardRestrictions = false;
 	public static boolean requireWorldGuardAllowShopFlag = false;
@@ -215,6 +227,8 @@ public class Settings {
 	public static boolean enableSignPostShops = true;
 	public static String signShopFirstLine = "[SHOP]";
 
+	public static boolean enablePacketShops = false;
+
 	/*
 	 * Naming
 	 */
@@ -304,6 +318,7 @@ public class Settings {
 	public static String msgShopObjectTypeLiving = "{type}";
 	public static String msgShopObjectTypeSign = "sign";
 	public static String msgShopObjectTypeNpc = "npc";
+	public static String msgShopObjectTypePacketMob = "packet mob";
 
 	public static Text msgSelectedShopType = Text.parse("&aSelected shop type: &6{type} &7({description})");
 	public static Text msgSelectedShopObjectType = Text.parse("&aSelected object type: &6{type}");
@@ -332,6 +347,8 @@ public class Settings {
 
 	public static String msgButtonSignVariant = "&aChoose sign variant";
 	public static List<String> msgButtonSignVariantLore = Arrays.asList("Changes the sign's", "wood type");
+	public static String msgButtonPacketMobType = "&aChoose mob type";
+	public static List<String> msgButtonPacketMobTypeLore = Arrays.asList("Changes the type of the", "packet mob");
 	public static String msgButtonBaby = "&aToggle baby variant";
 	public static List<String> msgButtonBabyLore = Arrays.asList("Toggles between the mob's", "baby and adult variant");
 	public static String msgButtonSitting = "&aToggle sitting pose";
@@ -516,6 +533,49 @@ public class Settings {
 		return fieldName.replaceAll("([A-Z][a-z]+)", "-$1").toLowerCase(Locale.ROOT);
 	}
 
+	/**
+	 * Captures the current values of all settings, excluding messages.
+	 * <p>
+	 * This can be used to determine which settings have changed during a config reload, see
+	 * {@link #getChangedSettings(Map)}.
+	 * 
+	 * @return the current setting values by their config keys
+	 */
+	public static Map<String, Object> captureValues() {
+		Map<String, Object> values = new LinkedHashMap<>();
+		try {
+			Field[] fields = Settings.class.getDeclaredFields();
+			for (Field field : fields) {
+				if (field.isSynthetic()) continue;
+				String fieldName = field.getName();
+				if (fieldName.startsWith("msg")) continue;
+				values.put(toConfigKey(fieldName), field.get(null));
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Could not access settings field!", e);
+		}
+		return values;
+	}
+
+	/**
+	 * Gets the config keys of all settings whose values differ from the given previously captured values.
+	 * 
+	 * @param previousValues
+	 *            the previous setting values, as returned by {@link #captureValues()}
+	 * @return the config keys of the changed settings
+	 */
+	public static Set<String> getChangedSettings(Map<String, Object> previousValues) {
+		Validate.notNull(previousValues, "Previous values is null!");
+		Set<String> changedSettings = new LinkedHashSet<>();
+		for (Map.Entry<String, Object> entry : captureValues().entrySet()) {
+			String configKey = entry.getKey();
+			if (!Objects.equals(previousValues.get(configKey), entry.getValue())) {
+				changedSettings.add(configKey);
+			}
+		}
+		return changedSettings;
+	}
+
 	// returns true, if the config misses values which need to be saved
 	public static boolean loadConfiguration(Configuration config) throws ConfigLoadException {
 		boolean configChanged = false;
@@ -595,6 +655,22 @@ public class Settings {
 			Log.warning("Config: 'gravity-chunk-range' cannot be negative.");
 			gravityChunkRange = 0;
 		}
+		if (saveMinIntervalTicks < 0) {
+			Log.warning("Config: 'save-min-interval-ticks' cannot be negative.");
+			saveMinIntervalTicks = 0;
+		}
+		if (saveMaxDirtyAgeTicks < 0) {
+			Log.warning("Config: 'save-max-dirty-age-ticks' cannot be negative.");
+			saveMaxDirtyAgeTicks = 0;
+		}
+		if (interactionCheckCacheTicks < 0) {
+			Log.warning("Config: 'interaction-check-cache-ticks' cannot be negative.");
+			interactionCheckCacheTicks = 0;
+		}
+		if (!"yaml".equals(storageType) && !"sqlite".equals(storageType)) {
+			Log.warning("Config: Unknown 'storage-type' '" + storageType + "'. Using 'yaml' instead.");
+			storageType = "yaml";
+		}
 		// certain items cannot be of type AIR:
 		if (shopCreationItem.getType() == Material.AIR) {
 			Log.warning("Config: 'shop-creation-item' can not be AIR.");
@@ -775,8 +851,14 @@ public class Settings {
 
 		public static Pattern shopNamePattern = Pattern.compile("^[A-Za-z0-9 ]{3,32}$");
 
+		// gets incremented whenever the settings have changed (eg. on reloads), can be used to detect outdated data
+		// that has been derived from the settings:
+		public static int settingsVersion = 0;
+
 		// gets called after the config has been loaded:
 		private static void setup() {
+			settingsVersion++;
+
 			// ignore display name (which is used for specifying the new shopkeeper name):
 			namingItemData = new ItemData(ItemUtils.setItemStackName(nameItem.createItemStack(), null));
 
@@ -1,17 +1,17 @@
 package com.nisovin.shopkeepers.chestprotection;
 
 import org.bukkit.Location;
-import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryMoveItemEvent;
 import org.bukkit.inventory.Inventory;
 
-import com.nisovin.shopkeepers.util.ItemUtils;
-
 /**
  * Prevents item movement from/to protected shop chests. Can be disabled via a config setting.
+ * <p>
+ * Hoppers can move items very frequently. {@link ProtectedChests#isProtectedInventory(org.bukkit.World, int, int, int)}
+ * therefore only looks at the blocks if the inventory location is close to a protected chest.
  */
 class InventoryMoveItemListener implements Listener {
 
@@ -34,9 +34,7 @@ class InventoryMoveItemListener implements Listener {
 		// Note: We are avoiding calling Inventory#getHolder here for performance reasons
 		Location inventoryLocation = inventory.getLocation(); // can be null
 		if (inventoryLocation == null) return false;
-		Block block = inventoryLocation.getBlock(); // not null
-		if (!ItemUtils.isChest(block.getType())) return false;
-		// also checks for protected connected chests (double chests):
-		return protectedChests.isChestProtected(block, null);
+		return protectedChests.isProtectedInventory(inventoryLocation.getWorld(), inventoryLocation.getBlockX(),
+				inventoryLocation.getBlockY(), inventoryLocation.getBlockZ());
 	}
 }
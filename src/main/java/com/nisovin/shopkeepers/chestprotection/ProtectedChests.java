@@ -8,6 +8,7 @@ import java.util.Map;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.type.Chest;
@@ -20,6 +21,7 @@ import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.LongHashMap;
 import com.nisovin.shopkeepers.util.PermissionUtils;
 import com.nisovin.shopkeepers.util.Validate;
 
@@ -60,14 +62,34 @@ public class ProtectedChests {
 	private final SKShopkeepersPlugin plugin;
 	private final ChestProtectionListener chestProtectionListener = new ChestProtectionListener(this);
 	private final InventoryMoveItemListener inventoryMoveItemListener = new InventoryMoveItemListener(this);
-	// player shopkeepers by location key:
-	private final Map<String, List<PlayerShopkeeper>> protectedChests = new HashMap<>();
+	// world name -> block position key -> player shopkeepers:
+	private final Map<String, LongHashMap<List<PlayerShopkeeper>>> protectedChests = new HashMap<>();
 
 	public ProtectedChests(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
 	}
 
 	public void enable() {
+		this.registerListeners();
+	}
+
+	public void disable() {
+		// cleanup:
+		this.unregisterListeners();
+		protectedChests.clear();
+	}
+
+	/**
+	 * Re-registers the protection listeners according to the current config settings.
+	 * <p>
+	 * The data about the currently protected chests is kept.
+	 */
+	public void onSettingsChanged() {
+		this.unregisterListeners();
+		this.registerListeners();
+	}
+
+	private void registerListeners() {
 		if (Settings.protectChests) {
 			Bukkit.getPluginManager().registerEvents(chestProtectionListener, plugin);
 			if (Settings.preventItemMovement) {
@@ -76,43 +98,53 @@ public class ProtectedChests {
 		}
 	}
 
-	public void disable() {
-		// cleanup:
+	private void unregisterListeners() {
 		HandlerList.unregisterAll(chestProtectionListener);
 		HandlerList.unregisterAll(inventoryMoveItemListener);
-		protectedChests.clear();
 	}
 
-	private String getKey(String worldName, int x, int y, int z) {
-		return worldName + ";" + x + ";" + y + ";" + z;
+	private static long getBlockKey(int x, int y, int z) {
+		// 26 bits for x and z, 12 bits for y:
+		return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12) | (y & 0xFFFL);
 	}
 
 	public void addChest(String worldName, int x, int y, int z, PlayerShopkeeper shopkeeper) {
 		Validate.notNull(shopkeeper);
-		String key = this.getKey(worldName, x, y, z);
-		List<PlayerShopkeeper> shopkeepers = protectedChests.get(key);
+		LongHashMap<List<PlayerShopkeeper>> worldChests = protectedChests.get(worldName);
+		if (worldChests == null) {
+			worldChests = new LongHashMap<>();
+			protectedChests.put(worldName, worldChests);
+		}
+		long blockKey = getBlockKey(x, y, z);
+		List<PlayerShopkeeper> shopkeepers = worldChests.get(blockKey);
 		if (shopkeepers == null) {
 			shopkeepers = new ArrayList<>(1);
-			protectedChests.put(key, shopkeepers);
+			worldChests.put(blockKey, shopkeepers);
 		}
 		shopkeepers.add(shopkeeper);
 	}
 
 	public void removeChest(String worldName, int x, int y, int z, PlayerShopkeeper shopkeeper) {
 		Validate.notNull(shopkeeper);
-		String key = this.getKey(worldName, x, y, z);
-		List<PlayerShopkeeper> shopkeepers = protectedChests.get(key);
+		LongHashMap<List<PlayerShopkeeper>> worldChests = protectedChests.get(worldName);
+		if (worldChests == null) return;
+		long blockKey = getBlockKey(x, y, z);
+		List<PlayerShopkeeper> shopkeepers = worldChests.get(blockKey);
 		if (shopkeepers == null) return;
 		shopkeepers.remove(shopkeeper);
 		if (shopkeepers.isEmpty()) {
-			protectedChests.remove(key);
+			worldChests.remove(blockKey);
+			if (worldChests.isEmpty()) {
+				protectedChests.remove(worldName);
+			}
 		}
 	}
 
 	// gets the shopkeepers which are directly using the chest at the specified location
 	private List<PlayerShopkeeper> _getShopkeepers(String worldName, int x, int y, int z) {
-		String key = this.getKey(worldName, x, y, z);
-		return protectedChests.get(key);
+		LongHashMap<List<PlayerShopkeeper>> worldChests = protectedChests.get(worldName);
+		if (worldChests == null) return null;
+		return worldChests.get(getBlockKey(x, y, z));
 	}
 
 	// gets the shopkeepers which are directly using the specified chest block
@@ -226,6 +258,37 @@ public class ProtectedChests {
 		return true;
 	}
 
+	/**
+	 * Checks if the inventory at the specified location is a protected chest, without taking shop owners and players
+	 * with bypass permission into account.
+	 * <p>
+	 * This is meant for frequent checks, such as when hoppers move items: Only if the location or one of its adjacent
+	 * locations (N, W, S, E) is directly protected, the block (and a potentially connected chest) gets checked.
+	 * 
+	 * @param world
+	 *            the world
+	 * @param x
+	 *            the block x coordinate
+	 * @param y
+	 *            the block y coordinate
+	 * @param z
+	 *            the block z coordinate
+	 * @return <code>true</code> if the inventory is a protected chest
+	 */
+	public boolean isProtectedInventory(World world, int x, int y, int z) {
+		LongHashMap<List<PlayerShopkeeper>> worldChests = protectedChests.get(world.getName());
+		if (worldChests == null) return false; // no protected chests in this world
+		if (!worldChests.containsKey(getBlockKey(x, y, z))
+				&& !worldChests.containsKey(getBlockKey(x + 1, y, z))
+				&& !worldChests.containsKey(getBlockKey(x - 1, y, z))
+				&& !worldChests.containsKey(getBlockKey(x, y, z + 1))
+				&& !worldChests.containsKey(getBlockKey(x, y, z - 1))) {
+			// neither directly protected, nor connected to a directly protected chest:
+			return false;
+		}
+		return this.isProtectedChest(world.getBlockAt(x, y, z), null);
+	}
+
 	// gets the shopkeepers which use the chest at the given location (directly or by a connected chest):
 	public List<PlayerShopkeeper> getShopkeepersUsingChest(Block chest) {
 		return this.getShopkeepersUsingChest(chest, null);
@@ -2,12 +2,14 @@ package com.nisovin.shopkeepers.commands.arguments;
 
 import java.util.Collections;
 import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
 
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.commands.lib.ArgumentFilter;
 import com.nisovin.shopkeepers.commands.lib.arguments.IntegerArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.ObjectIdArgument;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.ConversionUtils;
 
 /**
@@ -61,11 +63,14 @@ public class ShopkeeperIdArgument extends ObjectIdArgument<Integer> {
 			return Collections.emptyList();
 		}
 		// note: no normalization required
-		// TODO prefer short ids (eg. input "2", suggest "20", "21", "22",.. instead of "200", "201", "202",..)
-		return ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers().stream()
+		// the shopkeepers are lazily retrieved from the registry's id index, with short ids being suggested first (eg.
+		// input "2", suggest "20", "21", "22",.. before "200", "201", "202",..), so that only the few ids that are
+		// actually used as suggestions need to be checked
+		SKShopkeeperRegistry shopkeeperRegistry = SKShopkeepersPlugin.getInstance().getShopkeeperRegistry();
+		return () -> StreamSupport.stream(shopkeeperRegistry.getShopkeepersByIdPrefix(idPrefix).spliterator(), false)
 				.filter(shopkeeperFilter)
 				.map(shopkeeper -> shopkeeper.getId())
-				.filter(id -> id.toString().startsWith(idPrefix))::iterator;
+				.iterator();
 	}
 
 	@Override
@@ -1,12 +1,13 @@
 package com.nisovin.shopkeepers.commands.arguments;
 
-import java.util.Locale;
 import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
 
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.commands.lib.ArgumentFilter;
 import com.nisovin.shopkeepers.commands.lib.arguments.ObjectNameArgument;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.StringUtils;
 import com.nisovin.shopkeepers.util.TextUtils;
 
@@ -46,19 +47,12 @@ public class ShopkeeperNameArgument extends ObjectNameArgument {
 	public static Iterable<String> getDefaultCompletionSuggestions(String namePrefix, Predicate<Shopkeeper> shopkeeperFilter) {
 		// strips color, normalizes whitespace, converts to lowercase:
 		String normalizedNamePrefix = StringUtils.normalize(TextUtils.stripColor(namePrefix));
-		// TODO improve by using a TreeMap for the prefix matching?
-		return ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers().stream()
+		// the shopkeepers are lazily retrieved from the registry's name index, with short names being suggested first:
+		SKShopkeeperRegistry shopkeeperRegistry = SKShopkeepersPlugin.getInstance().getShopkeeperRegistry();
+		return () -> StreamSupport.stream(shopkeeperRegistry.getShopkeepersByNormalizedNamePrefix(normalizedNamePrefix).spliterator(), false)
 				.filter(shopkeeperFilter)
-				.map(shopkeeper -> {
-					String name = TextUtils.stripColor(shopkeeper.getName());
-					if (name.isEmpty()) return null;
-					String normalizedWithCase = StringUtils.normalizeKeepCase(name);
-					String normalized = normalizedWithCase.toLowerCase(Locale.ROOT);
-					if (normalized.startsWith(normalizedNamePrefix)) {
-						return normalizedWithCase;
-					}
-					return null; // no match
-				}).filter(name -> name != null)::iterator;
+				.map(shopkeeper -> StringUtils.normalizeKeepCase(TextUtils.stripColor(shopkeeper.getName())))
+				.iterator();
 	}
 
 	@Override
@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Supplier;
@@ -932,9 +933,16 @@ public abstract class Command {
 		Validate.notNull(input, "Input is null!");
 		Validate.isTrue(input.getCommand() == this.getRootCommand(), "Input is meant for a different command!");
 
+		long startTime = System.nanoTime();
 		CommandContext commandContext = new SimpleCommandContext();
 		ArgumentsReader argsReader = new ArgumentsReader(input);
-		return this.handleTabCompletion(input, commandContext, argsReader);
+		List<String> suggestions = this.handleTabCompletion(input, commandContext, argsReader);
+		Log.debug(Settings.DebugOptions.commands, () -> {
+			double durationMillis = (System.nanoTime() - startTime) / 1000000.0D;
+			return "Tab completion for input '/" + input.getCommandAlias() + " " + String.join(" ", input.getArguments())
+					+ "' took " + String.format(Locale.ROOT, "%.3f", durationMillis) + " ms (" + suggestions.size() + " suggestions).";
+		});
+		return suggestions;
 	}
 
 	/**
@@ -90,6 +90,12 @@ class CommandCheck extends Command {
 		sender.sendMessage("    With AI: " + livingEntityAI.getEntityCount());
 		sender.sendMessage("    With active AI: " + livingEntityAI.getActiveAIEntityCount());
 		sender.sendMessage("    With active gravity: " + livingEntityAI.getActiveGravityEntityCount());
+		sender.sendMessage("    AI rates (full | reduced | frozen): " + livingEntityAI.getFullRateAIEntityCount()
+				+ " | " + livingEntityAI.getReducedRateAIEntityCount()
+				+ " | " + livingEntityAI.getFrozenAIEntityCount());
+		sender.sendMessage("    AI ticked | skipped (budget " + LivingEntityAI.AI_TICK_BUDGET + "): "
+				+ livingEntityAI.getAITickedEntityCount()
+				+ " | " + livingEntityAI.getAIBudgetSkippedEntityCount());
 
 		double avgTotalAITimings = livingEntityAI.getTotalTimings().getAverageTimeMillis();
 		double maxTotalAITiming = livingEntityAI.getTotalTimings().getMaxTimeMillis();
@@ -1,16 +1,23 @@
 package com.nisovin.shopkeepers.commands.shopkeepers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.DefaultShopTypes;
-import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
 import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopCreationData;
 import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
+import com.nisovin.shopkeepers.api.shopobjects.ShopObjectType;
 import com.nisovin.shopkeepers.commands.lib.CommandContextView;
 import com.nisovin.shopkeepers.commands.lib.CommandException;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
@@ -22,6 +29,11 @@ import com.nisovin.shopkeepers.text.Text;
 class CommandDebugCreateShops extends PlayerCommand {
 
 	private final static String ARGUMENT_SHOP_COUNT = "shopCount";
+	private final static int MAX_SHOP_COUNT = 100000;
+	// the number of shopkeepers created per tick:
+	private final static int BATCH_SIZE = 500;
+	// the number of shopkeepers per row:
+	private final static int ROW_LENGTH = 100;
 
 	private final SKShopkeepersPlugin plugin;
 
@@ -48,22 +60,60 @@ class CommandDebugCreateShops extends PlayerCommand {
 		Player player = (Player) input.getSender();
 		int shopCount = context.get(ARGUMENT_SHOP_COUNT);
 		// not using BoundedIntegerArgument for now due to missing descriptive error messages TODO use in future
-		if (shopCount > 1000) {
-			player.sendMessage(ChatColor.RED + "Shopkeeper count to high, limiting to 1000!");
-			shopCount = 1000;
+		if (shopCount > MAX_SHOP_COUNT) {
+			player.sendMessage(ChatColor.RED + "Shopkeeper count to high, limiting to " + MAX_SHOP_COUNT + "!");
+			shopCount = MAX_SHOP_COUNT;
 		}
 
 		player.sendMessage(ChatColor.GREEN + "Creating up to " + shopCount + " shopkeepers, starting here!");
-		int created = 0;
-		Location curSpawnLocation = player.getLocation();
-		for (int i = 0; i < shopCount; i++) {
-			Shopkeeper shopkeeper = plugin.handleShopkeeperCreation(AdminShopCreationData.create(player, DefaultShopTypes.ADMIN(),
-					DefaultShopObjectTypes.LIVING().get(EntityType.VILLAGER), curSpawnLocation.clone(), null));
-			curSpawnLocation.add(2, 0, 0);
-			if (shopkeeper != null) {
-				created++;
+		new ShopCreationTask(player, shopCount).start();
+	}
+
+	// creates the shopkeepers in batches, spread across multiple ticks
+	private class ShopCreationTask implements Runnable {
+
+		private final Player player;
+		private final int shopCount;
+		private final Location startLocation;
+		private final long startTime = System.nanoTime();
+		private int index = 0;
+		private int created = 0;
+		private BukkitTask task = null;
+
+		ShopCreationTask(Player player, int shopCount) {
+			this.player = player;
+			this.shopCount = shopCount;
+			this.startLocation = player.getLocation();
+		}
+
+		void start() {
+			task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+		}
+
+		@Override
+		public void run() {
+			// prepare the creation data of the next batch:
+			List<ShopCreationData> batch = new ArrayList<>(BATCH_SIZE);
+			ShopObjectType<?> objectType = DefaultShopObjectTypes.LIVING().get(EntityType.VILLAGER);
+			while (batch.size() < BATCH_SIZE && index < shopCount) {
+				// arranged in rows:
+				Location spawnLocation = startLocation.clone().add(2 * (index % ROW_LENGTH), 0, 2 * (index / ROW_LENGTH));
+				batch.add(AdminShopCreationData.create(player, DefaultShopTypes.ADMIN(), objectType, spawnLocation, null));
+				index++;
+			}
+			created += plugin.getShopkeeperRegistry().createShopkeepers(batch).size();
+
+			if (index >= shopCount) {
+				// done:
+				task.cancel();
+				// save once:
+				plugin.getShopkeeperStorage().save();
+				long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+				if (player.isOnline()) {
+					player.sendMessage(ChatColor.GREEN + "Done! Created " + ChatColor.YELLOW + created + ChatColor.GREEN
+							+ " shopkeepers in " + ChatColor.YELLOW + durationMillis + " ms" + ChatColor.GREEN + "!");
+				}
 			}
 		}
-		player.sendMessage(ChatColor.GREEN + "Done! Created " + ChatColor.YELLOW + created + ChatColor.GREEN + " shopkeepers!");
 	}
 }
@@ -10,9 +10,13 @@ import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandContextView;
 import com.nisovin.shopkeepers.commands.lib.CommandException;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.OptionalArgument;
 
 class CommandReload extends Command {
 
+	private static final String ARGUMENT_FULL = "full";
+
 	private final SKShopkeepersPlugin plugin;
 
 	CommandReload(SKShopkeepersPlugin plugin) {
@@ -24,14 +28,27 @@ class CommandReload extends Command {
 
 		// set description:
 		this.setDescription(Settings.msgCommandDescriptionReload);
+
+		// arguments:
+		this.addArgument(new OptionalArgument<>(new LiteralArgument(ARGUMENT_FULL)));
 	}
 
 	@Override
 	protected void execute(CommandInput input, CommandContextView context) throws CommandException {
 		CommandSender sender = input.getSender();
 
-		// reload plugin:
-		plugin.reload();
-		sender.sendMessage(ChatColor.GREEN + "Shopkeepers plugin reloaded!");
+		if (context.has(ARGUMENT_FULL)) {
+			// fully reload plugin:
+			plugin.reload();
+			sender.sendMessage(ChatColor.GREEN + "Shopkeepers plugin reloaded!");
+		} else {
+			// only apply the changed settings, if possible:
+			boolean fullReload = plugin.reloadSettings();
+			if (fullReload) {
+				sender.sendMessage(ChatColor.GREEN + "Shopkeepers plugin reloaded!");
+			} else {
+				sender.sendMessage(ChatColor.GREEN + "Shopkeepers config reloaded!");
+			}
+		}
 	}
 }
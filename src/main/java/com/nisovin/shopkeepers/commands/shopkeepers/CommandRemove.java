@@ -10,11 +10,10 @@ import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
-import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.commands.Confirmations;
 import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandContextView;
@@ -25,6 +24,7 @@ import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.PlayerNameArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.PlayerUUIDArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.SenderPlayerNameFallback;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.PermissionUtils;
 import com.nisovin.shopkeepers.util.PlayerUtils;
 import com.nisovin.shopkeepers.util.ShopkeeperUtils;
@@ -39,11 +39,11 @@ class CommandRemove extends Command {
 	private static final String ARGUMENT_ALL = "all";
 	private static final String ARGUMENT_ADMIN = "admin";
 
-	private final ShopkeepersPlugin plugin;
-	private final ShopkeeperRegistry shopkeeperRegistry;
+	private final SKShopkeepersPlugin plugin;
+	private final SKShopkeeperRegistry shopkeeperRegistry;
 	private final Confirmations confirmations;
 
-	CommandRemove(ShopkeepersPlugin plugin, ShopkeeperRegistry shopkeeperRegistry, Confirmations confirmations) {
+	CommandRemove(SKShopkeepersPlugin plugin, SKShopkeeperRegistry shopkeeperRegistry, Confirmations confirmations) {
 		super("remove", Arrays.asList("delete"));
 		this.plugin = plugin;
 		this.shopkeeperRegistry = shopkeeperRegistry;
@@ -128,23 +128,11 @@ class CommandRemove extends Command {
 		// names and missing player information (the player name/uuid if only the uuid/name is specified).
 		List<? extends Shopkeeper> shops;
 		if (admin) {
-			// search all admin shops:
-			List<Shopkeeper> adminShops = new ArrayList<>();
-			for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-				if (!(shopkeeper instanceof PlayerShopkeeper)) {
-					adminShops.add(shopkeeper);
-				}
-			}
-			shops = adminShops;
+			// all admin shops:
+			shops = new ArrayList<>(shopkeeperRegistry.getAllAdminShopkeepers());
 		} else if (all) {
-			// search all player shops:
-			List<Shopkeeper> playerShops = new ArrayList<>();
-			for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-				if (shopkeeper instanceof PlayerShopkeeper) {
-					playerShops.add(shopkeeper);
-				}
-			}
-			shops = playerShops;
+			// all player shops:
+			shops = new ArrayList<>(shopkeeperRegistry.getAllPlayerShopkeepers());
 		} else {
 			assert targetPlayerUUID != null ^ targetPlayerName != null;
 			// search for shops owned by the target player:
@@ -172,12 +160,8 @@ class CommandRemove extends Command {
 		String finalTargetPlayerName = targetPlayerName;
 		// this is dangerous: let the sender first confirm this action
 		confirmations.awaitConfirmation(sender, () -> {
-			// remove shops:
-			for (Shopkeeper shopkeeper : shops) {
-				// skip the shopkeeper if it no longer exists:
-				if (!shopkeeper.isValid()) continue;
-				shopkeeper.delete();
-			}
+			// remove shops (skips shopkeepers that no longer exist):
+			shopkeeperRegistry.deleteShopkeepers(shops);
 			// Note: We ignore 'shopsCount' ending up slightly outdated here in favor of not confusing the user of the
 			// command (due to changing shop counts before and after command confirmation).
 
@@ -1,7 +1,9 @@
 package com.nisovin.shopkeepers.compat.api;
 
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Raider;
@@ -60,4 +62,30 @@ public interface NMSCallProvider {
 	// Note: This might not necessarily match an ItemStack's name (for example for certain items, such as different
 	// types of potions, skulls, etc.)
 	public String getItemTypeTranslationKey(Material material);
+
+	// whether packet entities are supported (see createPacketEntity)
+	public default boolean supportsPacketEntities() {
+		return false;
+	}
+
+	/**
+	 * Creates a {@link PacketEntity} at the given location.
+	 * 
+	 * @param entityType
+	 *            the entity type
+	 * @param location
+	 *            the location
+	 * @return the packet entity, or <code>null</code> if packet entities or the given entity type are not supported
+	 */
+	public default PacketEntity createPacketEntity(EntityType entityType, Location location) {
+		return null;
+	}
+
+	// Informs the given listener about the player's interactions with packet entities. Replaces any previously
+	// injected listener of the player.
+	public default void injectPacketEntityListener(Player player, PacketEntityListener listener) {
+	}
+
+	public default void removePacketEntityListener(Player player) {
+	}
 }
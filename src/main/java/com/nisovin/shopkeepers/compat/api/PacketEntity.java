@@ -0,0 +1,71 @@
+package com.nisovin.shopkeepers.compat.api;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+/**
+ * A client-side entity that only exists in the form of packets sent to specific players.
+ * <p>
+ * The entity is not added to the world: It does not get ticked by the server, does not collide with anything, and does
+ * not get saved. Players only see the entity after it has been spawned for them.
+ */
+public interface PacketEntity {
+
+	/**
+	 * Gets the entity id that is used in the packets.
+	 * 
+	 * @return the entity id
+	 */
+	public int getEntityId();
+
+	public EntityType getType();
+
+	/**
+	 * Gets a Bukkit entity that provides access to the entity's data (ex. its custom name).
+	 * <p>
+	 * This entity is not actually part of the world. Changes to its data need to be sent to the players via
+	 * {@link #updateMetadata(Player)}.
+	 * 
+	 * @return the Bukkit entity
+	 */
+	public Entity getBukkitEntity();
+
+	public double getEyeHeight();
+
+	/**
+	 * Sends the packets to show this entity to the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 */
+	public void spawn(Player player);
+
+	/**
+	 * Sends the current metadata of this entity to the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 */
+	public void updateMetadata(Player player);
+
+	/**
+	 * Sends the given head and body rotation to the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param yaw
+	 *            the yaw
+	 * @param pitch
+	 *            the pitch
+	 */
+	public void look(Player player, float yaw, float pitch);
+
+	/**
+	 * Sends the packet to remove this entity for the given player.
+	 * 
+	 * @param player
+	 *            the player
+	 */
+	public void destroy(Player player);
+}
@@ -0,0 +1,34 @@
+package com.nisovin.shopkeepers.compat.api;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Gets informed about players interacting with {@link PacketEntity packet entities}.
+ * <p>
+ * The methods get invoked on the network threads of the players, and therefore need to be thread-safe!
+ */
+public interface PacketEntityListener {
+
+	/**
+	 * Checks if the given entity id belongs to a packet entity.
+	 * <p>
+	 * Interactions with packet entities don't get passed on to the server.
+	 * 
+	 * @param entityId
+	 *            the entity id
+	 * @return <code>true</code> if the entity id belongs to a packet entity
+	 */
+	public boolean isPacketEntity(int entityId);
+
+	/**
+	 * Gets called when the player interacts with (right-click, main hand) or attacks a packet entity.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param entityId
+	 *            the entity id
+	 * @param attack
+	 *            <code>true</code> if the player attacked the entity
+	 */
+	public void onInteract(Player player, int entityId, boolean attack);
+}
@@ -0,0 +1,290 @@
+package com.nisovin.shopkeepers.interaction;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.pluginhandlers.WorldGuardHandler;
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.Utils;
+
+/**
+ * Checks whether other plugins (ex. protection plugins) allow players to interact with blocks and entities.
+ * <p>
+ * By default this calls dummy interaction events (see {@link Utils#checkBlockInteract(Player, Block)} and
+ * {@link Utils#checkEntityInteract(Player, Entity)}). Alternatively, if enabled in the config, the regions of WorldGuard
+ * can be queried directly for the shop interaction checks, without involving any other plugins. The chest access check
+ * always calls a dummy interaction event, so that chest protection plugins are taken into account.
+ * <p>
+ * The results get cached per player and target for a short configurable duration, so that repeatedly interacting with
+ * the same shopkeeper does not require a new check every time. The cached results of a player get invalidated once the
+ * player teleports, changes the world, quits, or once the player's permissions have changed. Since there is no event for
+ * permission changes, and since comparing the player's permissions requires iterating all of them, the permissions only
+ * get compared once per cache duration. Permission changes therefore take effect at the latest after the cache
+ * duration, the same as any other changes that affect the cached results.
+ */
+public class InteractionChecks {
+
+	// cached results per player, before expired results get removed:
+	private static final int MAX_CACHED_RESULTS_PER_PLAYER = 64;
+
+	private static final class Target {
+
+		private final String worldName;
+		private final UUID entityId; // null for blocks
+		private final int x;
+		private final int y;
+		private final int z;
+		// chest access and shop interaction checks of the same block can have different results:
+		private final boolean chestAccess;
+
+		Target(Block block, boolean chestAccess) {
+			this.worldName = block.getWorld().getName();
+			this.entityId = null;
+			this.x = block.getX();
+			this.y = block.getY();
+			this.z = block.getZ();
+			this.chestAccess = chestAccess;
+		}
+
+		Target(Entity entity) {
+			this.worldName = entity.getWorld().getName();
+			this.entityId = entity.getUniqueId();
+			this.x = 0;
+			this.y = 0;
+			this.z = 0;
+			this.chestAccess = false;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + worldName.hashCode();
+			result = prime * result + Objects.hashCode(entityId);
+			result = prime * result + x;
+			result = prime * result + y;
+			result = prime * result + z;
+			result = prime * result + Boolean.hashCode(chestAccess);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Target)) return false;
+			Target other = (Target) obj;
+			return x == other.x && y == other.y && z == other.z && chestAccess == other.chestAccess
+					&& worldName.equals(other.worldName)
+					&& Objects.equals(entityId, other.entityId);
+		}
+	}
+
+	private static final class CachedResult {
+
+		private final boolean allowed;
+		private final long expirationNanos;
+
+		CachedResult(boolean allowed, long expirationNanos) {
+			this.allowed = allowed;
+			this.expirationNanos = expirationNanos;
+		}
+
+		boolean isExpired(long nowNanos) {
+			return (nowNanos - expirationNanos >= 0L);
+		}
+	}
+
+	private static final class PlayerResults {
+
+		private int permissionsHash;
+		private long permissionsCheckNanos;
+		private final Map<Target, CachedResult> results = new HashMap<>();
+
+		PlayerResults(int permissionsHash, long permissionsCheckNanos) {
+			this.permissionsHash = permissionsHash;
+			this.permissionsCheckNanos = permissionsCheckNanos;
+		}
+	}
+
+	private final SKShopkeepersPlugin plugin;
+	private final InteractionChecksListener listener = new InteractionChecksListener(this);
+	private final Map<UUID, PlayerResults> resultsByPlayer = new HashMap<>();
+
+	public InteractionChecks(SKShopkeepersPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	public void onEnable() {
+		Bukkit.getPluginManager().registerEvents(listener, plugin);
+	}
+
+	public void onDisable() {
+		HandlerList.unregisterAll(listener);
+		this.clearCache();
+	}
+
+	/**
+	 * Clears all cached results (ex. after the config got reloaded).
+	 */
+	public void clearCache() {
+		resultsByPlayer.clear();
+	}
+
+	void clearCache(Player player) {
+		resultsByPlayer.remove(player.getUniqueId());
+	}
+
+	private static boolean useWorldGuard() {
+		return Settings.worldGuardInteractionChecks && WorldGuardHandler.isPluginEnabled();
+	}
+
+	/**
+	 * Checks if the player can interact with the given block.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param block
+	 *            the block
+	 * @return <code>true</code> if interaction is allowed
+	 * @see Utils#checkBlockInteract(Player, Block)
+	 */
+	public boolean checkBlockInteract(Player player, Block block) {
+		Target target = new Target(block, false);
+		Boolean cachedResult = this.getCachedResult(player, target);
+		if (cachedResult != null) return cachedResult;
+
+		boolean allowed;
+		if (useWorldGuard()) {
+			allowed = WorldGuardHandler.canInteract(player, block.getLocation());
+		} else {
+			allowed = Utils.checkBlockInteract(player, block); // checks access via dummy interact event
+		}
+		this.cacheResult(player, target, allowed);
+		return allowed;
+	}
+
+	/**
+	 * Checks if the player can access the given chest.
+	 * <p>
+	 * Unlike {@link #checkBlockInteract(Player, Block)}, this always calls a dummy interaction event, regardless of
+	 * whether WorldGuard interaction checks are enabled, so that chest protection plugins are taken into account.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param chestBlock
+	 *            the chest block
+	 * @return <code>true</code> if access is allowed
+	 * @see Utils#checkBlockInteract(Player, Block)
+	 */
+	public boolean checkChestAccess(Player player, Block chestBlock) {
+		Target target = new Target(chestBlock, true);
+		Boolean cachedResult = this.getCachedResult(player, target);
+		if (cachedResult != null) return cachedResult;
+
+		boolean allowed = Utils.checkBlockInteract(player, chestBlock); // checks access via dummy interact event
+		this.cacheResult(player, target, allowed);
+		return allowed;
+	}
+
+	/**
+	 * Checks if the player can interact with the given entity.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param entity
+	 *            the entity
+	 * @return <code>true</code> if interaction is allowed
+	 * @see Utils#checkEntityInteract(Player, Entity)
+	 */
+	public boolean checkEntityInteract(Player player, Entity entity) {
+		Target target = new Target(entity);
+		Boolean cachedResult = this.getCachedResult(player, target);
+		if (cachedResult != null) return cachedResult;
+
+		boolean allowed;
+		if (useWorldGuard()) {
+			allowed = WorldGuardHandler.canInteract(player, entity.getLocation());
+		} else {
+			allowed = Utils.checkEntityInteract(player, entity); // checks access via dummy interact event
+		}
+		this.cacheResult(player, target, allowed);
+		return allowed;
+	}
+
+	private static long getCacheDurationNanos() {
+		// 1 tick = 50 milliseconds:
+		return TimeUnit.MILLISECONDS.toNanos(Settings.interactionCheckCacheTicks * 50L);
+	}
+
+	// There is no event for permission changes. Instead, we compare a hash of the player's effective permissions.
+	private static int getPermissionsHash(Player player) {
+		int hash = Boolean.hashCode(player.isOp());
+		for (PermissionAttachmentInfo permissionInfo : player.getEffectivePermissions()) {
+			// order independent:
+			hash += permissionInfo.getPermission().hashCode() ^ Boolean.hashCode(permissionInfo.getValue());
+		}
+		return hash;
+	}
+
+	// returns null if there is no valid cached result
+	private Boolean getCachedResult(Player player, Target target) {
+		if (Settings.interactionCheckCacheTicks <= 0) return null; // caching is disabled
+		PlayerResults playerResults = resultsByPlayer.get(player.getUniqueId());
+		if (playerResults == null) return null;
+
+		long nowNanos = System.nanoTime();
+		// comparing the permissions is comparatively costly, so this happens only once per cache duration:
+		if (nowNanos - playerResults.permissionsCheckNanos >= getCacheDurationNanos()) {
+			playerResults.permissionsCheckNanos = nowNanos;
+			int permissionsHash = getPermissionsHash(player);
+			if (playerResults.permissionsHash != permissionsHash) {
+				// permissions have changed:
+				playerResults.permissionsHash = permissionsHash;
+				playerResults.results.clear();
+				return null;
+			}
+		}
+
+		CachedResult cachedResult = playerResults.results.get(target);
+		if (cachedResult == null) return null;
+		if (cachedResult.isExpired(nowNanos)) {
+			playerResults.results.remove(target);
+			return null;
+		}
+		Log.debug("  Using cached interaction check result");
+		return cachedResult.allowed;
+	}
+
+	private void cacheResult(Player player, Target target, boolean allowed) {
+		if (Settings.interactionCheckCacheTicks <= 0) return; // caching is disabled
+		long nowNanos = System.nanoTime();
+		PlayerResults playerResults = resultsByPlayer.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerResults(getPermissionsHash(player), nowNanos));
+		if (playerResults.results.size() >= MAX_CACHED_RESULTS_PER_PLAYER) {
+			// remove expired results:
+			Iterator<CachedResult> iterator = playerResults.results.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().isExpired(nowNanos)) {
+					iterator.remove();
+				}
+			}
+			if (playerResults.results.size() >= MAX_CACHED_RESULTS_PER_PLAYER) {
+				playerResults.results.clear();
+			}
+		}
+		long expirationNanos = nowNanos + getCacheDurationNanos();
+		playerResults.results.put(target, new CachedResult(allowed, expirationNanos));
+	}
+}
@@ -0,0 +1,35 @@
+package com.nisovin.shopkeepers.interaction;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+/**
+ * Invalidates the cached interaction check results of players.
+ */
+class InteractionChecksListener implements Listener {
+
+	private final InteractionChecks interactionChecks;
+
+	InteractionChecksListener(InteractionChecks interactionChecks) {
+		this.interactionChecks = interactionChecks;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onPlayerTeleport(PlayerTeleportEvent event) {
+		interactionChecks.clearCache(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+		interactionChecks.clearCache(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerQuit(PlayerQuitEvent event) {
+		interactionChecks.clearCache(event.getPlayer());
+	}
+}
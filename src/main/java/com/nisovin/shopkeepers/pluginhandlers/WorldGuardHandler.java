@@ -8,6 +8,7 @@ import org.bukkit.plugin.Plugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.util.Log;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldguard.LocalPlayer;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.flags.BooleanFlag;
@@ -45,6 +46,23 @@ public class WorldGuardHandler {
 		return Internal.isShopAllowed(wgPlugin, player, loc);
 	}
 
+	/**
+	 * Checks if WorldGuard allows the player to interact with blocks or entities at the given location.
+	 * <p>
+	 * Unlike checking the interaction via dummy interaction events, this directly queries the regions of WorldGuard.
+	 * 
+	 * @param player
+	 *            the player
+	 * @param loc
+	 *            the location of the block or entity
+	 * @return <code>true</code> if WorldGuard allows the interaction, or if WorldGuard is not enabled
+	 */
+	public static boolean canInteract(Player player, Location loc) {
+		Plugin wgPlugin = getPlugin();
+		if (wgPlugin == null || !wgPlugin.isEnabled()) return true;
+		return Internal.canInteract(wgPlugin, player, loc);
+	}
+
 	// Separate class that gets only accessed if WorldGuard is present. Avoids class loading issues.
 	private static class Internal {
 
@@ -94,6 +112,19 @@ public class WorldGuardHandler {
 			}
 		}
 
+		public static boolean canInteract(Plugin worldGuardPlugin, Player player, Location loc) {
+			assert worldGuardPlugin instanceof WorldGuardPlugin && worldGuardPlugin.isEnabled() && player != null && loc != null;
+			WorldGuardPlugin wgPlugin = (WorldGuardPlugin) worldGuardPlugin;
+			LocalPlayer localPlayer = wgPlugin.wrapPlayer(player);
+			// the bypass of the queried world:
+			if (WorldGuard.getInstance().getPlatform().getSessionManager().hasBypass(localPlayer, BukkitAdapter.adapt(loc.getWorld()))) {
+				return true;
+			}
+			RegionQuery query = WorldGuard.getInstance().getPlatform().getRegionContainer().createQuery();
+			// same as WorldGuard's own interaction checks: the build flag, combined with the more specific flag
+			return query.testBuild(BukkitAdapter.adapt(loc), localPlayer, Flags.INTERACT);
+		}
+
 		private Internal() {
 		}
 	}
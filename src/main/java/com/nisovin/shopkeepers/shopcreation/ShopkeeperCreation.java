@@ -102,7 +102,7 @@ public class ShopkeeperCreation {
 		}
 
 		// check if the player can access the chest:
-		if (!Utils.checkBlockInteract(player, chestBlock)) { // checks access via dummy interact event
+		if (!plugin.getInteractionChecks().checkChestAccess(player, chestBlock)) {
 			TextUtils.sendMessage(player, Settings.msgNoChestAccess);
 			return false;
 		}
@@ -69,6 +69,8 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 
 	// has unsaved data changes:
 	private boolean dirty = false;
+	// gets incremented whenever the shopkeeper gets marked dirty:
+	private int stateVersion = 0;
 	// is currently registered:
 	private boolean valid = false;
 
@@ -359,11 +361,14 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 	 */
 	public void markDirty() {
 		dirty = true;
+		stateVersion++;
 		// inform the storage that there are dirty shopkeepers:
 		if (this.isValid()) {
 			// if the shopkeeper gets marked dirty during creation or loading (while it is not yet valid),
 			// the storage gets marked dirty by the shopkeeper registry after the creation/loading was successful
 			SKShopkeepersPlugin.getInstance().getShopkeeperStorage().markDirty();
+			// update the snapshot of this shopkeeper:
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onShopkeeperChanged(this);
 		}
 	}
 
@@ -372,6 +377,18 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		return dirty;
 	}
 
+	/**
+	 * Gets a counter that gets incremented whenever this shopkeeper gets {@link #markDirty() marked dirty}.
+	 * <p>
+	 * This can be used to detect changes to the shopkeeper's persisted state, eg. to invalidate cached data that
+	 * depends on it.
+	 * 
+	 * @return the state version
+	 */
+	public int getStateVersion() {
+		return stateVersion;
+	}
+
 	// called by shopkeeper storage once the shopkeeper data gets saved
 	public void onSave() {
 		dirty = false;
@@ -566,8 +583,14 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		if (preparedName == null) preparedName = "";
 		preparedName = TextUtils.colorize(preparedName);
 		preparedName = this.trimName(preparedName);
+		String oldName = this.name;
 		this.name = preparedName;
 
+		// update the registry's name index:
+		if (this.isValid()) {
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onShopkeeperNameChanged(this, oldName);
+		}
+
 		// update shop object:
 		shopObject.setName(preparedName);
 		this.markDirty(); // mark dirty
@@ -623,6 +646,17 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		ShopkeepersPlugin.getInstance().getUIRegistry().closeAllDelayed(this);
 	}
 
+	/**
+	 * Updates the trades of all players that are currently trading with this shopkeeper, and closes all other open
+	 * windows of this shopkeeper.
+	 * <p>
+	 * This is meant to be used after the shopkeeper's trades have been changed. Similar to
+	 * {@link #closeAllOpenWindows()}, this happens delayed.
+	 */
+	public void updateOpenTradingWindows() {
+		SKShopkeepersPlugin.getInstance().getUIRegistry().updateTradesDelayed(this);
+	}
+
 	/**
 	 * Registers an {@link UIHandler} which handles a specific type of user interface for this shopkeeper.
 	 * <p>
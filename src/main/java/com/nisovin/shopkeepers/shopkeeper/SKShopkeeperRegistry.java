@@ -7,11 +7,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
@@ -28,18 +32,25 @@ import com.nisovin.shopkeepers.api.events.ShopkeeperAddedEvent;
 import com.nisovin.shopkeepers.api.events.ShopkeeperRemoveEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObject;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObjectType;
+import com.nisovin.shopkeepers.api.types.Type;
+import com.nisovin.shopkeepers.api.types.TypeRegistry;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
 import com.nisovin.shopkeepers.shopobjects.block.AbstractBlockShopObjectType;
 import com.nisovin.shopkeepers.shopobjects.entity.AbstractEntityShopObjectType;
 import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
+import com.nisovin.shopkeepers.util.ChunkKeys;
 import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.LongHashMap;
+import com.nisovin.shopkeepers.util.PersistentHashMap;
+import com.nisovin.shopkeepers.util.PrefixTrie;
 import com.nisovin.shopkeepers.util.StringUtils;
 import com.nisovin.shopkeepers.util.TextUtils;
 import com.nisovin.shopkeepers.util.Validate;
@@ -50,6 +61,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 		final WorldShopkeepers worldEntry;
 		final ChunkCoords chunkCoords;
+		final long chunkKey;
 		// list instead of set or map: we don't expect there to be excessive amounts of shopkeepers inside a single
 		// chunk, so removal from the list should be sufficiently fast
 		final List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
@@ -61,6 +73,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			assert worldEntry != null && chunkCoords != null;
 			this.worldEntry = worldEntry;
 			this.chunkCoords = chunkCoords;
+			this.chunkKey = ChunkKeys.of(chunkCoords);
 			this.active = active;
 		}
 
@@ -82,7 +95,8 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	private static final class WorldShopkeepers {
 
 		final String worldName;
-		final Map<ChunkCoords, ChunkShopkeepers> shopkeepersByChunk = new HashMap<>();
+		// keyed by packed chunk coordinates (see ChunkKeys):
+		final LongHashMap<ChunkShopkeepers> shopkeepersByChunk = new LongHashMap<>();
 		// unmodifiable entries:
 		final Map<ChunkCoords, List<AbstractShopkeeper>> shopkeeperViewsByChunk = new HashMap<>();
 		// unmodifiable map with unmodifiable entries:
@@ -150,12 +164,13 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			assert shopkeeper != null && chunkCoords != null;
 			// assert: world name matches this world entry
 			// assert shopkeeper is not yet contained
-			ChunkShopkeepers chunkEntry = shopkeepersByChunk.get(chunkCoords);
+			long chunkKey = ChunkKeys.of(chunkCoords);
+			ChunkShopkeepers chunkEntry = shopkeepersByChunk.get(chunkKey);
 			if (chunkEntry == null) {
 				// if the chunk is currently loaded, the chunk entry gets initialized as active:
 				boolean chunkLoaded = chunkCoords.isChunkLoaded();
 				chunkEntry = new ChunkShopkeepers(this, chunkCoords, chunkLoaded);
-				shopkeepersByChunk.put(chunkCoords, chunkEntry);
+				shopkeepersByChunk.put(chunkKey, chunkEntry);
 				shopkeeperViewsByChunk.put(chunkCoords, Collections.unmodifiableList(chunkEntry.shopkeepers));
 			}
 			chunkEntry.shopkeepers.add(shopkeeper);
@@ -166,14 +181,14 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		ChunkShopkeepers removeShopkeeper(AbstractShopkeeper shopkeeper, ChunkCoords chunkCoords) {
 			assert shopkeeper != null && chunkCoords != null;
 			// assert: world name matches this world entry
-			ChunkShopkeepers chunkEntry = shopkeepersByChunk.get(chunkCoords);
+			ChunkShopkeepers chunkEntry = shopkeepersByChunk.get(ChunkKeys.of(chunkCoords));
 			if (chunkEntry == null) return null; // could not find shopkeeper
 			if (chunkEntry.shopkeepers.remove(shopkeeper)) {
 				shopkeeperCount -= 1;
 				if (chunkEntry.shopkeepers.isEmpty()) {
 					chunkEntry.cleanUp();
-					shopkeepersByChunk.remove(chunkCoords);
-					shopkeeperViewsByChunk.remove(chunkCoords);
+					shopkeepersByChunk.remove(chunkEntry.chunkKey);
+					shopkeeperViewsByChunk.remove(chunkEntry.chunkCoords);
 				}
 			}
 			return chunkEntry;
@@ -194,6 +209,51 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 	}
 
+	// the shopkeepers of a specific shop type or shop object type
+	private static final class ShopkeeperPartition {
+
+		final Set<AbstractShopkeeper> shopkeepers = new LinkedHashSet<>();
+		final Set<AbstractShopkeeper> shopkeepersView = Collections.unmodifiableSet(shopkeepers);
+	}
+
+	private static final class PlayerShopkeepers {
+
+		final UUID ownerUUID;
+		// the owner name that is stored by all shopkeepers of this owner, null if the stored names are inconsistent
+		String ownerName = null;
+		final Set<AbstractPlayerShopkeeper> shopkeepers = new LinkedHashSet<>();
+		final Set<AbstractPlayerShopkeeper> shopkeepersView = Collections.unmodifiableSet(shopkeepers);
+
+		PlayerShopkeepers(UUID ownerUUID) {
+			assert ownerUUID != null;
+			this.ownerUUID = ownerUUID;
+		}
+
+		void addShopkeeper(AbstractPlayerShopkeeper shopkeeper) {
+			assert shopkeeper != null;
+			// assert: owner uuid matches this owner entry
+			if (shopkeepers.add(shopkeeper)) {
+				this.onOwnerNameChanged(shopkeeper);
+			}
+		}
+
+		boolean removeShopkeeper(AbstractPlayerShopkeeper shopkeeper) {
+			assert shopkeeper != null;
+			return shopkeepers.remove(shopkeeper);
+		}
+
+		void onOwnerNameChanged(AbstractPlayerShopkeeper shopkeeper) {
+			assert shopkeeper != null && shopkeepers.contains(shopkeeper);
+			String shopOwnerName = shopkeeper.getOwnerName();
+			if (shopkeepers.size() == 1) {
+				ownerName = shopOwnerName;
+			} else if (!shopOwnerName.equals(ownerName)) {
+				// the stored owner names are no longer consistent:
+				ownerName = null;
+			}
+		}
+	}
+
 	private static final long CHUNK_ACTIVATION_DELAY_TICKS = 2;
 
 	private final SKShopkeepersPlugin plugin;
@@ -202,8 +262,11 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	private final Map<UUID, AbstractShopkeeper> shopkeepersByUUID = new LinkedHashMap<>();
 	private final Collection<AbstractShopkeeper> allShopkeepersView = Collections.unmodifiableCollection(shopkeepersByUUID.values());
 	private final Map<Integer, AbstractShopkeeper> shopkeepersById = new HashMap<>();
+	// by id decimal string, used for id prefix matching (eg. for command completions):
+	private final PrefixTrie<AbstractShopkeeper> shopkeepersByIdPrefix = new PrefixTrie<>();
+	// by normalized name (stripped of color, normalized, lowercase), only contains shopkeepers with non-empty name:
+	private final PrefixTrie<AbstractShopkeeper> shopkeepersByName = new PrefixTrie<>();
 
-	// TODO shopkeepers by name TreeMap to speedup name lookups and prefix matching?
 	// TODO TreeMaps for shopkeeper owners by name and uuid to speedup prefix matching?
 
 	// virtual shopkeepers:
@@ -215,31 +278,50 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	private final Map<String, WorldShopkeepers> shopkeepersByWorld = new LinkedHashMap<>();
 	private final Set<String> shopkeeperWorldsView = Collections.unmodifiableSet(shopkeepersByWorld.keySet());
 
-	// player shopkeepers:
-	private int playerShopCount = 0;
-	// note: already unmodifiable
-	private final Set<AbstractPlayerShopkeeper> allPlayerShopkeepersView = new AbstractSet<AbstractPlayerShopkeeper>() {
-		@Override
-		public Iterator<AbstractPlayerShopkeeper> iterator() {
-			return getAllShopkeepers().stream()
-					.filter(shopkeeper -> shopkeeper instanceof PlayerShopkeeper)
-					.map(shopkeeper -> (AbstractPlayerShopkeeper) shopkeeper)
-					.iterator();
-		}
+	// by shop type and shop object type:
+	// Partitions only exist for registered types and for the types of added shopkeepers. They are kept (even if empty)
+	// while their type is registered, so that the views returned by the getters stay up-to-date.
+	private final Map<ShopType<?>, ShopkeeperPartition> shopkeepersByType = new HashMap<>();
+	private final Map<ShopObjectType<?>, ShopkeeperPartition> shopkeepersByObjectType = new HashMap<>();
 
-		@Override
-		public int size() {
-			return playerShopCount;
-		}
-	};
+	// admin shopkeepers:
+	private final Set<AbstractShopkeeper> adminShopkeepers = new LinkedHashSet<>();
+	private final Set<AbstractShopkeeper> adminShopkeepersView = Collections.unmodifiableSet(adminShopkeepers);
+
+	// player shopkeepers:
+	private final Set<AbstractPlayerShopkeeper> playerShopkeepers = new LinkedHashSet<>();
+	private final Set<AbstractPlayerShopkeeper> allPlayerShopkeepersView = Collections.unmodifiableSet(playerShopkeepers);
+	// by owner uuid
+	private final Map<UUID, PlayerShopkeepers> shopkeepersByOwner = new HashMap<>();
+	private final Set<UUID> playerShopkeeperOwnersView = Collections.unmodifiableSet(shopkeepersByOwner.keySet());
 
 	// TODO this may become out-of-sync if shop objects get despawned or removed independently, problem? potential
 	// memory leak?
-	// -> gets cleaned up by 'teleporter' task currently which periodically checks all activeShopkeepers entries
+	// -> shop objects inform us about removals they get notified about (see onShopObjectRemoved), other removals get
+	// cleaned up by the 'teleporter' task which periodically checks all activeShopkeepers entries
 	// 'active': with active shop object (ie. after successful spawning)
 	private final Map<String, AbstractShopkeeper> activeShopkeepers = new HashMap<>();
 	private final Collection<AbstractShopkeeper> activeShopkeepersView = Collections.unmodifiableCollection(activeShopkeepers.values());
 
+	// shopkeepers whose spawning got deferred during bulk creation, null if there is no bulk creation in progress:
+	private List<AbstractShopkeeper> deferredSpawns = null;
+
+	// shopkeepers whose shop objects got removed and that get respawned with the next tick:
+	private final Set<AbstractShopkeeper> pendingRespawns = new LinkedHashSet<>();
+	private BukkitTask respawnTask = null;
+	// only running if 'enable-spawn-verifier' is enabled:
+	private BukkitTask spawnVerifierTask = null;
+
+	// shopkeeper snapshots by session id and unique id, only replaced on the main thread:
+	// These maps are shared with the published snapshots: Publishing only copies the paths to the changed entries.
+	private PersistentHashMap<Integer, SKShopkeeperSnapshot> shopkeeperSnapshots = PersistentHashMap.empty();
+	private PersistentHashMap<UUID, SKShopkeeperSnapshot> shopkeeperSnapshotsByUniqueId = PersistentHashMap.empty();
+	// shopkeepers whose snapshots need to be updated (including removed shopkeepers):
+	private final Set<AbstractShopkeeper> pendingSnapshotUpdates = new LinkedHashSet<>();
+	private BukkitTask snapshotPublishTask = null;
+	// the latest published snapshot, accessed by any thread:
+	private volatile SKShopkeeperRegistrySnapshot publishedSnapshot = SKShopkeeperRegistrySnapshot.EMPTY;
+
 	public SKShopkeeperRegistry(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
 	}
@@ -260,6 +342,15 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	}
 
 	public void onDisable() {
+		this.stopSpawnVerifierTask();
+
+		// stop pending respawns:
+		if (respawnTask != null) {
+			respawnTask.cancel();
+			respawnTask = null;
+		}
+		pendingRespawns.clear();
+
 		// unload all shopkeepers:
 		this.unloadAllShopkeepers();
 		assert this.getAllShopkeepers().isEmpty();
@@ -267,10 +358,26 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		// reset, clearing (just in case):
 		shopkeepersByUUID.clear();
 		shopkeepersById.clear();
+		shopkeepersByIdPrefix.clear();
+		shopkeepersByName.clear();
 		shopkeepersByWorld.clear();
 		virtualShopkeepers.clear();
 		activeShopkeepers.clear();
-		playerShopCount = 0;
+		clearPartitions(shopkeepersByType, plugin.getShopTypeRegistry());
+		clearPartitions(shopkeepersByObjectType, plugin.getShopObjectTypeRegistry());
+		adminShopkeepers.clear();
+		playerShopkeepers.clear();
+		shopkeepersByOwner.clear();
+
+		// reset snapshots:
+		if (snapshotPublishTask != null) {
+			snapshotPublishTask.cancel();
+			snapshotPublishTask = null;
+		}
+		pendingSnapshotUpdates.clear();
+		shopkeeperSnapshots = PersistentHashMap.empty();
+		shopkeeperSnapshotsByUniqueId = PersistentHashMap.empty();
+		publishedSnapshot = new SKShopkeeperRegistrySnapshot(publishedSnapshot.getVersion() + 1, shopkeeperSnapshots, shopkeeperSnapshotsByUniqueId);
 	}
 
 	// PERIODIC TASKS
@@ -309,10 +416,12 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	}
 
 	// TODO ideally this task should not be required..
-	// TODO: actually, the shops already get respawned as part of the teleporter task when missing
+	// Shop objects that get removed due to events we are informed about (eg. the death of shop entities) get respawned
+	// right away (see onShopObjectRemoved). Also, the shops already get respawned as part of the teleporter task when
+	// missing. This task only remains as opt-in fallback for servers on which shop objects get removed silently.
 	// -> remove this task and the corresponding setting?
 	private void startSpawnVerifierTask() {
-		Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+		spawnVerifierTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
 			int count = 0;
 			boolean dirty = false;
 
@@ -350,6 +459,75 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}, 600, 1200); // 30,60 seconds
 	}
 
+	private void stopSpawnVerifierTask() {
+		if (spawnVerifierTask != null) {
+			spawnVerifierTask.cancel();
+			spawnVerifierTask = null;
+		}
+	}
+
+	/**
+	 * Applies a change of the 'enable-spawn-verifier' setting at runtime.
+	 */
+	public void onSettingsChanged() {
+		if (!Settings.enableSpawnVerifier) {
+			this.stopSpawnVerifierTask();
+		} else if (spawnVerifierTask == null) {
+			this.startSpawnVerifierTask();
+		}
+	}
+
+	// RESPAWNING
+
+	/**
+	 * Informs the registry that the shop object of the given shopkeeper got removed unexpectedly, for example due to
+	 * the death of the shop entity.
+	 * <p>
+	 * If the shopkeeper is still located in an active chunk, its shop object gets respawned with the next tick.
+	 * 
+	 * @param shopkeeper
+	 *            the shopkeeper
+	 */
+	public void onShopObjectRemoved(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		if (!shopkeeper.isValid()) return;
+		if (!shopkeeper.getShopObject().needsSpawning()) return;
+		if (!pendingRespawns.add(shopkeeper)) return; // respawn already pending
+		if (respawnTask == null) {
+			respawnTask = Bukkit.getScheduler().runTask(plugin, this::processPendingRespawns);
+		}
+	}
+
+	private void processPendingRespawns() {
+		respawnTask = null;
+		// copy: spawning might trigger further removals
+		List<AbstractShopkeeper> shopkeepers = new ArrayList<>(pendingRespawns);
+		pendingRespawns.clear();
+
+		int count = 0;
+		boolean dirty = false;
+		for (AbstractShopkeeper shopkeeper : shopkeepers) {
+			if (!shopkeeper.isValid()) continue; // got removed in the meantime
+			ShopObject shopObject = shopkeeper.getShopObject();
+			if (shopObject.isActive()) continue; // already got respawned in the meantime
+			// only respawn shopkeepers in active chunks:
+			ChunkShopkeepers chunkEntry = this.getChunkEntry(shopkeeper.getChunkCoords());
+			if (chunkEntry == null || !chunkEntry.active || chunkEntry.worldEntry.isWorldSaveRespawnPending()) continue;
+
+			this.spawnShopkeeper(shopkeeper);
+			count++;
+			if (shopkeeper.isDirty()) dirty = true;
+		}
+
+		if (count > 0) {
+			int finalCount = count;
+			Log.debug(() -> "Respawned " + finalCount + " shopkeepers whose shop objects got removed");
+			if (dirty) {
+				this.getShopkeeperStorage().saveDelayed();
+			}
+		}
+	}
+
 	// TICKING
 
 	private void startShopkeeperTickTask() {
@@ -404,6 +582,53 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		return shopkeeper;
 	}
 
+	/**
+	 * Creates shopkeepers for all of the given {@link ShopCreationData}.
+	 * <p>
+	 * Similar to {@link #createShopkeeper(ShopCreationData)}, this does not perform any of the checks that get usually
+	 * performed when players create shopkeepers (such as permission checks or spawn location validation), and no
+	 * {@link com.nisovin.shopkeepers.api.events.PlayerCreateShopkeeperEvent} gets called.
+	 * <p>
+	 * The spawning of the created shopkeepers is deferred until all shopkeepers have been registered. Any shopkeeper
+	 * that cannot be created gets logged and skipped. This does not trigger a save of the shopkeeper storage: Callers
+	 * are expected to trigger a single save once they are done.
+	 * <p>
+	 * To not block the server for too long, callers that create large amounts of shopkeepers should split them up into
+	 * smaller batches that get created across multiple ticks.
+	 * 
+	 * @param creationData
+	 *            the creation data
+	 * @return the created shopkeepers
+	 */
+	public List<AbstractShopkeeper> createShopkeepers(Iterable<? extends ShopCreationData> creationData) {
+		Validate.notNull(creationData, "CreationData is null!");
+		Validate.State.isTrue(deferredSpawns == null, "Already creating shopkeepers in bulk!");
+		List<AbstractShopkeeper> created = new ArrayList<>();
+		deferredSpawns = new ArrayList<>();
+		try {
+			int index = 0;
+			for (ShopCreationData shopCreationData : creationData) {
+				index++;
+				try {
+					created.add(this.createShopkeeper(shopCreationData));
+				} catch (ShopkeeperCreateException e) {
+					Log.warning("Failed to create shopkeeper " + index + ": " + e.getMessage());
+				} catch (Exception e) {
+					Log.warning("Failed to create shopkeeper " + index, e);
+				}
+			}
+		} finally {
+			List<AbstractShopkeeper> toSpawn = deferredSpawns;
+			deferredSpawns = null;
+			for (AbstractShopkeeper shopkeeper : toSpawn) {
+				// skip if the shopkeeper got removed in the meantime (eg. by event handlers):
+				if (!shopkeeper.isValid()) continue;
+				this.spawnShopkeeper(shopkeeper);
+			}
+		}
+		return created;
+	}
+
 	@Override
 	public AbstractShopkeeper loadShopkeeper(ShopType<?> shopType, int id, ConfigurationSection configSection) throws ShopkeeperCreateException {
 		AbstractShopType<?> abstractShopType = this.validateShopType(shopType);
@@ -448,6 +673,8 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		UUID shopkeeperUniqueId = shopkeeper.getUniqueId();
 		shopkeepersByUUID.put(shopkeeperUniqueId, shopkeeper);
 		shopkeepersById.put(shopkeeper.getId(), shopkeeper);
+		shopkeepersByIdPrefix.add(String.valueOf(shopkeeper.getId()), shopkeeper);
+		this.addShopkeeperToNameIndex(shopkeeper, shopkeeper.getName());
 
 		ChunkCoords chunkCoords = shopkeeper.getChunkCoords(); // null for virtual shops
 		ChunkShopkeepers chunkEntry;
@@ -460,14 +687,25 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			chunkEntry = this.addShopkeeperToChunk(shopkeeper, chunkCoords);
 		}
 
-		// update player shop count:
+		// add to partitions:
+		addToPartition(shopkeepersByType, shopkeeper.getType(), shopkeeper);
+		addToPartition(shopkeepersByObjectType, shopkeeper.getShopObject().getType(), shopkeeper);
+
+		// update player and admin shops and owner index:
 		if (shopkeeper instanceof PlayerShopkeeper) {
-			playerShopCount++;
+			AbstractPlayerShopkeeper playerShopkeeper = (AbstractPlayerShopkeeper) shopkeeper;
+			playerShopkeepers.add(playerShopkeeper);
+			this.addPlayerShopkeeperToOwner(playerShopkeeper);
+		} else {
+			adminShopkeepers.add(shopkeeper);
 		}
 
 		// inform shopkeeper:
 		shopkeeper.informAdded(cause);
 
+		// update snapshot:
+		this.onShopkeeperChanged(shopkeeper);
+
 		// call event:
 		Bukkit.getPluginManager().callEvent(new ShopkeeperAddedEvent(shopkeeper, cause));
 
@@ -477,8 +715,13 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			this._activateShopkeeper(shopkeeper);
 		} else if (chunkEntry != null && chunkEntry.active) {
 			if (!chunkEntry.worldEntry.isWorldSaveRespawnPending()) {
-				// spawn shopkeeper in active chunk:
-				this.spawnShopkeeper(shopkeeper);
+				if (deferredSpawns != null) {
+					// gets spawned once the bulk creation is done:
+					deferredSpawns.add(shopkeeper);
+				} else {
+					// spawn shopkeeper in active chunk:
+					this.spawnShopkeeper(shopkeeper);
+				}
 			} else {
 				Log.debug(Settings.DebugOptions.shopkeeperActivation,
 						() -> "Skipping spawning of shopkeeper at " + shopkeeper.getPositionString() + " due to pending respawn after world save."
@@ -500,10 +743,15 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	}
 
 	private void removeShopkeeper(AbstractShopkeeper shopkeeper, ShopkeeperRemoveEvent.Cause cause) {
+		this.removeShopkeeper(shopkeeper, cause, true);
+	}
+
+	// closeWindows: false if the caller takes care of closing the shopkeeper's open windows
+	private void removeShopkeeper(AbstractShopkeeper shopkeeper, ShopkeeperRemoveEvent.Cause cause, boolean closeWindows) {
 		assert shopkeeper != null && shopkeeper.isValid() && cause != null;
 
 		// despawn shopkeeper:
-		this.despawnShopkeeper(shopkeeper, true);
+		this.despawnShopkeeper(shopkeeper, closeWindows);
 
 		// call event:
 		Bukkit.getPluginManager().callEvent(new ShopkeeperRemoveEvent(shopkeeper, cause));
@@ -511,10 +759,15 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		// inform shopkeeper:
 		shopkeeper.informRemoval(cause);
 
+		// update snapshot:
+		this.onShopkeeperChanged(shopkeeper);
+
 		// remove shopkeeper by unique id and session id:
 		UUID shopkeeperUniqueId = shopkeeper.getUniqueId();
 		shopkeepersByUUID.remove(shopkeeperUniqueId);
 		shopkeepersById.remove(shopkeeper.getId());
+		shopkeepersByIdPrefix.remove(String.valueOf(shopkeeper.getId()), shopkeeper);
+		this.removeShopkeeperFromNameIndex(shopkeeper, shopkeeper.getName());
 
 		ChunkCoords chunkCoords = shopkeeper.getChunkCoords(); // null for virtual shops
 		if (chunkCoords == null) {
@@ -525,9 +778,17 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			this.removeShopkeeperFromChunk(shopkeeper, chunkCoords);
 		}
 
-		// update player shop count:
+		// remove from partitions:
+		removeFromPartition(shopkeepersByType, shopkeeper.getType(), shopkeeper, plugin.getShopTypeRegistry());
+		removeFromPartition(shopkeepersByObjectType, shopkeeper.getShopObject().getType(), shopkeeper, plugin.getShopObjectTypeRegistry());
+
+		// update player and admin shops and owner index:
 		if (shopkeeper instanceof PlayerShopkeeper) {
-			playerShopCount--;
+			AbstractPlayerShopkeeper playerShopkeeper = (AbstractPlayerShopkeeper) shopkeeper;
+			playerShopkeepers.remove(playerShopkeeper);
+			this.removePlayerShopkeeperFromOwner(playerShopkeeper, playerShopkeeper.getOwnerUUID());
+		} else {
+			adminShopkeepers.remove(shopkeeper);
 		}
 
 		// remove shopkeeper from storage:
@@ -547,6 +808,102 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 	}
 
+	private static boolean isRegistered(TypeRegistry<?> registry, Type type) {
+		return (registry.get(type.getIdentifier()) == type);
+	}
+
+	// creates the partition if it does not exist yet
+	private static <K> ShopkeeperPartition getPartition(Map<K, ShopkeeperPartition> partitions, K key) {
+		assert partitions != null && key != null;
+		ShopkeeperPartition partition = partitions.get(key);
+		if (partition == null) {
+			partition = new ShopkeeperPartition();
+			partitions.put(key, partition);
+		}
+		return partition;
+	}
+
+	// only creates the partition if the type is registered, and otherwise returns an empty set
+	private static <K extends Type> Set<AbstractShopkeeper> getPartitionView(	Map<K, ShopkeeperPartition> partitions, K key,
+																				TypeRegistry<?> registry) {
+		ShopkeeperPartition partition = partitions.get(key);
+		if (partition == null) {
+			if (!isRegistered(registry, key)) return Collections.emptySet();
+			partition = getPartition(partitions, key);
+		}
+		return partition.shopkeepersView;
+	}
+
+	private static <K> void addToPartition(Map<K, ShopkeeperPartition> partitions, K key, AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		getPartition(partitions, key).shopkeepers.add(shopkeeper);
+	}
+
+	private static <K extends Type> void removeFromPartition(	Map<K, ShopkeeperPartition> partitions, K key,
+																AbstractShopkeeper shopkeeper, TypeRegistry<?> registry) {
+		assert partitions != null && key != null && shopkeeper != null;
+		ShopkeeperPartition partition = partitions.get(key);
+		if (partition == null) return; // could not find shopkeeper
+		partition.shopkeepers.remove(shopkeeper);
+		// the (possibly empty) partition is kept while its type is registered, since its view might be in use:
+		if (partition.shopkeepers.isEmpty() && !isRegistered(registry, key)) {
+			partitions.remove(key);
+		}
+	}
+
+	private static <K extends Type> void clearPartitions(Map<K, ShopkeeperPartition> partitions, TypeRegistry<?> registry) {
+		partitions.values().forEach(partition -> partition.shopkeepers.clear());
+		partitions.keySet().removeIf(type -> !isRegistered(registry, type));
+	}
+
+	// returns an empty String if the name is empty after normalization
+	private static String getNormalizedName(String name) {
+		if (name == null) return "";
+		return StringUtils.normalize(TextUtils.stripColor(name));
+	}
+
+	private void addShopkeeperToNameIndex(AbstractShopkeeper shopkeeper, String name) {
+		String normalizedName = getNormalizedName(name);
+		if (normalizedName.isEmpty()) return; // not indexed
+		shopkeepersByName.add(normalizedName, shopkeeper);
+	}
+
+	private void removeShopkeeperFromNameIndex(AbstractShopkeeper shopkeeper, String name) {
+		String normalizedName = getNormalizedName(name);
+		if (normalizedName.isEmpty()) return; // not indexed
+		shopkeepersByName.remove(normalizedName, shopkeeper);
+	}
+
+	// this gets called after the name of a registered shopkeeper has changed
+	public void onShopkeeperNameChanged(AbstractShopkeeper shopkeeper, String oldName) {
+		assert shopkeeper != null && shopkeeper.isValid();
+		this.removeShopkeeperFromNameIndex(shopkeeper, oldName);
+		this.addShopkeeperToNameIndex(shopkeeper, shopkeeper.getName());
+	}
+
+	// only called for player shopkeepers
+	private void addPlayerShopkeeperToOwner(AbstractPlayerShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		UUID ownerUUID = shopkeeper.getOwnerUUID();
+		PlayerShopkeepers ownerEntry = shopkeepersByOwner.get(ownerUUID);
+		if (ownerEntry == null) {
+			ownerEntry = new PlayerShopkeepers(ownerUUID);
+			shopkeepersByOwner.put(ownerUUID, ownerEntry);
+		}
+		ownerEntry.addShopkeeper(shopkeeper);
+	}
+
+	// only called for player shopkeepers
+	private void removePlayerShopkeeperFromOwner(AbstractPlayerShopkeeper shopkeeper, UUID ownerUUID) {
+		assert shopkeeper != null && ownerUUID != null;
+		PlayerShopkeepers ownerEntry = shopkeepersByOwner.get(ownerUUID);
+		if (ownerEntry == null) return; // could not find shopkeeper
+		ownerEntry.removeShopkeeper(shopkeeper);
+		if (ownerEntry.shopkeepers.isEmpty()) {
+			shopkeepersByOwner.remove(ownerUUID);
+		}
+	}
+
 	private void unloadShopkeeper(AbstractShopkeeper shopkeeper) {
 		assert shopkeeper != null && shopkeeper.isValid();
 		this.removeShopkeeper(shopkeeper, ShopkeeperRemoveEvent.Cause.UNLOAD);
@@ -565,9 +922,70 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	}
 
 	public void deleteAllShopkeepers() {
-		for (AbstractShopkeeper shopkeeper : new ArrayList<>(this.getAllShopkeepers())) {
-			this.deleteShopkeeper(shopkeeper);
+		this.deleteShopkeepers(this.getAllShopkeepers());
+	}
+
+	/**
+	 * Deletes the given shopkeepers.
+	 * <p>
+	 * This is more efficient than deleting the shopkeepers one by one: The open windows of all affected shopkeepers get
+	 * closed within a single delayed task, and the storage gets marked dirty only once. A {@link ShopkeeperRemoveEvent}
+	 * still gets called for every deleted shopkeeper.
+	 * <p>
+	 * Shopkeepers that are no longer valid (including shopkeepers that get removed by event handlers during this
+	 * operation) are skipped. This does not trigger a save of the shopkeeper storage.
+	 * 
+	 * @param shopkeepers
+	 *            the shopkeepers to delete
+	 * @return the number of deleted shopkeepers
+	 */
+	public int deleteShopkeepers(Collection<? extends Shopkeeper> shopkeepers) {
+		Validate.notNull(shopkeepers, "Shopkeepers is null!");
+		// copy to deal with concurrent modifications (eg. if the given collection is a view on our own data):
+		List<AbstractShopkeeper> toDelete = new ArrayList<>(shopkeepers.size());
+		for (Shopkeeper shopkeeper : shopkeepers) {
+			Validate.isTrue(shopkeeper instanceof AbstractShopkeeper, "Shopkeepers contains an unsupported shopkeeper!");
+			if (!shopkeeper.isValid()) continue; // skip if no longer valid
+			toDelete.add((AbstractShopkeeper) shopkeeper);
+		}
+		if (toDelete.isEmpty()) return 0;
+
+		// close the open windows of all shopkeepers at once:
+		plugin.getUIRegistry().closeAllDelayed(toDelete);
+
+		int deletedCount = 0;
+		for (AbstractShopkeeper shopkeeper : toDelete) {
+			// skip if the shopkeeper got removed in the meantime (or is contained multiple times):
+			if (!shopkeeper.isValid()) continue;
+			this.removeShopkeeper(shopkeeper, ShopkeeperRemoveEvent.Cause.DELETE, false);
+			deletedCount++;
 		}
+
+		if (deletedCount > 0) {
+			this.getShopkeeperStorage().markDirty();
+		}
+		final int finalDeletedCount = deletedCount;
+		Log.debug(() -> "Deleted " + finalDeletedCount + " shopkeepers.");
+		return deletedCount;
+	}
+
+	/**
+	 * Deletes all shopkeepers that are accepted by the given filter.
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @return the number of deleted shopkeepers
+	 * @see #deleteShopkeepers(Collection)
+	 */
+	public int deleteShopkeepers(Predicate<? super AbstractShopkeeper> filter) {
+		Validate.notNull(filter, "Filter is null!");
+		List<AbstractShopkeeper> toDelete = new ArrayList<>();
+		for (AbstractShopkeeper shopkeeper : this.getAllShopkeepers()) {
+			if (filter.test(shopkeeper)) {
+				toDelete.add(shopkeeper);
+			}
+		}
+		return this.deleteShopkeepers(toDelete);
 	}
 
 	// this does not get called for virtual shopkeepers
@@ -584,21 +1002,45 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 	}
 
+	// this gets called whenever the owner uuid or the stored owner name of a (valid) player shopkeeper has changed
+	public void onShopkeeperOwnerChanged(AbstractPlayerShopkeeper shopkeeper, UUID oldOwnerUUID) {
+		assert shopkeeper != null && oldOwnerUUID != null;
+		UUID newOwnerUUID = shopkeeper.getOwnerUUID();
+		if (newOwnerUUID.equals(oldOwnerUUID)) {
+			// only the stored owner name has changed:
+			// this does not modify the owner's shopkeepers, so that they can be updated while iterating them
+			PlayerShopkeepers ownerEntry = shopkeepersByOwner.get(newOwnerUUID);
+			if (ownerEntry != null) {
+				ownerEntry.onOwnerNameChanged(shopkeeper);
+			}
+		} else {
+			// remove from old owner:
+			this.removePlayerShopkeeperFromOwner(shopkeeper, oldOwnerUUID);
+
+			// add to new owner:
+			this.addPlayerShopkeeperToOwner(shopkeeper);
+		}
+	}
+
 	// CHUNK ACTIVATION
 
 	private ChunkShopkeepers getChunkEntry(ChunkCoords chunkCoords) {
 		if (chunkCoords == null) return null;
-		String worldName = chunkCoords.getWorldName();
+		return this.getChunkEntry(chunkCoords.getWorldName(), ChunkKeys.of(chunkCoords));
+	}
+
+	private ChunkShopkeepers getChunkEntry(String worldName, long chunkKey) {
 		WorldShopkeepers worldEntry = shopkeepersByWorld.get(worldName);
 		if (worldEntry == null) return null; // there are no shopkeepers in this world
-		return worldEntry.shopkeepersByChunk.get(chunkCoords);
+		return worldEntry.shopkeepersByChunk.get(chunkKey);
 	}
 
 	void onChunkLoad(Chunk chunk) {
 		assert chunk != null;
-		ChunkCoords chunkCoords = new ChunkCoords(chunk);
-		ChunkShopkeepers chunkEntry = this.getChunkEntry(chunkCoords);
+		// avoids allocating a ChunkCoords object for every chunk event:
+		ChunkShopkeepers chunkEntry = this.getChunkEntry(chunk.getWorld().getName(), ChunkKeys.of(chunk.getX(), chunk.getZ()));
 		if (chunkEntry == null) return; // there are no shopkeepers in this chunk
+		ChunkCoords chunkCoords = chunkEntry.chunkCoords;
 
 		// chunk is not expected to already be active or pending activation (if chunk loading and unloading events are
 		// consistently ordered and correctly handled by us):
@@ -677,8 +1119,8 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 	void onChunkUnload(Chunk chunk) {
 		assert chunk != null;
-		ChunkCoords chunkCoords = new ChunkCoords(chunk);
-		ChunkShopkeepers chunkEntry = this.getChunkEntry(chunkCoords);
+		// avoids allocating a ChunkCoords object for every chunk event:
+		ChunkShopkeepers chunkEntry = this.getChunkEntry(chunk.getWorld().getName(), ChunkKeys.of(chunk.getX(), chunk.getZ()));
 		if (chunkEntry == null) return; // there are no shopkeepers in this chunk
 
 		this.deactivateChunk(chunkEntry);
@@ -958,6 +1400,27 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		return shopkeepersById.get(shopkeeperId);
 	}
 
+	// BY TYPE
+
+	@Override
+	public Collection<? extends AbstractShopkeeper> getShopkeepersByType(ShopType<?> shopType) {
+		Validate.notNull(shopType, "Shop type is null!");
+		return getPartitionView(shopkeepersByType, shopType, plugin.getShopTypeRegistry());
+	}
+
+	@Override
+	public Collection<? extends AbstractShopkeeper> getShopkeepersByObjectType(ShopObjectType<?> shopObjectType) {
+		Validate.notNull(shopObjectType, "Shop object type is null!");
+		return getPartitionView(shopkeepersByObjectType, shopObjectType, plugin.getShopObjectTypeRegistry());
+	}
+
+	// ADMIN SHOPS
+
+	@Override
+	public Collection<? extends AbstractShopkeeper> getAllAdminShopkeepers() {
+		return adminShopkeepersView;
+	}
+
 	// PLAYER SHOPS
 
 	@Override
@@ -968,60 +1431,88 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	@Override
 	public Collection<? extends AbstractPlayerShopkeeper> getPlayerShopkeepersByOwner(UUID ownerUUID) {
 		Validate.notNull(ownerUUID, "Owner UUID is null!");
-		// TODO improve? maybe keep an index of player shops? or even index by owner?
-		// note: already unmodifiable
-		return new AbstractSet<AbstractPlayerShopkeeper>() {
-			private Stream<AbstractPlayerShopkeeper> createStream() {
-				return getAllShopkeepers().stream()
-						.filter(shopkeeper -> shopkeeper instanceof PlayerShopkeeper)
-						.map(shopkeeper -> (AbstractPlayerShopkeeper) shopkeeper)
-						.filter(shopkeeper -> shopkeeper.getOwnerUUID().equals(ownerUUID));
-			}
-
-			@Override
-			public Iterator<AbstractPlayerShopkeeper> iterator() {
-				return this.createStream().iterator();
-			}
+		PlayerShopkeepers ownerEntry = shopkeepersByOwner.get(ownerUUID);
+		if (ownerEntry == null) return Collections.emptySet();
+		return ownerEntry.shopkeepersView;
+	}
+
+	/**
+	 * Gets the unique ids of all players that own player shopkeepers.
+	 * 
+	 * @return an unmodifiable view on the owner uuids
+	 */
+	public Collection<UUID> getPlayerShopkeeperOwners() {
+		return playerShopkeeperOwnersView;
+	}
+
+	/**
+	 * Gets the owner name that is consistently stored by all player shopkeepers of the specified owner.
+	 * 
+	 * @param ownerUUID
+	 *            the owner uuid
+	 * @return the stored owner name, or <code>null</code> if the owner has no shopkeepers or if the stored names are
+	 *         not consistent among the owner's shopkeepers
+	 */
+	public String getStoredOwnerName(UUID ownerUUID) {
+		Validate.notNull(ownerUUID, "Owner UUID is null!");
+		PlayerShopkeepers ownerEntry = shopkeepersByOwner.get(ownerUUID);
+		if (ownerEntry == null) return null;
+		return ownerEntry.ownerName;
+	}
 
-			@Override
-			public int size() {
-				return this.createStream().mapToInt(shopkeeper -> 1).sum();
-			}
-		};
+	// this gets called after the stored owner name of all shopkeepers of the specified owner has been updated
+	public void onOwnerNameUpdated(UUID ownerUUID, String ownerName) {
+		assert ownerUUID != null && ownerName != null;
+		PlayerShopkeepers ownerEntry = shopkeepersByOwner.get(ownerUUID);
+		if (ownerEntry == null) return; // no shopkeepers
+		assert ownerEntry.shopkeepers.stream().allMatch(shopkeeper -> ownerName.equals(shopkeeper.getOwnerName()));
+		ownerEntry.ownerName = ownerName;
 	}
 
 	// BY NAME
 
 	@Override
 	public Stream<? extends AbstractShopkeeper> getShopkeepersByName(String shopName) {
-		String normalizedShopName = StringUtils.normalize(TextUtils.stripColor(shopName));
-		if (StringUtils.isEmpty(normalizedShopName)) return Stream.empty();
-
-		// TODO improve via (Tree)Map?
-		return this.getAllShopkeepers().stream().filter(shopkeeper -> {
-			String shopkeeperName = shopkeeper.getName(); // can be empty
-			if (shopkeeperName.isEmpty()) return false; // has no name, filter
-
-			shopkeeperName = TextUtils.stripColor(shopkeeperName);
-			shopkeeperName = StringUtils.normalize(shopkeeperName);
-			return (shopkeeperName.equals(normalizedShopName)); // include shopkeeper if name matches
-		});
+		String normalizedShopName = getNormalizedName(shopName);
+		if (normalizedShopName.isEmpty()) return Stream.empty();
+		return shopkeepersByName.get(normalizedShopName).stream();
 	}
 
 	@Override
 	public Stream<? extends AbstractShopkeeper> getShopkeepersByNamePrefix(String shopNamePrefix) {
-		String normalizedShopNamePrefix = StringUtils.normalize(TextUtils.stripColor(shopNamePrefix));
-		if (StringUtils.isEmpty(normalizedShopNamePrefix)) return Stream.empty();
-
-		// TODO improve via TreeMap?
-		return this.getAllShopkeepers().stream().filter(shopkeeper -> {
-			String shopkeeperName = shopkeeper.getName(); // can be empty
-			if (shopkeeperName.isEmpty()) return false; // has no name, filter
-
-			shopkeeperName = TextUtils.stripColor(shopkeeperName);
-			shopkeeperName = StringUtils.normalize(shopkeeperName);
-			return (shopkeeperName.startsWith(normalizedShopNamePrefix)); // include shopkeeper if name matches
-		});
+		String normalizedShopNamePrefix = getNormalizedName(shopNamePrefix);
+		if (normalizedShopNamePrefix.isEmpty()) return Stream.empty();
+		return StreamSupport.stream(shopkeepersByName.getWithPrefix(normalizedShopNamePrefix).spliterator(), false);
+	}
+
+	/**
+	 * Gets the shopkeepers whose normalized names start with the given normalized name prefix.
+	 * <p>
+	 * The shopkeepers are lazily iterated in the order of their name lengths, i.e. shopkeepers with shorter names are
+	 * returned first. Shopkeepers without name are not included.
+	 * 
+	 * @param normalizedNamePrefix
+	 *            the name prefix (stripped of color, normalized and in lower case), can be empty, not <code>null</code>
+	 * @return the matching shopkeepers
+	 */
+	public Iterable<? extends AbstractShopkeeper> getShopkeepersByNormalizedNamePrefix(String normalizedNamePrefix) {
+		return shopkeepersByName.getWithPrefix(normalizedNamePrefix);
+	}
+
+	// BY ID PREFIX
+
+	/**
+	 * Gets the shopkeepers whose ids start with the given (decimal) id prefix.
+	 * <p>
+	 * The shopkeepers are lazily iterated in the order of their id lengths, i.e. shopkeepers with shorter ids are
+	 * returned first (eg. for input "2": 2, 20, 21,.., 200, 201,..).
+	 * 
+	 * @param idPrefix
+	 *            the id prefix, can be empty, not <code>null</code>
+	 * @return the matching shopkeepers
+	 */
+	public Iterable<? extends AbstractShopkeeper> getShopkeepersByIdPrefix(String idPrefix) {
+		return shopkeepersByIdPrefix.getWithPrefix(idPrefix);
 	}
 
 	// BY WORLD
@@ -1092,8 +1583,9 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		int y = location.getBlockY();
 		int z = location.getBlockZ();
 
-		ChunkCoords chunkCoords = ChunkCoords.fromBlockPos(worldName, x, z);
-		for (AbstractShopkeeper shopkeeper : this.getShopkeepersInChunk(chunkCoords)) {
+		ChunkShopkeepers chunkEntry = this.getChunkEntry(worldName, ChunkKeys.fromBlockPos(x, z));
+		if (chunkEntry == null) return false;
+		for (AbstractShopkeeper shopkeeper : chunkEntry.shopkeepers) {
 			assert worldName.equals(shopkeeper.getWorldName());
 			if (shopkeeper.getX() == x && shopkeeper.getY() == y && shopkeeper.getZ() == z) {
 				return true;
@@ -1112,9 +1604,10 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		int y = location.getBlockY();
 		int z = location.getBlockZ();
 
+		ChunkShopkeepers chunkEntry = this.getChunkEntry(worldName, ChunkKeys.fromBlockPos(x, z));
+		if (chunkEntry == null) return Collections.emptyList();
 		List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
-		ChunkCoords chunkCoords = ChunkCoords.fromBlockPos(worldName, x, z);
-		for (AbstractShopkeeper shopkeeper : this.getShopkeepersInChunk(chunkCoords)) {
+		for (AbstractShopkeeper shopkeeper : chunkEntry.shopkeepers) {
 			assert worldName.equals(shopkeeper.getWorldName());
 			if (shopkeeper.getX() == x && shopkeeper.getY() == y && shopkeeper.getZ() == z) {
 				shopkeepers.add(shopkeeper);
@@ -1123,6 +1616,120 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		return shopkeepers;
 	}
 
+	// BY AREA
+
+	@Override
+	public List<AbstractShopkeeper> getShopkeepersNear(Location location, double radius) {
+		Validate.notNull(location, "Location is null!");
+		World world = location.getWorld();
+		Validate.notNull(world, "Location's world is null!");
+		Validate.isTrue(radius >= 0.0D, "Radius cannot be negative!");
+		double centerX = location.getX();
+		double centerY = location.getY();
+		double centerZ = location.getZ();
+		double radiusSquared = radius * radius;
+
+		List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
+		this.forEachShopkeeperInBox(world.getName(),
+				floor(centerX - radius), floor(centerY - radius), floor(centerZ - radius),
+				floor(centerX + radius), floor(centerY + radius), floor(centerZ + radius),
+				(shopkeeper) -> {
+					// distance to the block's center:
+					double dx = (shopkeeper.getX() + 0.5D) - centerX;
+					double dy = (shopkeeper.getY() + 0.5D) - centerY;
+					double dz = (shopkeeper.getZ() + 0.5D) - centerZ;
+					if ((dx * dx + dy * dy + dz * dz) <= radiusSquared) {
+						shopkeepers.add(shopkeeper);
+					}
+				});
+		return shopkeepers;
+	}
+
+	private static int floor(double value) {
+		int intValue = (int) value;
+		return (value < intValue) ? intValue - 1 : intValue;
+	}
+
+	@Override
+	public List<AbstractShopkeeper> getShopkeepersInBox(String worldName, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
+		this.forEachShopkeeperInBox(worldName, minX, minY, minZ, maxX, maxY, maxZ, shopkeepers::add);
+		return shopkeepers;
+	}
+
+	/**
+	 * Passes all shopkeepers located inside the specified box of block coordinates (inclusive bounds) to the given
+	 * consumer.
+	 * <p>
+	 * This only visits the chunk entries overlapping the box, or, if the box covers more chunks than there are chunks
+	 * with shopkeepers in the world, all chunk entries of the world. No intermediate collections are created. The
+	 * registry must not be modified by the consumer.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param minX
+	 *            the minimum block x coordinate
+	 * @param minY
+	 *            the minimum block y coordinate
+	 * @param minZ
+	 *            the minimum block z coordinate
+	 * @param maxX
+	 *            the maximum block x coordinate
+	 * @param maxY
+	 *            the maximum block y coordinate
+	 * @param maxZ
+	 *            the maximum block z coordinate
+	 * @param consumer
+	 *            the consumer
+	 */
+	public void forEachShopkeeperInBox(	String worldName, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+										Consumer<? super AbstractShopkeeper> consumer) {
+		Validate.notNull(worldName, "World name is null!");
+		Validate.notNull(consumer, "Consumer is null!");
+		Validate.isTrue(minX <= maxX && minY <= maxY && minZ <= maxZ, "Min coordinates cannot be greater than the max coordinates!");
+		WorldShopkeepers worldEntry = shopkeepersByWorld.get(worldName);
+		if (worldEntry == null) return; // there are no shopkeepers in this world
+
+		int minChunkX = (minX >> 4);
+		int minChunkZ = (minZ >> 4);
+		int maxChunkX = (maxX >> 4);
+		int maxChunkZ = (maxZ >> 4);
+		long boxChunks = ((long) (maxChunkX - minChunkX + 1)) * (maxChunkZ - minChunkZ + 1);
+		if (boxChunks > worldEntry.shopkeepersByChunk.size()) {
+			// large box: check all chunks with shopkeepers instead
+			for (ChunkShopkeepers chunkEntry : worldEntry.shopkeepersByChunk.values()) {
+				ChunkCoords chunkCoords = chunkEntry.chunkCoords;
+				int chunkX = chunkCoords.getChunkX();
+				int chunkZ = chunkCoords.getChunkZ();
+				if (chunkX < minChunkX || chunkX > maxChunkX || chunkZ < minChunkZ || chunkZ > maxChunkZ) continue;
+				forEachShopkeeperInBox(chunkEntry, minX, minY, minZ, maxX, maxY, maxZ, consumer);
+			}
+		} else {
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; ++chunkX) {
+				for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+					ChunkShopkeepers chunkEntry = worldEntry.shopkeepersByChunk.get(ChunkKeys.of(chunkX, chunkZ));
+					if (chunkEntry == null) continue;
+					forEachShopkeeperInBox(chunkEntry, minX, minY, minZ, maxX, maxY, maxZ, consumer);
+				}
+			}
+		}
+	}
+
+	private static void forEachShopkeeperInBox(	ChunkShopkeepers chunkEntry, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+												Consumer<? super AbstractShopkeeper> consumer) {
+		// index based iteration: avoids creating an iterator for every chunk
+		List<AbstractShopkeeper> shopkeepers = chunkEntry.shopkeepers;
+		for (int i = 0, size = shopkeepers.size(); i < size; ++i) {
+			AbstractShopkeeper shopkeeper = shopkeepers.get(i);
+			int x = shopkeeper.getX();
+			int y = shopkeeper.getY();
+			int z = shopkeeper.getZ();
+			if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+				consumer.accept(shopkeeper);
+			}
+		}
+	}
+
 	// BY SHOP OBJECT
 
 	@Override
@@ -1170,4 +1777,54 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	public boolean isShopkeeper(Block block) {
 		return (this.getShopkeeperByBlock(block) != null);
 	}
+
+	// SNAPSHOTS
+
+	// gets called when a shopkeeper got added or removed, or when its data has changed (marked dirty)
+	void onShopkeeperChanged(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		if (!pendingSnapshotUpdates.add(shopkeeper)) return; // update already pending
+		if (snapshotPublishTask == null && plugin.isEnabled()) {
+			snapshotPublishTask = Bukkit.getScheduler().runTask(plugin, this::publishSnapshot);
+		}
+	}
+
+	private void publishSnapshot() {
+		if (snapshotPublishTask != null) {
+			snapshotPublishTask.cancel();
+			snapshotPublishTask = null;
+		}
+		if (pendingSnapshotUpdates.isEmpty()) return;
+
+		// Only the snapshots of changed shopkeepers get recreated. The maps of the previously published snapshot stay
+		// unaffected and share all unchanged entries with the new maps:
+		for (AbstractShopkeeper shopkeeper : pendingSnapshotUpdates) {
+			SKShopkeeperSnapshot previousSnapshot = shopkeeperSnapshots.get(shopkeeper.getId());
+			if (shopkeeper.isValid()) {
+				SKShopkeeperSnapshot snapshot = new SKShopkeeperSnapshot(shopkeeper);
+				if (previousSnapshot != null && !previousSnapshot.getUniqueId().equals(snapshot.getUniqueId())) {
+					// the id was previously used by another shopkeeper:
+					shopkeeperSnapshotsByUniqueId = shopkeeperSnapshotsByUniqueId.without(previousSnapshot.getUniqueId());
+				}
+				shopkeeperSnapshots = shopkeeperSnapshots.with(shopkeeper.getId(), snapshot);
+				shopkeeperSnapshotsByUniqueId = shopkeeperSnapshotsByUniqueId.with(snapshot.getUniqueId(), snapshot);
+			} else {
+				// the id might already be used by another shopkeeper:
+				if (previousSnapshot != null && previousSnapshot.getUniqueId().equals(shopkeeper.getUniqueId())) {
+					shopkeeperSnapshots = shopkeeperSnapshots.without(shopkeeper.getId());
+					shopkeeperSnapshotsByUniqueId = shopkeeperSnapshotsByUniqueId.without(shopkeeper.getUniqueId());
+				}
+			}
+		}
+		pendingSnapshotUpdates.clear();
+		publishedSnapshot = new SKShopkeeperRegistrySnapshot(publishedSnapshot.getVersion() + 1, shopkeeperSnapshots, shopkeeperSnapshotsByUniqueId);
+	}
+
+	@Override
+	public SKShopkeeperRegistrySnapshot getSnapshot() {
+		if (Bukkit.isPrimaryThread()) {
+			this.publishSnapshot(); // publish pending changes, if any
+		}
+		return publishedSnapshot;
+	}
 }
@@ -0,0 +1,48 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistrySnapshot;
+import com.nisovin.shopkeepers.util.PersistentHashMap;
+
+public final class SKShopkeeperRegistrySnapshot implements ShopkeeperRegistrySnapshot {
+
+	static final SKShopkeeperRegistrySnapshot EMPTY = new SKShopkeeperRegistrySnapshot(0L, PersistentHashMap.empty(), PersistentHashMap.empty());
+
+	private final long version;
+	private final PersistentHashMap<Integer, SKShopkeeperSnapshot> shopkeepersById;
+	private final PersistentHashMap<UUID, SKShopkeeperSnapshot> shopkeepersByUniqueId;
+	private final Collection<SKShopkeeperSnapshot> shopkeepersView;
+
+	// the maps are immutable and shared with the previous and subsequent snapshots
+	SKShopkeeperRegistrySnapshot(	long version, PersistentHashMap<Integer, SKShopkeeperSnapshot> shopkeepersById,
+									PersistentHashMap<UUID, SKShopkeeperSnapshot> shopkeepersByUniqueId) {
+		this.version = version;
+		this.shopkeepersById = shopkeepersById;
+		this.shopkeepersByUniqueId = shopkeepersByUniqueId;
+		this.shopkeepersView = Collections.unmodifiableCollection(shopkeepersById.values());
+	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public Collection<SKShopkeeperSnapshot> getShopkeepers() {
+		return shopkeepersView;
+	}
+
+	@Override
+	public SKShopkeeperSnapshot getShopkeeperById(int shopkeeperId) {
+		return shopkeepersById.get(shopkeeperId);
+	}
+
+	@Override
+	public SKShopkeeperSnapshot getShopkeeperByUniqueId(UUID shopkeeperUniqueId) {
+		if (shopkeeperUniqueId == null) return null;
+		return shopkeepersByUniqueId.get(shopkeeperUniqueId);
+	}
+}
@@ -0,0 +1,125 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.UUID;
+
+import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperSnapshot;
+import com.nisovin.shopkeepers.api.shopkeeper.admin.regular.RegularAdminShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.book.BookPlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.buy.BuyingPlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.sell.SellingPlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.player.trade.TradingPlayerShopkeeper;
+
+public final class SKShopkeeperSnapshot implements ShopkeeperSnapshot {
+
+	private final int id;
+	private final UUID uniqueId;
+	private final String shopTypeId;
+	private final String shopObjectTypeId;
+	private final UUID ownerUUID; // null if not a player shop
+	private final String ownerName; // null if not a player shop
+	private final String worldName; // null for virtual shops
+	private final int x;
+	private final int y;
+	private final int z;
+	private final String name;
+	private final int offersCount;
+
+	// has to be called on the main thread
+	SKShopkeeperSnapshot(AbstractShopkeeper shopkeeper) {
+		this.id = shopkeeper.getId();
+		this.uniqueId = shopkeeper.getUniqueId();
+		this.shopTypeId = shopkeeper.getType().getIdentifier();
+		this.shopObjectTypeId = shopkeeper.getShopObject().getType().getIdentifier();
+		if (shopkeeper instanceof PlayerShopkeeper) {
+			PlayerShopkeeper playerShopkeeper = (PlayerShopkeeper) shopkeeper;
+			this.ownerUUID = playerShopkeeper.getOwnerUUID();
+			this.ownerName = playerShopkeeper.getOwnerName();
+		} else {
+			this.ownerUUID = null;
+			this.ownerName = null;
+		}
+		this.worldName = shopkeeper.getWorldName();
+		this.x = shopkeeper.getX();
+		this.y = shopkeeper.getY();
+		this.z = shopkeeper.getZ();
+		this.name = shopkeeper.getName();
+		this.offersCount = getOffersCount(shopkeeper);
+	}
+
+	private static int getOffersCount(AbstractShopkeeper shopkeeper) {
+		if (shopkeeper instanceof RegularAdminShopkeeper) {
+			return ((RegularAdminShopkeeper) shopkeeper).getOffers().size();
+		} else if (shopkeeper instanceof SellingPlayerShopkeeper) {
+			return ((SellingPlayerShopkeeper) shopkeeper).getOffers().size();
+		} else if (shopkeeper instanceof BuyingPlayerShopkeeper) {
+			return ((BuyingPlayerShopkeeper) shopkeeper).getOffers().size();
+		} else if (shopkeeper instanceof TradingPlayerShopkeeper) {
+			return ((TradingPlayerShopkeeper) shopkeeper).getOffers().size();
+		} else if (shopkeeper instanceof BookPlayerShopkeeper) {
+			return ((BookPlayerShopkeeper) shopkeeper).getOffers().size();
+		} else {
+			return 0; // unknown shop type
+		}
+	}
+
+	@Override
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public UUID getUniqueId() {
+		return uniqueId;
+	}
+
+	@Override
+	public String getShopTypeId() {
+		return shopTypeId;
+	}
+
+	@Override
+	public String getShopObjectTypeId() {
+		return shopObjectTypeId;
+	}
+
+	@Override
+	public UUID getOwnerUUID() {
+		return ownerUUID;
+	}
+
+	@Override
+	public String getOwnerName() {
+		return ownerName;
+	}
+
+	@Override
+	public String getWorldName() {
+		return worldName;
+	}
+
+	@Override
+	public int getX() {
+		return x;
+	}
+
+	@Override
+	public int getY() {
+		return y;
+	}
+
+	@Override
+	public int getZ() {
+		return z;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public int getOffersCount() {
+		return offersCount;
+	}
+}
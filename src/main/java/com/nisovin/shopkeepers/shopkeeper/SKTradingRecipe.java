@@ -3,6 +3,7 @@ package com.nisovin.shopkeepers.shopkeeper;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.util.ItemInterner;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Validate;
 
@@ -39,7 +40,28 @@ public class SKTradingRecipe extends TradingRecipeDraft implements TradingRecipe
 	 *            <code>true</code> if the recipe is out of stock
 	 */
 	public SKTradingRecipe(ItemStack resultItem, ItemStack item1, ItemStack item2, boolean outOfStock) {
-		super(ItemUtils.cloneOrNullIfEmpty(resultItem), ItemUtils.cloneOrNullIfEmpty(item1), ItemUtils.cloneOrNullIfEmpty(item2));
+		this(resultItem, item1, item2, outOfStock, false);
+	}
+
+	/**
+	 * Creates a TradingRecipe.
+	 * 
+	 * @param resultItem
+	 *            the result item, not empty
+	 * @param item1
+	 *            the first buy item, not empty
+	 * @param item2
+	 *            the second buy item, can be empty
+	 * @param outOfStock
+	 *            <code>true</code> if the recipe is out of stock
+	 * @param internItems
+	 *            <code>true</code> to use interned items (see {@link ItemInterner}) instead of copies of the given
+	 *            items
+	 */
+	protected SKTradingRecipe(ItemStack resultItem, ItemStack item1, ItemStack item2, boolean outOfStock, boolean internItems) {
+		super(	internItems ? ItemInterner.intern(resultItem) : ItemUtils.cloneOrNullIfEmpty(resultItem),
+				internItems ? ItemInterner.intern(item1) : ItemUtils.cloneOrNullIfEmpty(item1),
+				internItems ? ItemInterner.intern(item2) : ItemUtils.cloneOrNullIfEmpty(item2));
 		Validate.isTrue(!ItemUtils.isEmpty(resultItem), "Result item cannot be empty!");
 		Validate.isTrue(!ItemUtils.isEmpty(item1), "Item1 cannot be empty!");
 		this.outOfStock = outOfStock;
@@ -19,6 +19,7 @@ import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.admin.AbstractAdminShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.offers.SKTradingOffer;
+import com.nisovin.shopkeepers.util.ItemDictionary;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.Validate;
 
@@ -66,7 +67,8 @@ public class SKRegularAdminShopkeeper extends AbstractAdminShopkeeper implements
 	protected void loadFromSaveData(ConfigurationSection configSection) throws ShopkeeperCreateException {
 		super.loadFromSaveData(configSection);
 		// load offers:
-		List<SKTradingOffer> offers = SKTradingOffer.loadFromConfig(configSection, "recipes", "Shopkeeper " + this.getId());
+		ItemDictionary offerItems = ItemDictionary.load(configSection, "offerItems");
+		List<SKTradingOffer> offers = SKTradingOffer.loadFromConfig(configSection, "recipes", offerItems, "Shopkeeper " + this.getId());
 		List<SKTradingOffer> migratedOffers = SKTradingOffer.migrateItems(offers, "Shopkeeper " + this.getId());
 		if (offers != migratedOffers) {
 			Log.debug(Settings.DebugOptions.itemMigrations,
@@ -81,7 +83,9 @@ public class SKRegularAdminShopkeeper extends AbstractAdminShopkeeper implements
 	public void save(ConfigurationSection configSection) {
 		super.save(configSection);
 		// save offers:
-		SKTradingOffer.saveToConfig(configSection, "recipes", this.getOffers());
+		ItemDictionary offerItems = new ItemDictionary();
+		SKTradingOffer.saveToConfig(configSection, "recipes", this.getOffers(), offerItems);
+		offerItems.save(configSection, "offerItems");
 	}
 
 	@Override
@@ -8,6 +8,8 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.api.shopkeeper.offers.PriceOffer;
+import com.nisovin.shopkeepers.util.ItemDictionary;
+import com.nisovin.shopkeepers.util.ItemInterner;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.StringUtils;
@@ -15,13 +17,13 @@ import com.nisovin.shopkeepers.util.Validate;
 
 public class SKPriceOffer implements PriceOffer {
 
-	private final ItemStack item; // not null/empty
+	private final ItemStack item; // not null/empty, interned
 	private final int price; // > 0
 
 	public SKPriceOffer(ItemStack item, int price) {
 		Validate.isTrue(!ItemUtils.isEmpty(item), "Item cannot be empty!");
 		Validate.isTrue(price > 0, "Price has to be positive!");
-		this.item = item.clone();
+		this.item = ItemInterner.intern(item);
 		this.price = price;
 	}
 
@@ -70,26 +72,28 @@ public class SKPriceOffer implements PriceOffer {
 	// STATIC UTILITIES
 	// //////////
 
-	public static void saveToConfig(ConfigurationSection config, String node, Collection<? extends PriceOffer> offers) {
+	// the items are stored in the given item dictionary and referenced by their index
+	public static void saveToConfig(ConfigurationSection config, String node, Collection<? extends PriceOffer> offers, ItemDictionary itemDictionary) {
 		ConfigurationSection offersSection = config.createSection(node);
 		int id = 1;
 		for (PriceOffer offer : offers) {
-			ItemStack item = offer.getItem(); // is a clone
+			// avoids copying the interned item:
+			ItemStack item = (offer instanceof SKPriceOffer) ? ((SKPriceOffer) offer).item : offer.getItem();
 			ConfigurationSection offerSection = offersSection.createSection(String.valueOf(id));
-			offerSection.set("item", item);
+			offerSection.set("item", itemDictionary.getIndex(item));
 			offerSection.set("price", offer.getPrice());
 			id++;
 		}
 	}
 
-	public static List<SKPriceOffer> loadFromConfig(ConfigurationSection config, String node, String errorContext) {
+	public static List<SKPriceOffer> loadFromConfig(ConfigurationSection config, String node, ItemDictionary itemDictionary, String errorContext) {
 		List<SKPriceOffer> offers = new ArrayList<>();
 		ConfigurationSection offersSection = config.getConfigurationSection(node);
 		if (offersSection != null) {
 			for (String id : offersSection.getKeys(false)) {
 				ConfigurationSection offerSection = offersSection.getConfigurationSection(id);
 				if (offerSection == null) continue; // invalid offer: not a section
-				ItemStack item = offerSection.getItemStack("item");
+				ItemStack item = itemDictionary.getItem(offerSection, "item");
 				int price = offerSection.getInt("price");
 				if (ItemUtils.isEmpty(item)) {
 					// invalid offer
@@ -10,15 +10,17 @@ import org.bukkit.inventory.ItemStack;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.offers.TradingOffer;
 import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
+import com.nisovin.shopkeepers.util.ItemDictionary;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.StringUtils;
 
 // shares its implementation with TradingRecipe, but always reports to not be out of stock
+// the items are interned, since offers are usually long-lived and many offers use the same items
 public class SKTradingOffer extends SKTradingRecipe implements TradingOffer {
 
 	public SKTradingOffer(ItemStack resultItem, ItemStack item1, ItemStack item2) {
-		super(resultItem, item1, item2);
+		super(resultItem, item1, item2, false, true);
 	}
 
 	@Override
@@ -61,24 +63,36 @@ public class SKTradingOffer extends SKTradingRecipe implements TradingOffer {
 	// STATIC UTILITIES
 	// //////////
 
-	public static void saveToConfig(ConfigurationSection config, String node, Collection<? extends TradingOffer> offers) {
+	// the items are stored in the given item dictionary and referenced by their index
+	public static void saveToConfig(ConfigurationSection config, String node, Collection<? extends TradingOffer> offers, ItemDictionary itemDictionary) {
 		ConfigurationSection offersSection = config.createSection(node);
 		int id = 1;
 		for (TradingOffer offer : offers) {
-			// note: the items are clones
-			ItemStack item1 = offer.getItem1();
-			ItemStack item2 = offer.getItem2();
-			ItemStack resultItem = offer.getResultItem();
+			ItemStack item1;
+			ItemStack item2;
+			ItemStack resultItem;
+			if (offer instanceof SKTradingOffer) {
+				// avoids copying the interned items:
+				SKTradingOffer skOffer = (SKTradingOffer) offer;
+				item1 = skOffer.item1;
+				item2 = skOffer.item2;
+				resultItem = skOffer.resultItem;
+			} else {
+				// note: the items are clones
+				item1 = offer.getItem1();
+				item2 = offer.getItem2();
+				resultItem = offer.getResultItem();
+			}
 
 			ConfigurationSection offerSection = offersSection.createSection(String.valueOf(id));
-			offerSection.set("item1", item1);
-			offerSection.set("item2", item2);
-			offerSection.set("resultItem", resultItem);
+			offerSection.set("item1", itemDictionary.getIndex(item1));
+			offerSection.set("item2", ItemUtils.isEmpty(item2) ? null : itemDictionary.getIndex(item2));
+			offerSection.set("resultItem", itemDictionary.getIndex(resultItem));
 			id++;
 		}
 	}
 
-	public static List<SKTradingOffer> loadFromConfig(ConfigurationSection config, String node, String errorContext) {
+	public static List<SKTradingOffer> loadFromConfig(ConfigurationSection config, String node, ItemDictionary itemDictionary, String errorContext) {
 		List<SKTradingOffer> offers = new ArrayList<>();
 		ConfigurationSection offersSection = config.getConfigurationSection(node);
 		if (offersSection != null) {
@@ -89,9 +103,9 @@ public class SKTradingOffer extends SKTradingRecipe implements TradingOffer {
 					Log.warning(StringUtils.prefix(errorContext, ": ", "Invalid trading offer section for " + key));
 					continue;
 				}
-				ItemStack resultItem = offerSection.getItemStack("resultItem");
-				ItemStack item1 = offerSection.getItemStack("item1");
-				ItemStack item2 = offerSection.getItemStack("item2");
+				ItemStack resultItem = itemDictionary.getItem(offerSection, "resultItem");
+				ItemStack item1 = itemDictionary.getItem(offerSection, "item1");
+				ItemStack item2 = itemDictionary.getItem(offerSection, "item2");
 				if (ItemUtils.isEmpty(resultItem) || ItemUtils.isEmpty(item1)) {
 					// invalid offer
 					Log.warning(StringUtils.prefix(errorContext, ": ", "Invalid trading offer for " + key + ": item1 or resultItem is empty"));
@@ -209,8 +209,13 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 		Validate.notNull(ownerUUID, "Owner uuid is null!");
 		Validate.notEmpty(ownerName, "Owner name is empty!");
 		this.markDirty();
+		UUID oldOwnerUUID = this.ownerUUID;
 		this.ownerUUID = ownerUUID;
 		this.ownerName = ownerName;
+		if (this.isValid()) {
+			// update owner index:
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onShopkeeperOwnerChanged(this, oldOwnerUUID);
+		}
 		// TODO do this in a more abstract way
 		if (!Settings.allowRenamingOfPlayerNpcShops && this.getShopObject().getType() == DefaultShopObjectTypes.CITIZEN()) {
 			// update the npc's name:
@@ -0,0 +1,219 @@
+package com.nisovin.shopkeepers.shopkeeper.player;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
+import com.nisovin.shopkeepers.storage.OwnerLastSeenCache;
+import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.SchedulerUtils;
+
+/**
+ * Removes the shopkeepers of players that have been inactive for a configurable number of days.
+ * <p>
+ * Instead of looking up all shop owners at once, the owners get checked incrementally in small batches. The last time
+ * an owner was seen online is tracked via an {@link OwnerLastSeenCache} that gets updated when owners join or quit the
+ * server and that gets persisted together with the shopkeepers data. Only owners without cached data get looked up via
+ * Bukkit's offline player data (asynchronously, in small batches).
+ */
+public class InactivePlayerShops {
+
+	private static final long TASK_PERIOD_TICKS = 200L; // 10 seconds
+	// the number of owners to check per task run:
+	private static final int OWNERS_PER_RUN = 100;
+	// the max number of owners to look up via their offline player data per task run:
+	private static final int OWNER_LOOKUPS_PER_RUN = 10;
+	private static final long MIN_CYCLE_INTERVAL_MILLIS = 60 * 60 * 1000L; // 1 hour
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	private final SKShopkeepersPlugin plugin;
+	// the owners that still need to be checked during the current cycle:
+	private final Deque<UUID> pendingOwners = new ArrayDeque<>();
+	private long lastCycleStart = 0L;
+	private boolean lookupInProgress = false;
+	private BukkitTask sweeperTask = null;
+
+	public InactivePlayerShops(SKShopkeepersPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	public void onEnable() {
+		if (Settings.playerShopkeeperInactiveDays <= 0) return;
+		sweeperTask = Bukkit.getScheduler().runTaskTimer(plugin, this::sweep, TASK_PERIOD_TICKS, TASK_PERIOD_TICKS);
+	}
+
+	public void onDisable() {
+		if (sweeperTask != null) {
+			sweeperTask.cancel();
+			sweeperTask = null;
+		}
+		pendingOwners.clear();
+		lastCycleStart = 0L;
+		lookupInProgress = false;
+	}
+
+	private SKShopkeeperRegistry getShopkeeperRegistry() {
+		return plugin.getShopkeeperRegistry();
+	}
+
+	private SKShopkeeperStorage getShopkeeperStorage() {
+		return plugin.getShopkeeperStorage();
+	}
+
+	private OwnerLastSeenCache getOwnerLastSeenCache() {
+		return this.getShopkeeperStorage().getOwnerLastSeenCache();
+	}
+
+	// PLAYER JOINING AND QUITTING
+
+	public void onPlayerJoin(Player player) {
+		this.updateLastSeen(player);
+	}
+
+	public void onPlayerQuit(Player player) {
+		this.updateLastSeen(player);
+	}
+
+	private void updateLastSeen(Player player) {
+		UUID playerUUID = player.getUniqueId();
+		// only keep track of players that own shops:
+		if (this.getShopkeeperRegistry().getPlayerShopkeepersByOwner(playerUUID).isEmpty()) return;
+		this.getOwnerLastSeenCache().setLastSeen(playerUUID, System.currentTimeMillis());
+		// the data gets persisted with the next save:
+		this.getShopkeeperStorage().saveDelayed();
+	}
+
+	// SWEEPING
+
+	private void sweep() {
+		if (pendingOwners.isEmpty()) {
+			long now = System.currentTimeMillis();
+			if (now - lastCycleStart < MIN_CYCLE_INTERVAL_MILLIS) return;
+			this.startCycle();
+			lastCycleStart = now;
+		}
+
+		long now = System.currentTimeMillis();
+		OwnerLastSeenCache lastSeenCache = this.getOwnerLastSeenCache();
+		List<UUID> inactiveOwners = new ArrayList<>();
+		List<UUID> unknownOwners = new ArrayList<>();
+		int count = 0;
+		while (count < OWNERS_PER_RUN && !pendingOwners.isEmpty()) {
+			UUID ownerUUID = pendingOwners.peek();
+			Long lastSeen = lastSeenCache.getLastSeen(ownerUUID);
+			if (lastSeen == null && Bukkit.getPlayer(ownerUUID) == null) {
+				if (lookupInProgress || unknownOwners.size() >= OWNER_LOOKUPS_PER_RUN) {
+					// continue with this owner during the next run:
+					break;
+				}
+				unknownOwners.add(ownerUUID);
+			} else if (lastSeen != null && this.isInactive(lastSeen, now) && Bukkit.getPlayer(ownerUUID) == null) {
+				inactiveOwners.add(ownerUUID);
+			}
+			pendingOwners.poll();
+			count++;
+		}
+
+		this.removeShopsOfInactiveOwners(inactiveOwners);
+
+		if (!unknownOwners.isEmpty()) {
+			this.lookupLastPlayed(unknownOwners);
+		}
+	}
+
+	private void startCycle() {
+		assert pendingOwners.isEmpty();
+		SKShopkeeperRegistry shopkeeperRegistry = this.getShopkeeperRegistry();
+		pendingOwners.addAll(shopkeeperRegistry.getPlayerShopkeeperOwners());
+
+		// cleanup the data of owners that no longer own any shops:
+		OwnerLastSeenCache lastSeenCache = this.getOwnerLastSeenCache();
+		boolean dirty = false;
+		for (UUID ownerUUID : new ArrayList<>(lastSeenCache.getOwners())) {
+			if (shopkeeperRegistry.getPlayerShopkeepersByOwner(ownerUUID).isEmpty()) {
+				lastSeenCache.removeLastSeen(ownerUUID);
+				dirty = true;
+			}
+		}
+		if (dirty) {
+			this.getShopkeeperStorage().saveDelayed();
+		}
+	}
+
+	private boolean isInactive(long lastSeen, long now) {
+		return ((now - lastSeen) / MILLIS_PER_DAY > Settings.playerShopkeeperInactiveDays);
+	}
+
+	// looks up the offline player data for owners without cached last seen data
+	private void lookupLastPlayed(List<UUID> ownerUUIDs) {
+		assert !lookupInProgress && !ownerUUIDs.isEmpty();
+		lookupInProgress = true;
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+			Map<UUID, Long> lastPlayedByOwner = new HashMap<>();
+			for (UUID ownerUUID : ownerUUIDs) {
+				OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(ownerUUID);
+				long lastPlayed = offlinePlayer.hasPlayedBefore() ? offlinePlayer.getLastPlayed() : 0L;
+				lastPlayedByOwner.put(ownerUUID, lastPlayed);
+			}
+
+			// continue in main thread:
+			SchedulerUtils.runTaskOrOmit(plugin, () -> {
+				lookupInProgress = false;
+				long now = System.currentTimeMillis();
+				OwnerLastSeenCache lastSeenCache = this.getOwnerLastSeenCache();
+				List<UUID> inactiveOwners = new ArrayList<>();
+				for (Map.Entry<UUID, Long> entry : lastPlayedByOwner.entrySet()) {
+					UUID ownerUUID = entry.getKey();
+					// the owner might have joined in the meantime:
+					if (lastSeenCache.getLastSeen(ownerUUID) != null) continue;
+					long lastPlayed = entry.getValue();
+					if (lastPlayed <= 0L) {
+						// no data available: we start tracking the owner from now on
+						lastPlayed = now;
+					}
+					lastSeenCache.setLastSeen(ownerUUID, lastPlayed);
+					if (this.isInactive(lastPlayed, now) && Bukkit.getPlayer(ownerUUID) == null) {
+						inactiveOwners.add(ownerUUID);
+					}
+				}
+				this.removeShopsOfInactiveOwners(inactiveOwners);
+				// persist the cached data with the next save:
+				this.getShopkeeperStorage().saveDelayed();
+			});
+		});
+	}
+
+	private void removeShopsOfInactiveOwners(List<UUID> inactiveOwners) {
+		if (inactiveOwners.isEmpty()) return;
+		SKShopkeeperRegistry shopkeeperRegistry = this.getShopkeeperRegistry();
+		OwnerLastSeenCache lastSeenCache = this.getOwnerLastSeenCache();
+		List<AbstractPlayerShopkeeper> shopkeepers = new ArrayList<>();
+		for (UUID ownerUUID : inactiveOwners) {
+			for (AbstractPlayerShopkeeper shopkeeper : shopkeeperRegistry.getPlayerShopkeepersByOwner(ownerUUID)) {
+				shopkeepers.add(shopkeeper);
+				Log.info("Shopkeeper " + shopkeeper.getIdString() + " at " + shopkeeper.getPositionString()
+						+ " owned by " + shopkeeper.getOwnerString() + " has been removed for owner inactivity.");
+			}
+			lastSeenCache.removeLastSeen(ownerUUID);
+		}
+
+		// delete all shopkeepers at once:
+		if (shopkeeperRegistry.deleteShopkeepers(shopkeepers) > 0) {
+			// save:
+			this.getShopkeeperStorage().save();
+		}
+	}
+}
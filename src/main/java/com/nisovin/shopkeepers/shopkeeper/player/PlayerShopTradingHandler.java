@@ -21,6 +21,10 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 	// state related to the currently handled trade:
 	protected Inventory chestInventory = null;
 	protected ItemStack[] newChestContents = null;
+	// bulk trading: the chest contents before the currently handled trade, and whether there are chest content changes
+	// of previous trades that still need to be applied:
+	private ItemStack[] previousChestContents = null;
+	private boolean pendingChestContents = false;
 
 	protected PlayerShopTradingHandler(AbstractPlayerShopkeeper shopkeeper) {
 		super(SKDefaultUITypes.TRADING(), shopkeeper);
@@ -78,8 +82,16 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 		}
 
 		// setup common state information for handling this trade:
-		this.chestInventory = ((Chest) chest.getState()).getInventory();
-		this.newChestContents = chestInventory.getContents();
+		if (this.isBulkTrading() && pendingChestContents) {
+			// continue with the not yet applied chest contents of the previous trades:
+			assert chestInventory != null && newChestContents != null;
+			// the trade handling only replaces (but never modifies) the contained item stacks, so a shallow copy is
+			// sufficient to be able to restore the previous contents in case this trade gets aborted:
+			this.previousChestContents = newChestContents.clone();
+		} else {
+			this.chestInventory = ((Chest) chest.getState()).getInventory();
+			this.newChestContents = chestInventory.getContents();
+		}
 
 		return true;
 	}
@@ -88,6 +100,13 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 	protected void onTradeApplied(TradeData tradeData) {
 		super.onTradeApplied(tradeData);
 
+		if (this.isBulkTrading()) {
+			// the chest content changes get applied once the bulk trading is finished:
+			pendingChestContents = (chestInventory != null && newChestContents != null);
+			previousChestContents = null;
+			return;
+		}
+
 		// apply chest content changes:
 		if (chestInventory != null && newChestContents != null) {
 			chestInventory.setContents(newChestContents);
@@ -100,11 +119,34 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 	@Override
 	protected void onTradeAborted(TradeData tradeData) {
 		super.onTradeAborted(tradeData);
+		if (pendingChestContents) {
+			// discard the changes of the aborted trade, but keep the changes of the previous trades:
+			if (previousChestContents != null) {
+				newChestContents = previousChestContents;
+				previousChestContents = null;
+			}
+			return;
+		}
+		this.resetTradeState();
+	}
+
+	@Override
+	protected void onBulkTradingFinished(Player player) {
+		super.onBulkTradingFinished(player);
+
+		// apply the chest content changes of all trades at once:
+		if (pendingChestContents) {
+			chestInventory.setContents(newChestContents);
+		}
+
+		// reset trade related state information:
 		this.resetTradeState();
 	}
 
 	protected void resetTradeState() {
 		chestInventory = null;
 		newChestContents = null;
+		previousChestContents = null;
+		pendingChestContents = false;
 	}
 }
@@ -22,6 +22,7 @@ import com.nisovin.shopkeepers.shopkeeper.offers.SKPriceOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
 import com.nisovin.shopkeepers.util.Filter;
 import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemDictionary;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.Validate;
@@ -74,7 +75,8 @@ public class SKSellingPlayerShopkeeper extends AbstractPlayerShopkeeper implemen
 	protected void loadFromSaveData(ConfigurationSection configSection) throws ShopkeeperCreateException {
 		super.loadFromSaveData(configSection);
 		// load offers:
-		List<SKPriceOffer> offers = SKPriceOffer.loadFromConfig(configSection, "offers", "Shopkeeper " + this.getId());
+		ItemDictionary offerItems = ItemDictionary.load(configSection, "offerItems");
+		List<SKPriceOffer> offers = SKPriceOffer.loadFromConfig(configSection, "offers", offerItems, "Shopkeeper " + this.getId());
 		List<SKPriceOffer> migratedOffers = SKPriceOffer.migrateItems(offers, "Shopkeeper " + this.getId());
 		if (offers != migratedOffers) {
 			Log.debug(Settings.DebugOptions.itemMigrations,
@@ -89,7 +91,9 @@ public class SKSellingPlayerShopkeeper extends AbstractPlayerShopkeeper implemen
 	public void save(ConfigurationSection configSection) {
 		super.save(configSection);
 		// save offers:
-		SKPriceOffer.saveToConfig(configSection, "offers", this.getOffers());
+		ItemDictionary offerItems = new ItemDictionary();
+		SKPriceOffer.saveToConfig(configSection, "offers", this.getOffers(), offerItems);
+		offerItems.save(configSection, "offerItems");
 	}
 
 	@Override
@@ -21,6 +21,7 @@ import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.offers.SKTradingOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
 import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemDictionary;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.Validate;
@@ -67,7 +68,8 @@ public class SKTradingPlayerShopkeeper extends AbstractPlayerShopkeeper implemen
 	protected void loadFromSaveData(ConfigurationSection configSection) throws ShopkeeperCreateException {
 		super.loadFromSaveData(configSection);
 		// load offers:
-		List<SKTradingOffer> offers = SKTradingOffer.loadFromConfig(configSection, "offers", "Shopkeeper " + this.getId());
+		ItemDictionary offerItems = ItemDictionary.load(configSection, "offerItems");
+		List<SKTradingOffer> offers = SKTradingOffer.loadFromConfig(configSection, "offers", offerItems, "Shopkeeper " + this.getId());
 		List<SKTradingOffer> migratedOffers = SKTradingOffer.migrateItems(offers, "Shopkeeper " + this.getId());
 		if (offers != migratedOffers) {
 			Log.debug(Settings.DebugOptions.itemMigrations,
@@ -82,7 +84,9 @@ public class SKTradingPlayerShopkeeper extends AbstractPlayerShopkeeper implemen
 	public void save(ConfigurationSection configSection) {
 		super.save(configSection);
 		// save offers:
-		SKTradingOffer.saveToConfig(configSection, "offers", this.getOffers());
+		ItemDictionary offerItems = new ItemDictionary();
+		SKTradingOffer.saveToConfig(configSection, "offers", this.getOffers(), offerItems);
+		offerItems.save(configSection, "offerItems");
 	}
 
 	@Override
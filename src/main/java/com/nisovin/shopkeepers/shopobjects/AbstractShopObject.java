@@ -145,6 +145,15 @@ public abstract class AbstractShopObject implements ShopObject {
 	 */
 	public abstract boolean check();
 
+	/**
+	 * This gets called for active shop objects after the settings got reloaded.
+	 * <p>
+	 * Shop objects can apply changed settings here that affect them (ex. their nameplate or sign text), without having
+	 * to be respawned.
+	 */
+	public void onSettingsReloaded() {
+	}
+
 	// NAMING
 
 	@Override
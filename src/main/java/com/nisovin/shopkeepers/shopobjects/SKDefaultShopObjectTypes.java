@@ -25,6 +25,7 @@ public class SKDefaultShopObjectTypes implements DefaultShopObjectTypes {
 		shopObjectTypes.addAll(this.getLivingShopObjectTypes().getAll());
 		shopObjectTypes.add(this.getSignShopObjectType());
 		shopObjectTypes.add(this.getCitizensShopObjectType());
+		shopObjectTypes.add(plugin.getPacketShops().getPacketShopObjectType());
 		return shopObjectTypes;
 	}
 
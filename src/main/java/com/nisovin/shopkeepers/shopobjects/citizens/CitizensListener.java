@@ -5,20 +5,36 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 
+import net.citizensnpcs.api.event.NPCDespawnEvent;
 import net.citizensnpcs.api.event.NPCRemoveEvent;
 import net.citizensnpcs.api.event.NPCRemoveTraitEvent;
+import net.citizensnpcs.api.event.NPCSpawnEvent;
 import net.citizensnpcs.api.event.NPCTraitCommandAttachEvent;
 import net.citizensnpcs.api.npc.NPC;
 import net.citizensnpcs.api.trait.Trait;
 
 class CitizensListener implements Listener {
 
-	CitizensListener() {
+	private final CitizensShops citizensShops;
+
+	CitizensListener(CitizensShops citizensShops) {
+		this.citizensShops = citizensShops;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onNPCSpawned(NPCSpawnEvent event) {
+		citizensShops.onNPCSpawned(event.getNPC());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onNPCDespawned(NPCDespawnEvent event) {
+		citizensShops.onNPCDespawned(event.getNPC());
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	void onNPCRemoved(NPCRemoveEvent event) {
 		NPC npc = event.getNPC();
+		citizensShops.onNPCRemoved(npc);
 		if (npc.hasTrait(CitizensShopkeeperTrait.class)) {
 			CitizensShopkeeperTrait shopkeeperTrait = npc.getTrait(CitizensShopkeeperTrait.class);
 			shopkeeperTrait.onTraitDeletion();
@@ -1,8 +1,10 @@
 package com.nisovin.shopkeepers.shopobjects.citizens;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.bukkit.Bukkit;
@@ -17,6 +19,7 @@ import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
 import com.nisovin.shopkeepers.pluginhandlers.CitizensHandler;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.Log;
 
 import net.citizensnpcs.api.CitizensAPI;
@@ -30,10 +33,14 @@ public class CitizensShops {
 	private final SKCitizensShopObjectType citizensShopObjectType = new SKCitizensShopObjectType(this);
 	private final PluginListener pluginListener = new PluginListener(this);
 
-	private final CitizensListener citizensListener = new CitizensListener();
+	private final CitizensListener citizensListener = new CitizensListener(this);
 	private boolean citizensShopsEnabled = false;
 	private TraitInfo shopkeeperTrait = null;
 
+	// entity id -> npc unique id, for all currently spawned npcs:
+	// avoids having to query the citizens npc registry when looking up the npcs of entities
+	private final Map<Integer, UUID> npcUniqueIdsByEntityId = new HashMap<>();
+
 	public CitizensShops(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
 	}
@@ -80,6 +87,11 @@ public class CitizensShops {
 		// register citizens listener:
 		Bukkit.getPluginManager().registerEvents(citizensListener, plugin);
 
+		// index the entities of already spawned npcs:
+		for (NPC npc : CitizensAPI.getNPCRegistry()) {
+			this.onNPCSpawned(npc);
+		}
+
 		// delayed to run after shopkeepers were loaded:
 		Bukkit.getScheduler().runTaskLater(plugin, () -> {
 			// run legacy id conversion: // TODO remove again at some point
@@ -107,6 +119,14 @@ public class CitizensShops {
 		// unregister citizens listener:
 		HandlerList.unregisterAll(citizensListener);
 
+		// clear cached npcs:
+		npcUniqueIdsByEntityId.clear();
+		for (Shopkeeper shopkeeper : plugin.getShopkeeperRegistry().getAllShopkeepers()) {
+			if (shopkeeper.getShopObject() instanceof SKCitizensShopObject) {
+				((SKCitizensShopObject) shopkeeper.getShopObject()).clearCachedNPC();
+			}
+		}
+
 		// disabled:
 		citizensShopsEnabled = false;
 	}
@@ -145,11 +165,41 @@ public class CitizensShops {
 
 	// returns null if this entity is no citizens npc (or citizens or citizens shops are disabled)
 	public UUID getNPCUniqueId(Entity entity) {
-		if (this.isEnabled()) {
-			NPC npc = CitizensAPI.getNPCRegistry().getNPC(entity);
-			return (npc != null ? npc.getUniqueId() : null);
-		} else {
-			return null;
+		if (!this.isEnabled()) return null;
+		UUID npcUniqueId = npcUniqueIdsByEntityId.get(entity.getEntityId());
+		if (npcUniqueId != null) return npcUniqueId;
+
+		// only query the npc registry for entities that are marked as npcs by citizens, in case we missed the spawning
+		// of an npc:
+		if (!entity.hasMetadata("NPC")) return null;
+		NPC npc = CitizensAPI.getNPCRegistry().getNPC(entity);
+		if (npc == null) return null;
+		npcUniqueIdsByEntityId.put(entity.getEntityId(), npc.getUniqueId());
+		return npc.getUniqueId();
+	}
+
+	void onNPCSpawned(NPC npc) {
+		Entity entity = npc.getEntity();
+		if (entity == null) return; // not spawned
+		npcUniqueIdsByEntityId.put(entity.getEntityId(), npc.getUniqueId());
+	}
+
+	void onNPCDespawned(NPC npc) {
+		Entity entity = npc.getEntity();
+		if (entity == null) return; // not spawned
+		npcUniqueIdsByEntityId.remove(entity.getEntityId());
+	}
+
+	void onNPCRemoved(NPC npc) {
+		this.onNPCDespawned(npc);
+		// Clear the cached npc of the corresponding shop object, regardless of whether the shopkeeper is currently
+		// active (the shop object might have cached the npc even if the npc is not spawned currently):
+		UUID npcUniqueId = npc.getUniqueId();
+		for (Shopkeeper shopkeeper : plugin.getShopkeeperRegistry().getShopkeepersByObjectType(citizensShopObjectType)) {
+			SKCitizensShopObject citizensShop = (SKCitizensShopObject) shopkeeper.getShopObject();
+			if (npcUniqueId.equals(citizensShop.getNPCUniqueId())) {
+				citizensShop.clearCachedNPC();
+			}
 		}
 	}
 
@@ -193,7 +243,7 @@ public class CitizensShops {
 			// cannot determine which shopkeepers have a backing npc if citizens isn't running:
 			return;
 		}
-		ShopkeeperRegistry shopkeeperRegistry = plugin.getShopkeeperRegistry();
+		SKShopkeeperRegistry shopkeeperRegistry = plugin.getShopkeeperRegistry();
 		List<Shopkeeper> forRemoval = new ArrayList<>();
 		for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
 			if (shopkeeper.getShopObject() instanceof SKCitizensShopObject) {
@@ -222,9 +272,7 @@ public class CitizensShops {
 
 		// remove those shopkeepers:
 		if (!forRemoval.isEmpty()) {
-			for (Shopkeeper shopkeeper : forRemoval) {
-				shopkeeper.delete();
-			}
+			shopkeeperRegistry.deleteShopkeepers(forRemoval);
 
 			// save:
 			plugin.getShopkeeperStorage().save();
@@ -36,6 +36,8 @@ public class SKCitizensShopObject extends AbstractEntityShopObject implements Ci
 	protected final CitizensShops citizensShops;
 	private UUID npcUniqueId = null;
 	private Integer npcLegacyId = null;
+	// cached npc, gets cleared when the npc gets removed or citizens shops get disabled:
+	private NPC npc = null;
 	// if false, this will not remove the npc on deletion:
 	private boolean destroyNPC = true;
 
@@ -87,6 +89,7 @@ public class SKCitizensShopObject extends AbstractEntityShopObject implements Ci
 				Log.info("Citizens shopkeeper id conversion: Mapping shopkeeper " + shopkeeper.getId() + " to NPC " + CitizensShops.getNPCIdString(npc));
 				npcUniqueId = npc.getUniqueId();
 				npcLegacyId = null;
+				this.npc = npc;
 				shopkeeper.markDirty();
 
 				// re-activate by new object id:
@@ -156,6 +159,7 @@ public class SKCitizensShopObject extends AbstractEntityShopObject implements Ci
 			}
 		}
 		npcUniqueId = null;
+		this.clearCachedNPC();
 		shopkeeper.markDirty();
 	}
 
@@ -164,7 +168,16 @@ public class SKCitizensShopObject extends AbstractEntityShopObject implements Ci
 	public NPC getNPC() {
 		if (npcUniqueId == null) return null;
 		if (!citizensShops.isEnabled()) return null;
-		return CitizensAPI.getNPCRegistry().getByUniqueId(npcUniqueId);
+		if (npc == null) {
+			// the npc might not be loaded yet, in which case we look it up again next time:
+			npc = CitizensAPI.getNPCRegistry().getByUniqueId(npcUniqueId);
+		}
+		return npc;
+	}
+
+	// gets called by CitizensShops
+	void clearCachedNPC() {
+		npc = null;
 	}
 
 	@Override
@@ -1,14 +1,15 @@
 package com.nisovin.shopkeepers.shopobjects.living;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.LivingEntity;
@@ -19,6 +20,8 @@ import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
 import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.util.ChunkKeys;
+import com.nisovin.shopkeepers.util.LongHashMap;
 import com.nisovin.shopkeepers.util.MathUtils;
 import com.nisovin.shopkeepers.util.Utils;
 import com.nisovin.shopkeepers.util.Validate;
@@ -36,6 +39,16 @@ public class LivingEntityAI {
 	// The look-at-players ai goal only targets players in 12 block radius, so we can limit the ai ticking to the direct
 	// chunks around the player:
 	private static final int AI_ACTIVATION_CHUNK_RANGE = 1;
+	// Within AI-active chunks, the AI of entities gets ticked at different rates, depending on the distance to the
+	// nearest player (determined during the AI activation):
+	// entities within this range get their AI ticked every tick:
+	private static final double AI_FULL_RATE_RANGE = 6.0D;
+	// entities within this range get their AI ticked every AI_REDUCED_RATE_TICKS ticks:
+	private static final double AI_REDUCED_RATE_RANGE = 12.0D; // the range of the look-at-players ai goal
+	private static final int AI_REDUCED_RATE_TICKS = 5;
+	// entities further away are frozen: their AI doesn't get ticked at all, since no player is in their look-at range
+	// max number of entities whose AI gets ticked per tick (any further entities get skipped for that tick):
+	public static final int AI_TICK_BUDGET = 200;
 	// Regarding gravity activation range:
 	// Players can see shop entities from further away, so we use a large enough range for the activation of falling
 	// checks (configurable in the config, default 4)
@@ -61,35 +74,62 @@ public class LivingEntityAI {
 
 	private final ShopkeepersPlugin plugin;
 
+	private static enum AIRate {
+		FULL,
+		REDUCED,
+		FROZEN;
+	}
+
 	private static class EntityData {
 		private final ChunkData chunkData;
+		// initial entity location (assumes that the entity won't move):
+		private final String worldName;
+		private final double x;
+		private final double y;
+		private final double z;
 		// random initial delay to distribute falling checks of entities among ticks:
 		public int skipFallingCheckTicks = RANDOM.nextInt(10);
 		public boolean falling = false;
 		public double distanceToGround = 0.0D;
+		// full rate by default for fast initial reactions in case players are nearby:
+		public AIRate aiRate = AIRate.FULL;
+		// random offset to distribute the AI ticks of entities with reduced rate among ticks:
+		private final int aiTickOffset = RANDOM.nextInt(AI_REDUCED_RATE_TICKS);
 
-		public EntityData(ChunkData chunkData) {
+		public EntityData(ChunkData chunkData, Location location) {
 			this.chunkData = chunkData;
+			this.worldName = location.getWorld().getName();
+			this.x = location.getX();
+			this.y = location.getY();
+			this.z = location.getZ();
 		}
 	}
 
 	// ticking entities -> entity data
 	private final Map<LivingEntity, EntityData> entities = new HashMap<>();
+	// entities whose AI is due in the current tick (re-used):
+	private final List<LivingEntity> dueAIEntities = new ArrayList<>();
+	// rotates the AI tick budget among the due entities (round-robin), so that no entities starve:
+	private int aiTickStartIndex = 0;
 
 	private static class ChunkData {
-		private final Chunk chunk;
+		private final LongHashMap<ChunkData> worldChunks;
+		private final long chunkKey;
 		private int entityCount = 0;
 		// active by default for fast initial reactions in case players are nearby:
 		public boolean activeGravity;
 		public boolean activeAI = true;
 
-		public ChunkData(Chunk chunk, boolean activeGravity) {
-			this.chunk = chunk;
+		public ChunkData(LongHashMap<ChunkData> worldChunks, long chunkKey, boolean activeGravity) {
+			this.worldChunks = worldChunks;
+			this.chunkKey = chunkKey;
 			this.activeGravity = activeGravity;
 		}
 	}
 
-	private final Map<Chunk, ChunkData> activeChunks = new HashMap<>();
+	// world name -> packed chunk key (see ChunkKeys) -> chunk data
+	// world entries are kept once created (there are usually only few worlds)
+	private final Map<String, LongHashMap<ChunkData>> activeChunksByWorld = new HashMap<>();
 
 	// temporarily re-used Location object:
 	private final Location tempLocation = new Location(null, 0, 0, 0);
@@ -105,6 +145,12 @@ public class LivingEntityAI {
 	private int activeGravityChunksCount = 0;
 	private int activeGravityEntityCount = 0;
 
+	private int fullRateAIEntityCount = 0;
+	private int reducedRateAIEntityCount = 0;
+	private int frozenAIEntityCount = 0;
+	private int aiTickedEntityCount = 0;
+	private int aiBudgetSkippedEntityCount = 0;
+
 	public static class Timings {
 
 		private long[] timingsHistory;
@@ -226,9 +272,11 @@ public class LivingEntityAI {
 				activationTimings.start();
 
 				// deactivate all chunks:
-				for (ChunkData chunkData : activeChunks.values()) {
-					chunkData.activeAI = false;
-					chunkData.activeGravity = false;
+				for (LongHashMap<ChunkData> worldChunks : activeChunksByWorld.values()) {
+					for (ChunkData chunkData : worldChunks.values()) {
+						chunkData.activeAI = false;
+						chunkData.activeGravity = false;
+					}
 				}
 				activeAIChunksCount = 0;
 				activeGravityChunksCount = 0;
@@ -236,25 +284,39 @@ public class LivingEntityAI {
 				// activate chunks with nearby players:
 				boolean gravityActive = this.isGravityActive();
 				int gravityChunkRange = Math.max(Settings.gravityChunkRange, 0);
+				Map<String, List<Location>> playerLocationsByWorld = new HashMap<>();
 				for (Player player : Bukkit.getOnlinePlayers()) {
-					Chunk centerChunk = player.getLocation(tempLocation).getChunk();
-					this.activateNearbyChunks(centerChunk, AI_ACTIVATION_CHUNK_RANGE, ActivationType.AI);
+					Location playerLocation = player.getLocation();
+					World world = playerLocation.getWorld();
+					LongHashMap<ChunkData> worldChunks = activeChunksByWorld.get(world.getName());
+					if (worldChunks == null || worldChunks.isEmpty()) continue; // no entities in this world
+					playerLocationsByWorld.computeIfAbsent(world.getName(), key -> new ArrayList<>()).add(playerLocation);
+					int centerChunkX = ChunkCoords.convertBlockCoord(playerLocation.getBlockX());
+					int centerChunkZ = ChunkCoords.convertBlockCoord(playerLocation.getBlockZ());
+					this.activateNearbyChunks(world, worldChunks, centerChunkX, centerChunkZ, AI_ACTIVATION_CHUNK_RANGE, ActivationType.AI);
 					if (gravityActive) {
-						this.activateNearbyChunks(centerChunk, gravityChunkRange, ActivationType.GRAVITY);
+						this.activateNearbyChunks(world, worldChunks, centerChunkX, centerChunkZ, gravityChunkRange, ActivationType.GRAVITY);
 					}
 				}
+
+				// determine the AI tick rates of entities in AI-active chunks:
+				this.updateAIRates(playerLocationsByWorld);
 				activationTimings.stop();
 			}
 
 			activeAIEntityCount = 0;
 			activeGravityEntityCount = 0;
+			aiTickedEntityCount = 0;
+			aiBudgetSkippedEntityCount = 0;
 			Iterator<Entry<LivingEntity, EntityData>> iterator = entities.entrySet().iterator();
 			while (iterator.hasNext()) {
 				Entry<LivingEntity, EntityData> entry = iterator.next();
 				LivingEntity entity = entry.getKey();
 				EntityData entityData = entry.getValue();
-				// entity still alive and loaded?
-				if (entity.isDead() || !entity.isValid() || !ChunkCoords.isChunkLoaded(entity.getLocation(tempLocation))) {
+				// entity still alive?
+				// note: entities of unloaded chunks get removed when their shopkeepers get despawned, and removed
+				// shop entities get respawned (and thereby removed from the AI) by the shopkeeper registry
+				if (entity.isDead() || !entity.isValid()) {
 					iterator.remove();
 					this.onEntityRemoved(entity, entityData);
 					continue;
@@ -297,12 +359,31 @@ public class LivingEntityAI {
 					activeAIEntityCount++;
 
 					// only handle AI if not currently falling:
-					if (!entityData.falling) {
-						this.handleAI(entity);
+					if (!entityData.falling && this.isAITick(entityData)) {
+						dueAIEntities.add(entity);
 					}
 				}
 				aiTimings.pause();
 			}
+
+			// tick the AI of the due entities, within the budget:
+			// Entities skipped due to the budget get ticked first during subsequent ticks, since the start index gets
+			// rotated by the number of ticked entities.
+			aiTimings.resume();
+			int dueAIEntityCount = dueAIEntities.size();
+			if (dueAIEntityCount > 0) {
+				int startIndex = (aiTickStartIndex % dueAIEntityCount);
+				aiTickedEntityCount = Math.min(dueAIEntityCount, AI_TICK_BUDGET);
+				aiBudgetSkippedEntityCount = (dueAIEntityCount - aiTickedEntityCount);
+				for (int i = 0; i < aiTickedEntityCount; i++) {
+					this.handleAI(dueAIEntities.get((startIndex + i) % dueAIEntityCount));
+				}
+				if (aiBudgetSkippedEntityCount > 0) {
+					aiTickStartIndex = (startIndex + aiTickedEntityCount) % dueAIEntityCount;
+				}
+				dueAIEntities.clear();
+			}
+			aiTimings.pause();
 			// cleanup temporarily used location object:
 			tempLocation.setWorld(null);
 
@@ -340,22 +421,25 @@ public class LivingEntityAI {
 		if (entities.containsKey(entity)) return;
 
 		// determine entity chunk (asserts that the entity won't move!):
-		Chunk entityChunk = entity.getLocation(tempLocation).getChunk();
-		tempLocation.setWorld(null); // cleanup temporarily used location object
+		Location entityLocation = entity.getLocation(tempLocation);
+		String worldName = entityLocation.getWorld().getName();
+		long chunkKey = ChunkKeys.fromBlockPos(entityLocation.getBlockX(), entityLocation.getBlockZ());
 
 		// active gravity handling?
 		boolean gravityActive = this.isGravityActive();
 
 		// add chunk entry:
-		ChunkData chunkData = activeChunks.get(entityChunk);
+		LongHashMap<ChunkData> worldChunks = activeChunksByWorld.computeIfAbsent(worldName, key -> new LongHashMap<>());
+		ChunkData chunkData = worldChunks.get(chunkKey);
 		if (chunkData == null) {
-			chunkData = new ChunkData(entityChunk, gravityActive);
-			activeChunks.put(entityChunk, chunkData);
+			chunkData = new ChunkData(worldChunks, chunkKey, gravityActive);
+			worldChunks.put(chunkKey, chunkData);
 		}
 		chunkData.entityCount++;
 
 		// add entity entry:
-		entities.put(entity, new EntityData(chunkData));
+		entities.put(entity, new EntityData(chunkData, entityLocation));
+		tempLocation.setWorld(null); // cleanup temporarily used location object
 
 		// start the ai task, if it isn't already running:
 		this.start();
@@ -376,13 +460,15 @@ public class LivingEntityAI {
 		ChunkData chunkData = entityData.chunkData;
 		chunkData.entityCount--;
 		if (chunkData.entityCount <= 0) {
-			activeChunks.remove(chunkData.chunk);
+			chunkData.worldChunks.remove(chunkData.chunkKey);
 		}
 	}
 
 	public void reset() {
 		Validate.isTrue(!currentlyRunning, "Cannot reset while the ai task is running!");
 		entities.clear();
+		dueAIEntities.clear();
+		aiTickStartIndex = 0;
 		// activeChunks.clear();
 		this.resetStatistics();
 	}
@@ -395,6 +481,12 @@ public class LivingEntityAI {
 		activeGravityChunksCount = 0;
 		activeGravityEntityCount = 0;
 
+		fullRateAIEntityCount = 0;
+		reducedRateAIEntityCount = 0;
+		frozenAIEntityCount = 0;
+		aiTickedEntityCount = 0;
+		aiBudgetSkippedEntityCount = 0;
+
 		totalTimings.reset();
 		activationTimings.reset();
 		gravityTimings.reset();
@@ -423,6 +515,30 @@ public class LivingEntityAI {
 		return activeGravityEntityCount;
 	}
 
+	// the following AI rate counts refer to entities in AI-active chunks and get updated during the AI activation:
+
+	public int getFullRateAIEntityCount() {
+		return fullRateAIEntityCount;
+	}
+
+	public int getReducedRateAIEntityCount() {
+		return reducedRateAIEntityCount;
+	}
+
+	public int getFrozenAIEntityCount() {
+		return frozenAIEntityCount;
+	}
+
+	// the number of entities whose AI got ticked during the last tick
+	public int getAITickedEntityCount() {
+		return aiTickedEntityCount;
+	}
+
+	// the number of entities whose AI got skipped during the last tick due to the AI tick budget
+	public int getAIBudgetSkippedEntityCount() {
+		return aiBudgetSkippedEntityCount;
+	}
+
 	public Timings getTotalTimings() {
 		return totalTimings;
 	}
@@ -446,19 +562,18 @@ public class LivingEntityAI {
 		AI;
 	}
 
-	private void activateNearbyChunks(Chunk centerChunk, int chunkRadius, ActivationType activationType) {
-		assert centerChunk != null && chunkRadius >= 0 && activationType != null;
-		World world = centerChunk.getWorld();
-		int minX = centerChunk.getX() - chunkRadius;
-		int minZ = centerChunk.getZ() - chunkRadius;
-		int maxX = centerChunk.getX() + chunkRadius;
-		int maxZ = centerChunk.getZ() + chunkRadius;
+	private void activateNearbyChunks(	World world, LongHashMap<ChunkData> worldChunks, int centerChunkX, int centerChunkZ,
+										int chunkRadius, ActivationType activationType) {
+		assert world != null && worldChunks != null && chunkRadius >= 0 && activationType != null;
+		int minX = centerChunkX - chunkRadius;
+		int minZ = centerChunkZ - chunkRadius;
+		int maxX = centerChunkX + chunkRadius;
+		int maxZ = centerChunkZ + chunkRadius;
 		for (int x = minX; x <= maxX; x++) {
 			for (int z = minZ; z <= maxZ; z++) {
-				if (!world.isChunkLoaded(x, z)) continue;
-				Chunk chunk = world.getChunkAt(x, z);
-				ChunkData chunkData = activeChunks.get(chunk);
+				ChunkData chunkData = worldChunks.get(ChunkKeys.of(x, z));
 				if (chunkData == null) continue;
+				if (!world.isChunkLoaded(x, z)) continue;
 
 				switch (activationType) {
 				case GRAVITY:
@@ -502,7 +617,53 @@ public class LivingEntityAI {
 		tempLocation.setWorld(null); // cleanup temporarily used location object
 	}
 
-	// gets run every tick while in range of players:
+	private void updateAIRates(Map<String, List<Location>> playerLocationsByWorld) {
+		fullRateAIEntityCount = 0;
+		reducedRateAIEntityCount = 0;
+		frozenAIEntityCount = 0;
+		double fullRateRangeSq = AI_FULL_RATE_RANGE * AI_FULL_RATE_RANGE;
+		double reducedRateRangeSq = AI_REDUCED_RATE_RANGE * AI_REDUCED_RATE_RANGE;
+		for (EntityData entityData : entities.values()) {
+			if (!entityData.chunkData.activeAI) continue;
+
+			// determine the distance to the nearest player:
+			double minDistanceSq = Double.MAX_VALUE;
+			List<Location> playerLocations = playerLocationsByWorld.get(entityData.worldName);
+			if (playerLocations != null) {
+				for (Location playerLocation : playerLocations) {
+					double dx = playerLocation.getX() - entityData.x;
+					double dy = playerLocation.getY() - entityData.y;
+					double dz = playerLocation.getZ() - entityData.z;
+					minDistanceSq = Math.min(minDistanceSq, dx * dx + dy * dy + dz * dz);
+				}
+			}
+
+			if (minDistanceSq <= fullRateRangeSq) {
+				entityData.aiRate = AIRate.FULL;
+				fullRateAIEntityCount++;
+			} else if (minDistanceSq <= reducedRateRangeSq) {
+				entityData.aiRate = AIRate.REDUCED;
+				reducedRateAIEntityCount++;
+			} else {
+				entityData.aiRate = AIRate.FROZEN;
+				frozenAIEntityCount++;
+			}
+		}
+	}
+
+	private boolean isAITick(EntityData entityData) {
+		switch (entityData.aiRate) {
+		case FULL:
+			return true;
+		case REDUCED:
+			return ((tickCounter + entityData.aiTickOffset) % AI_REDUCED_RATE_TICKS == 0);
+		case FROZEN:
+		default:
+			return false;
+		}
+	}
+
+	// gets run for entities in range of players, at a rate depending on the distance to the nearest player:
 	private void handleAI(LivingEntity entity) {
 		// look at nearby players: implemented by manually running the vanilla ai goal
 		NMSManager.getProvider().tickAI(entity);
@@ -19,6 +19,7 @@ import org.bukkit.event.entity.CreeperPowerEvent.PowerCause;
 import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
 import org.bukkit.event.entity.EntityDropItemEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.EntityPortalEvent;
@@ -44,18 +45,20 @@ import org.bukkit.projectiles.ProjectileSource;
 
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
+import com.nisovin.shopkeepers.interaction.InteractionChecks;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.TestPlayerInteractEntityEvent;
-import com.nisovin.shopkeepers.util.Utils;
 
 class LivingEntityShopListener implements Listener {
 
 	private final SKShopkeeperRegistry shopkeeperRegistry;
+	private final InteractionChecks interactionChecks;
 
-	LivingEntityShopListener(SKShopkeeperRegistry shopkeeperRegistry) {
+	LivingEntityShopListener(SKShopkeeperRegistry shopkeeperRegistry, InteractionChecks interactionChecks) {
 		this.shopkeeperRegistry = shopkeeperRegistry;
+		this.interactionChecks = interactionChecks;
 	}
 
 	// We want to bypass other plugins by default. To allow other plugins (eg. protection plugins) to ignore the event
@@ -129,7 +132,7 @@ class LivingEntityShopListener implements Listener {
 
 		// Check the entity interaction result by calling another interact event:
 		if (Settings.checkShopInteractionResult) {
-			if (!Utils.checkEntityInteract(player, shopEntity)) {
+			if (!interactionChecks.checkEntityInteract(player, shopEntity)) {
 				Log.debug("  Cancelled by another plugin");
 				return;
 			}
@@ -330,4 +333,26 @@ class LivingEntityShopListener implements Listener {
 			event.setCancelled(true);
 		}
 	}
+
+	// LIVENESS
+
+	// Shop entities that got removed nevertheless get respawned right away, instead of waiting for the next periodic
+	// check to detect the missing entity.
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = false)
+	void onEntityDeath(EntityDeathEvent event) {
+		AbstractShopkeeper shopkeeper = shopkeeperRegistry.getShopkeeperByEntity(event.getEntity());
+		if (shopkeeper != null) {
+			shopkeeperRegistry.onShopObjectRemoved(shopkeeper);
+		}
+	}
+
+	// if some other plugin uncancelled the transformation, the shop entity gets replaced
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onEntityTransformed(EntityTransformEvent event) {
+		AbstractShopkeeper shopkeeper = shopkeeperRegistry.getShopkeeperByEntity(event.getEntity());
+		if (shopkeeper != null) {
+			shopkeeperRegistry.onShopObjectRemoved(shopkeeper);
+		}
+	}
 }
@@ -19,7 +19,7 @@ public class LivingShops {
 	public LivingShops(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
 		livingEntityAI = new LivingEntityAI(plugin);
-		livingEntityShopListener = new LivingEntityShopListener(plugin.getShopkeeperRegistry());
+		livingEntityShopListener = new LivingEntityShopListener(plugin.getShopkeeperRegistry(), plugin.getInteractionChecks());
 	}
 
 	public void onEnable() {
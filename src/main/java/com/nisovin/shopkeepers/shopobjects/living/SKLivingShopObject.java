@@ -419,6 +419,13 @@ public class SKLivingShopObject<E extends LivingEntity> extends AbstractEntitySh
 		entity.teleport(spawnLocation);
 	}
 
+	@Override
+	public void onSettingsReloaded() {
+		if (!this.isActive()) return;
+		this.applyName(entity, shopkeeper.getName());
+		entity.setSilent(Settings.silenceLivingShopEntities);
+	}
+
 	// NAMING
 
 	@Override
@@ -0,0 +1,301 @@
+package com.nisovin.shopkeepers.shopobjects.packet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.compat.api.PacketEntity;
+import com.nisovin.shopkeepers.util.ChunkKeys;
+import com.nisovin.shopkeepers.util.LongHashMap;
+
+/**
+ * Keeps track of which packet mobs are shown to which players.
+ * <p>
+ * The packet mobs are indexed by chunk, so that only the chunks around each player need to be checked when updating the
+ * visible mobs. The visibility is updated periodically. Additionally, players nearby get sent look updates, so that the
+ * mobs keep looking at the closest player, similar to the living shop mobs.
+ */
+class PacketEntityTracker implements Listener {
+
+	private static final int TASK_PERIOD_TICKS = 2;
+	// the visibility is only updated every few runs of the task:
+	private static final int VISIBILITY_UPDATE_PERIOD = 5;
+	private static final int VIEW_CHUNK_RANGE = 3;
+	private static final double VIEW_DISTANCE_SQUARED = 48.0D * 48.0D;
+	private static final double LOOK_DISTANCE_SQUARED = 12.0D * 12.0D;
+
+	private static final class TrackedObject {
+
+		private final SKPacketShopObject shopObject;
+		private final PacketEntity packetEntity;
+		private final Location location;
+		private final long chunkKey;
+
+		TrackedObject(SKPacketShopObject shopObject, PacketEntity packetEntity, Location location) {
+			this.shopObject = shopObject;
+			this.packetEntity = packetEntity;
+			this.location = location;
+			this.chunkKey = ChunkKeys.fromBlockPos(location.getBlockX(), location.getBlockZ());
+		}
+	}
+
+	private static final class Viewer {
+
+		// shown objects, mapped to the last look (packed yaw and pitch) sent to the player:
+		private final Map<TrackedObject, Integer> shown = new HashMap<>();
+	}
+
+	private final SKShopkeepersPlugin plugin;
+	private final PacketShops packetShops;
+
+	private final Map<SKPacketShopObject, TrackedObject> trackedObjects = new HashMap<>();
+	// world name -> chunk key -> tracked objects:
+	private final Map<String, LongHashMap<List<TrackedObject>>> objectsByChunk = new HashMap<>();
+	// accessed from the network threads:
+	private final Map<Integer, SKPacketShopObject> objectsByEntityId = new ConcurrentHashMap<>();
+	private final Map<UUID, Viewer> viewers = new HashMap<>();
+
+	private BukkitTask task = null;
+	private int taskRuns = 0;
+
+	PacketEntityTracker(SKShopkeepersPlugin plugin, PacketShops packetShops) {
+		this.plugin = plugin;
+		this.packetShops = packetShops;
+	}
+
+	void start() {
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			NMSManager.getProvider().injectPacketEntityListener(player, packetShops);
+		}
+		taskRuns = 0;
+		task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, TASK_PERIOD_TICKS);
+	}
+
+	void stop() {
+		HandlerList.unregisterAll(this);
+		if (task != null) {
+			task.cancel();
+			task = null;
+		}
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			Viewer viewer = viewers.get(player.getUniqueId());
+			if (viewer != null) {
+				for (TrackedObject trackedObject : viewer.shown.keySet()) {
+					trackedObject.packetEntity.destroy(player);
+				}
+			}
+			NMSManager.getProvider().removePacketEntityListener(player);
+		}
+		viewers.clear();
+	}
+
+	// OBJECTS
+
+	boolean isPacketEntity(int entityId) {
+		return objectsByEntityId.containsKey(entityId);
+	}
+
+	SKPacketShopObject getObject(int entityId) {
+		return objectsByEntityId.get(entityId);
+	}
+
+	Location getLocation(SKPacketShopObject shopObject) {
+		TrackedObject trackedObject = trackedObjects.get(shopObject);
+		if (trackedObject == null) return null;
+		return trackedObject.location.clone();
+	}
+
+	void addObject(SKPacketShopObject shopObject, Location location) {
+		this.removeObject(shopObject);
+		TrackedObject trackedObject = new TrackedObject(shopObject, shopObject.getPacketEntity(), location.clone());
+		trackedObjects.put(shopObject, trackedObject);
+		LongHashMap<List<TrackedObject>> worldObjects = objectsByChunk.computeIfAbsent(location.getWorld().getName(), worldName -> new LongHashMap<>());
+		List<TrackedObject> chunkObjects = worldObjects.get(trackedObject.chunkKey);
+		if (chunkObjects == null) {
+			chunkObjects = new ArrayList<>(1);
+			worldObjects.put(trackedObject.chunkKey, chunkObjects);
+		}
+		chunkObjects.add(trackedObject);
+		objectsByEntityId.put(trackedObject.packetEntity.getEntityId(), shopObject);
+
+		// show to players in range right away:
+		for (Player player : location.getWorld().getPlayers()) {
+			if (!this.isInViewRange(player, trackedObject)) continue;
+			this.show(player, this.getViewer(player), trackedObject);
+		}
+	}
+
+	void removeObject(SKPacketShopObject shopObject) {
+		TrackedObject trackedObject = trackedObjects.remove(shopObject);
+		if (trackedObject == null) return;
+		objectsByEntityId.remove(trackedObject.packetEntity.getEntityId());
+		String worldName = trackedObject.location.getWorld().getName();
+		LongHashMap<List<TrackedObject>> worldObjects = objectsByChunk.get(worldName);
+		if (worldObjects != null) {
+			List<TrackedObject> chunkObjects = worldObjects.get(trackedObject.chunkKey);
+			if (chunkObjects != null) {
+				chunkObjects.remove(trackedObject);
+				if (chunkObjects.isEmpty()) {
+					worldObjects.remove(trackedObject.chunkKey);
+					if (worldObjects.isEmpty()) {
+						objectsByChunk.remove(worldName);
+					}
+				}
+			}
+		}
+
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			Viewer viewer = viewers.get(player.getUniqueId());
+			if (viewer != null && viewer.shown.remove(trackedObject) != null) {
+				trackedObject.packetEntity.destroy(player);
+			}
+		}
+	}
+
+	void updateMetadata(SKPacketShopObject shopObject) {
+		TrackedObject trackedObject = trackedObjects.get(shopObject);
+		if (trackedObject == null) return;
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			Viewer viewer = viewers.get(player.getUniqueId());
+			if (viewer != null && viewer.shown.containsKey(trackedObject)) {
+				trackedObject.packetEntity.updateMetadata(player);
+			}
+		}
+	}
+
+	// VIEWERS
+
+	private Viewer getViewer(Player player) {
+		return viewers.computeIfAbsent(player.getUniqueId(), uuid -> new Viewer());
+	}
+
+	private boolean isInViewRange(Player player, TrackedObject trackedObject) {
+		Location playerLocation = player.getLocation();
+		return (playerLocation.getWorld() == trackedObject.location.getWorld()
+				&& playerLocation.distanceSquared(trackedObject.location) <= VIEW_DISTANCE_SQUARED);
+	}
+
+	private void show(Player player, Viewer viewer, TrackedObject trackedObject) {
+		trackedObject.packetEntity.spawn(player);
+		viewer.shown.put(trackedObject, packLook(trackedObject.location.getYaw(), trackedObject.location.getPitch()));
+	}
+
+	private void tick() {
+		boolean updateVisibility = ((taskRuns++ % VISIBILITY_UPDATE_PERIOD) == 0);
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			if (updateVisibility) {
+				this.updateVisibility(player);
+			}
+			this.updateLooks(player);
+		}
+	}
+
+	private void updateVisibility(Player player) {
+		Viewer viewer = this.getViewer(player);
+		Location playerLocation = player.getLocation();
+		World world = playerLocation.getWorld();
+
+		// hide objects which are no longer in range:
+		Iterator<TrackedObject> shownIterator = viewer.shown.keySet().iterator();
+		while (shownIterator.hasNext()) {
+			TrackedObject trackedObject = shownIterator.next();
+			if (!this.isInViewRange(player, trackedObject)) {
+				shownIterator.remove();
+				trackedObject.packetEntity.destroy(player);
+			}
+		}
+
+		// show objects in the chunks around the player:
+		LongHashMap<List<TrackedObject>> worldObjects = objectsByChunk.get(world.getName());
+		if (worldObjects == null) return;
+		int centerChunkX = playerLocation.getBlockX() >> 4;
+		int centerChunkZ = playerLocation.getBlockZ() >> 4;
+		for (int chunkX = centerChunkX - VIEW_CHUNK_RANGE; chunkX <= centerChunkX + VIEW_CHUNK_RANGE; ++chunkX) {
+			for (int chunkZ = centerChunkZ - VIEW_CHUNK_RANGE; chunkZ <= centerChunkZ + VIEW_CHUNK_RANGE; ++chunkZ) {
+				List<TrackedObject> chunkObjects = worldObjects.get(ChunkKeys.of(chunkX, chunkZ));
+				if (chunkObjects == null) continue;
+				for (TrackedObject trackedObject : chunkObjects) {
+					if (viewer.shown.containsKey(trackedObject)) continue;
+					if (!this.isInViewRange(player, trackedObject)) continue;
+					this.show(player, viewer, trackedObject);
+				}
+			}
+		}
+	}
+
+	private void updateLooks(Player player) {
+		Viewer viewer = viewers.get(player.getUniqueId());
+		if (viewer == null || viewer.shown.isEmpty()) return;
+		Location eyeLocation = player.getEyeLocation();
+		for (Map.Entry<TrackedObject, Integer> entry : viewer.shown.entrySet()) {
+			TrackedObject trackedObject = entry.getKey();
+			Location location = trackedObject.location;
+			if (location.distanceSquared(eyeLocation) > LOOK_DISTANCE_SQUARED) continue;
+
+			double dx = eyeLocation.getX() - location.getX();
+			double dy = eyeLocation.getY() - (location.getY() + trackedObject.packetEntity.getEyeHeight());
+			double dz = eyeLocation.getZ() - location.getZ();
+			double horizontalDistance = Math.sqrt(dx * dx + dz * dz);
+			float yaw = (float) Math.toDegrees(Math.atan2(-dx, dz));
+			float pitch = (float) -Math.toDegrees(Math.atan2(dy, horizontalDistance));
+
+			int look = packLook(yaw, pitch);
+			if (entry.getValue() == look) continue; // unchanged
+			entry.setValue(look);
+			trackedObject.packetEntity.look(player, yaw, pitch);
+		}
+	}
+
+	// packs yaw and pitch with the precision with which they are sent to the client (1/256 of a full rotation):
+	private static int packLook(float yaw, float pitch) {
+		int yawAngle = ((int) Math.floor(yaw * 256.0F / 360.0F)) & 0xFF;
+		int pitchAngle = ((int) Math.floor(pitch * 256.0F / 360.0F)) & 0xFF;
+		return (yawAngle << 8) | pitchAngle;
+	}
+
+	// EVENTS
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerJoin(PlayerJoinEvent event) {
+		NMSManager.getProvider().injectPacketEntityListener(event.getPlayer(), packetShops);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerQuit(PlayerQuitEvent event) {
+		viewers.remove(event.getPlayer().getUniqueId());
+		NMSManager.getProvider().removePacketEntityListener(event.getPlayer());
+	}
+
+	// the client forgets about all entities when changing worlds or respawning:
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+		viewers.remove(event.getPlayer().getUniqueId());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerRespawn(PlayerRespawnEvent event) {
+		viewers.remove(event.getPlayer().getUniqueId());
+	}
+}
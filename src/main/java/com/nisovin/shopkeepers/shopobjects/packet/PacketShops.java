@@ -0,0 +1,131 @@
+package com.nisovin.shopkeepers.shopobjects.packet;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.compat.api.PacketEntityListener;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * Shop objects which are only shown to players via packets.
+ * <p>
+ * Interactions with these mobs are received from the players' network channels and then handled on the server's main
+ * thread.
+ */
+public class PacketShops implements PacketEntityListener {
+
+	static final EntityType DEFAULT_ENTITY_TYPE = EntityType.VILLAGER;
+
+	// players further away than this cannot interact with the mob (the vanilla limit is 6 blocks, plus some tolerance):
+	private static final double MAX_INTERACTION_DISTANCE_SQUARED = 8.0D * 8.0D;
+
+	private final SKShopkeepersPlugin plugin;
+	private final SKPacketShopObjectType packetShopObjectType = new SKPacketShopObjectType(this);
+	private final PacketEntityTracker tracker;
+	private boolean enabled = false;
+
+	public PacketShops(SKShopkeepersPlugin plugin) {
+		this.plugin = plugin;
+		this.tracker = new PacketEntityTracker(plugin, this);
+	}
+
+	public void onEnable() {
+		if (!Settings.enablePacketShops) return;
+		if (!NMSManager.getProvider().supportsPacketEntities()) {
+			Log.warning("Packet shops are enabled in the config, but not supported by this server version!");
+			return;
+		}
+		enabled = true;
+		tracker.start();
+	}
+
+	public void onDisable() {
+		if (!enabled) return;
+		tracker.stop();
+		enabled = false;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public SKPacketShopObjectType getPacketShopObjectType() {
+		return packetShopObjectType;
+	}
+
+	PacketEntityTracker getTracker() {
+		return tracker;
+	}
+
+	static boolean isSelectableEntityType(EntityType entityType) {
+		if (entityType == null || !entityType.isAlive() || !entityType.isSpawnable()) return false;
+		if (entityType == EntityType.PLAYER || entityType == EntityType.ARMOR_STAND) return false;
+		return Settings.enabledLivingShops.contains(entityType.name());
+	}
+
+	// PACKET LISTENER (called on the network threads)
+
+	@Override
+	public boolean isPacketEntity(int entityId) {
+		return tracker.isPacketEntity(entityId);
+	}
+
+	@Override
+	public void onInteract(Player player, int entityId, boolean attack) {
+		if (attack) return; // packet mobs cannot be damaged
+		if (!plugin.isEnabled()) return;
+		Bukkit.getScheduler().runTask(plugin, () -> this.handleInteraction(player, entityId));
+	}
+
+	private void handleInteraction(Player player, int entityId) {
+		if (!enabled || !player.isOnline()) return;
+		SKPacketShopObject shopObject = tracker.getObject(entityId);
+		if (shopObject == null) return; // got removed in the meantime
+		AbstractShopkeeper shopkeeper = shopObject.getShopkeeper();
+		Location location = shopObject.getLocation();
+		if (location == null) return;
+		Log.debug(() -> "Player " + player.getName() + " is interacting with packet mob at " + location);
+
+		Location playerLocation = player.getLocation();
+		if (playerLocation.getWorld() != location.getWorld()
+				|| playerLocation.distanceSquared(location) > MAX_INTERACTION_DISTANCE_SQUARED) {
+			Log.debug("  Ignoring interaction from too far away");
+			return;
+		}
+
+		// see LivingEntityShopListener and Minecraft issue MC-141494:
+		if (hasWrittenBookInHand(player)) {
+			Log.debug("  Ignoring interaction due to holding a written book in main or off hand.");
+			return;
+		}
+
+		// there is no entity to check the interaction with, so we check the block at the shopkeeper's location instead:
+		if (Settings.checkShopInteractionResult) {
+			if (!plugin.getInteractionChecks().checkBlockInteract(player, location.getBlock())) {
+				Log.debug("  Cancelled by another plugin");
+				return;
+			}
+		}
+
+		// handle interaction:
+		shopkeeper.onPlayerInteraction(player);
+	}
+
+	private static boolean hasWrittenBookInHand(Player player) {
+		PlayerInventory inventory = player.getInventory();
+		return (isWrittenBook(inventory.getItemInMainHand()) || isWrittenBook(inventory.getItemInOffHand()));
+	}
+
+	private static boolean isWrittenBook(ItemStack itemStack) {
+		return (itemStack != null && itemStack.getType() == Material.WRITTEN_BOOK);
+	}
+}
@@ -0,0 +1,254 @@
+package com.nisovin.shopkeepers.shopobjects.packet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Ageable;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
+import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.compat.api.PacketEntity;
+import com.nisovin.shopkeepers.config.migration.LegacyConversion;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
+import com.nisovin.shopkeepers.ui.defaults.EditorHandler;
+import com.nisovin.shopkeepers.util.EnumUtils;
+import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.Utils;
+import com.nisovin.shopkeepers.util.Validate;
+
+/**
+ * A mob that only exists client-side.
+ * <p>
+ * The mob is shown to nearby players via packets (see {@link PacketEntityTracker}). There is no server-side entity
+ * that needs to be ticked, checked for collisions, or saved.
+ */
+public class SKPacketShopObject extends AbstractShopObject {
+
+	private static final double SPAWN_LOCATION_OFFSET = 0.98D;
+	private static final double SPAWN_LOCATION_RANGE = 2.0D;
+
+	protected final PacketShops packetShops;
+	private EntityType entityType = PacketShops.DEFAULT_ENTITY_TYPE;
+	private PacketEntity packetEntity = null; // null if not spawned
+
+	protected SKPacketShopObject(PacketShops packetShops, AbstractShopkeeper shopkeeper, ShopCreationData creationData) {
+		super(shopkeeper, creationData);
+		this.packetShops = packetShops;
+	}
+
+	@Override
+	public SKPacketShopObjectType getType() {
+		return packetShops.getPacketShopObjectType();
+	}
+
+	AbstractShopkeeper getShopkeeper() {
+		return shopkeeper;
+	}
+
+	@Override
+	public void load(ConfigurationSection configSection) {
+		super.load(configSection);
+		String entityTypeName = configSection.getString("entityType");
+		EntityType entityType = Settings.matchEntityType(entityTypeName);
+		if (entityType == null || !entityType.isAlive()) {
+			Log.warning("Invalid mob type '" + entityTypeName + "' for shopkeeper " + shopkeeper.getId()
+					+ ". Using '" + PacketShops.DEFAULT_ENTITY_TYPE.name() + "' now.");
+			entityType = PacketShops.DEFAULT_ENTITY_TYPE;
+			shopkeeper.markDirty();
+		}
+		this.entityType = entityType;
+	}
+
+	@Override
+	public void save(ConfigurationSection configSection) {
+		super.save(configSection);
+		configSection.set("entityType", entityType.name());
+	}
+
+	// ACTIVATION
+
+	PacketEntity getPacketEntity() {
+		return packetEntity;
+	}
+
+	@Override
+	public boolean isActive() {
+		return (packetEntity != null);
+	}
+
+	@Override
+	public String getId() {
+		if (packetEntity == null) return null;
+		return this.getType().createObjectId(packetEntity.getEntityId());
+	}
+
+	@Override
+	public boolean needsSpawning() {
+		return true; // spawned on chunk load, and despawned on chunk unload
+	}
+
+	@Override
+	public boolean despawnDuringWorldSaves() {
+		return false; // not part of the world
+	}
+
+	// same as for living shop objects: the location the mob would fall to
+	private Location getSpawnLocation() {
+		World world = Bukkit.getWorld(shopkeeper.getWorldName());
+		if (world == null) return null; // world not loaded
+		Location spawnLocation = new Location(world, shopkeeper.getX() + 0.5D, shopkeeper.getY() + SPAWN_LOCATION_OFFSET, shopkeeper.getZ() + 0.5D);
+		double distanceToGround = Utils.getCollisionDistanceToGround(spawnLocation, SPAWN_LOCATION_RANGE);
+		if (distanceToGround == SPAWN_LOCATION_RANGE) {
+			// no collision within the checked range, remove offset from spawn location:
+			distanceToGround = SPAWN_LOCATION_OFFSET;
+		}
+		spawnLocation.add(0.0D, -distanceToGround, 0.0D);
+		return spawnLocation;
+	}
+
+	@Override
+	public boolean spawn() {
+		if (packetEntity != null) return true; // already spawned
+		if (!packetShops.isEnabled()) return false;
+
+		Location spawnLocation = this.getSpawnLocation();
+		if (spawnLocation == null) return false; // world not loaded
+
+		packetEntity = NMSManager.getProvider().createPacketEntity(entityType, spawnLocation);
+		if (packetEntity == null) {
+			Log.warning("Failed to create packet entity of type " + entityType.name() + " for shopkeeper " + shopkeeper.getId());
+			return false;
+		}
+
+		// setup entity data:
+		Entity entity = packetEntity.getBukkitEntity();
+		entity.setSilent(true);
+		if (entity instanceof Ageable) {
+			((Ageable) entity).setAdult();
+		}
+		this.applyName(entity, shopkeeper.getName());
+
+		// show to nearby players:
+		packetShops.getTracker().addObject(this, spawnLocation);
+		return true;
+	}
+
+	@Override
+	public void despawn() {
+		if (packetEntity == null) return;
+		packetShops.getTracker().removeObject(this);
+		packetEntity = null;
+	}
+
+	@Override
+	public Location getLocation() {
+		if (packetEntity == null) return null;
+		return packetShops.getTracker().getLocation(this);
+	}
+
+	@Override
+	public boolean check() {
+		return false; // there is nothing that could have removed or moved the mob
+	}
+
+	@Override
+	public void onSettingsReloaded() {
+		// the nameplate depends on the settings:
+		this.setName(shopkeeper.getName());
+	}
+
+	// NAMING
+
+	@Override
+	public void setName(String name) {
+		if (packetEntity == null) return;
+		this.applyName(packetEntity.getBukkitEntity(), name);
+		packetShops.getTracker().updateMetadata(this);
+	}
+
+	protected void applyName(Entity entity, String name) {
+		if (Settings.showNameplates && name != null && !name.isEmpty()) {
+			if (Settings.nameplatePrefix != null && !Settings.nameplatePrefix.isEmpty()) {
+				name = Settings.nameplatePrefix + name;
+			}
+			name = this.prepareName(name);
+			entity.setCustomName(name);
+			entity.setCustomNameVisible(Settings.alwaysShowNameplates);
+		} else {
+			entity.setCustomName(null);
+			entity.setCustomNameVisible(false);
+		}
+	}
+
+	@Override
+	public String getName() {
+		if (packetEntity == null) return null;
+		return packetEntity.getBukkitEntity().getCustomName();
+	}
+
+	// EDITOR ACTIONS
+
+	@Override
+	public List<EditorHandler.Button> getEditorButtons() {
+		List<EditorHandler.Button> editorButtons = new ArrayList<EditorHandler.Button>();
+		editorButtons.addAll(super.getEditorButtons());
+		editorButtons.add(new EditorHandler.ActionButton(shopkeeper) {
+			@Override
+			public ItemStack getIcon(EditorHandler.Session session) {
+				return getEntityTypeEditorItem();
+			}
+
+			@Override
+			protected boolean runAction(InventoryClickEvent clickEvent, Player player) {
+				boolean backwards = clickEvent.isRightClick();
+				cycleEntityType(backwards);
+				return true;
+			}
+		});
+		return editorButtons;
+	}
+
+	// ENTITY TYPE
+
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	public void setEntityType(EntityType entityType) {
+		Validate.notNull(entityType, "Entity type is null!");
+		Validate.isTrue(entityType.isAlive(), "Entity type is not alive!");
+		this.entityType = entityType;
+		shopkeeper.markDirty();
+
+		// respawn with the new entity type (and entity id):
+		if (this.isActive()) {
+			this.despawn();
+			this.spawn();
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onShopkeeperObjectIdChanged(shopkeeper);
+		}
+	}
+
+	public void cycleEntityType(boolean backwards) {
+		this.setEntityType(EnumUtils.cycleEnumConstant(EntityType.class, entityType, backwards, PacketShops::isSelectableEntityType));
+	}
+
+	protected ItemStack getEntityTypeEditorItem() {
+		Material spawnEgg = LegacyConversion.fromLegacySpawnEgg(entityType);
+		ItemStack iconItem = new ItemStack(spawnEgg != null ? spawnEgg : Material.EGG);
+		return ItemUtils.setItemStackNameAndLore(iconItem, Settings.msgButtonPacketMobType, Settings.msgButtonPacketMobTypeLore);
+	}
+}
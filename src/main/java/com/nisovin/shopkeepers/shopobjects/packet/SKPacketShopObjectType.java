@@ -0,0 +1,35 @@
+package com.nisovin.shopkeepers.shopobjects.packet;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
+
+public class SKPacketShopObjectType extends AbstractShopObjectType<SKPacketShopObject> {
+
+	private final PacketShops packetShops;
+
+	public SKPacketShopObjectType(PacketShops packetShops) {
+		super("packet-mob", "shopkeeper.packet-mob");
+		this.packetShops = packetShops;
+	}
+
+	public String createObjectId(int entityId) {
+		return this.getIdentifier() + ":" + entityId;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return Settings.msgShopObjectTypePacketMob;
+	}
+
+	@Override
+	public SKPacketShopObject createObject(AbstractShopkeeper shopkeeper, ShopCreationData creationData) {
+		return new SKPacketShopObject(packetShops, shopkeeper, creationData);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return packetShops.isEnabled();
+	}
+}
@@ -306,6 +306,12 @@ public class SKSignShopObject extends AbstractBlockShopObject implements SignSho
 		return false;
 	}
 
+	@Override
+	public void onSettingsReloaded() {
+		// the first line depends on the settings:
+		this.updateSign();
+	}
+
 	// NAMING
 
 	@Override
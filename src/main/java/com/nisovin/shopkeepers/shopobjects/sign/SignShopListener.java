@@ -28,7 +28,6 @@ import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.TestPlayerInteractEvent;
 import com.nisovin.shopkeepers.util.TextUtils;
-import com.nisovin.shopkeepers.util.Utils;
 
 class SignShopListener implements Listener {
 
@@ -119,7 +118,7 @@ class SignShopListener implements Listener {
 
 		// Check the sign interaction result by calling another interact event:
 		if (Settings.checkShopInteractionResult) {
-			if (!Utils.checkBlockInteract(player, block)) {
+			if (!signShops.getInteractionChecks().checkBlockInteract(player, block)) {
 				Log.debug("  Cancelled by another plugin");
 				return;
 			}
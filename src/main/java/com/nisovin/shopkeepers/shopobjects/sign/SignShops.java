@@ -6,6 +6,7 @@ import org.bukkit.event.HandlerList;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.interaction.InteractionChecks;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 
 public class SignShops {
@@ -29,6 +30,10 @@ public class SignShops {
 		HandlerList.unregisterAll(signShopListener);
 	}
 
+	InteractionChecks getInteractionChecks() {
+		return plugin.getInteractionChecks();
+	}
+
 	public SKSignShopObjectType getSignShopObjectType() {
 		return signShopObjectType;
 	}
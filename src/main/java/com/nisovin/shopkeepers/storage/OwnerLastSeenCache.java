@@ -0,0 +1,99 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * Keeps track of when the owners of player shopkeepers were last seen online.
+ * <p>
+ * The data is persisted together with the shopkeepers data. Only entries that have changed since the last save get
+ * written into the save data.
+ */
+public class OwnerLastSeenCache {
+
+	// owner uuid -> timestamp in millis
+	private final Map<UUID, Long> lastSeenByOwner = new HashMap<>();
+	// owners whose entries have changed (or got removed) since the last save:
+	private final Set<UUID> dirtyOwners = new LinkedHashSet<>();
+
+	OwnerLastSeenCache() {
+	}
+
+	/**
+	 * Gets the timestamp at which the specified owner was last seen online.
+	 * 
+	 * @param ownerUUID
+	 *            the owner uuid
+	 * @return the timestamp in milliseconds, or <code>null</code> if unknown
+	 */
+	public Long getLastSeen(UUID ownerUUID) {
+		return lastSeenByOwner.get(ownerUUID);
+	}
+
+	public void setLastSeen(UUID ownerUUID, long timestamp) {
+		assert ownerUUID != null;
+		Long previous = lastSeenByOwner.put(ownerUUID, timestamp);
+		if (previous == null || previous.longValue() != timestamp) {
+			dirtyOwners.add(ownerUUID);
+		}
+	}
+
+	public void removeLastSeen(UUID ownerUUID) {
+		if (lastSeenByOwner.remove(ownerUUID) != null) {
+			dirtyOwners.add(ownerUUID);
+		}
+	}
+
+	public Set<UUID> getOwners() {
+		return lastSeenByOwner.keySet();
+	}
+
+	public boolean isDirty() {
+		return !dirtyOwners.isEmpty();
+	}
+
+	void clear() {
+		lastSeenByOwner.clear();
+		dirtyOwners.clear();
+	}
+
+	// STORAGE
+
+	void load(ConfigurationSection section) {
+		assert section != null;
+		this.clear();
+		for (String key : section.getKeys(false)) {
+			UUID ownerUUID;
+			try {
+				ownerUUID = UUID.fromString(key);
+			} catch (IllegalArgumentException e) {
+				Log.warning("Ignoring last seen entry of invalid owner uuid: " + key);
+				continue;
+			}
+			if (!section.isLong(key) && !section.isInt(key)) {
+				Log.warning("Ignoring invalid last seen entry of owner " + key + ": " + section.get(key));
+				continue;
+			}
+			lastSeenByOwner.put(ownerUUID, section.getLong(key));
+		}
+	}
+
+	// returns the number of written entries
+	int save(ConfigurationSection section) {
+		assert section != null;
+		int count = dirtyOwners.size();
+		for (UUID ownerUUID : dirtyOwners) {
+			// removed entries get stored as null:
+			section.set(ownerUUID.toString(), lastSeenByOwner.get(ownerUUID));
+		}
+		dirtyOwners.clear();
+		return count;
+	}
+}
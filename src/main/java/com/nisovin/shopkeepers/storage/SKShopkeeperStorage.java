@@ -2,28 +2,41 @@ package com.nisovin.shopkeepers.storage;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
-import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.storage.ShopkeeperStorage;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopType;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
+import com.nisovin.shopkeepers.storage.SQLiteShopkeeperDatabase.ShopkeeperRow;
 import com.nisovin.shopkeepers.util.ConfigUtils;
 import com.nisovin.shopkeepers.util.ConversionUtils;
 import com.nisovin.shopkeepers.util.Log;
@@ -42,18 +55,45 @@ import com.nisovin.shopkeepers.util.StringUtils;
  * indicate this after the current async save is finished.
  * <li>If there is a request for a <b>sync</b> save while an async save is already in progress, the main thread waits
  * for the async save to finish (or aborts it), before preparing the next save.
+ * <li>The save file gets written via a {@link SaveFileWriter}, which atomically replaces the previous save file. Failed
+ * async saving attempts are retried via delayed async tasks, without blocking any thread in the meantime. Sync saves are
+ * only retried a few times without delay in order to not block the server's main thread for long.
+ * <li>If 'save-instantly' is enabled, {@link #save()} requests get coalesced (write-behind): The save file gets written
+ * at most once per 'save-min-interval-ticks', unless the oldest unsaved change reaches the 'save-max-dirty-age-ticks'.
+ * <li>If 'save-file-per-world' is enabled, the data of shopkeepers located in a world is stored in per-world save files
+ * (<code>data/&lt;world&gt;.yml</code>), and the main save file only contains the remaining data. Only the save files
+ * containing changed or deleted shopkeepers get written, and the world save files get written and loaded in parallel.
+ * The save data of all save files gets loaded, regardless of the setting, and then moved into the save files that match
+ * the current setting. When data gets moved between save files, it is first written to all affected save files, and
+ * only removed from its previous save files once all other save files have been written successfully, so that an
+ * interrupted save cannot lose the moved data.
+ * <li>If the 'storage-type' is 'sqlite', the data is stored in an embedded database instead (<code>save.db</code>), with
+ * one row per shopkeeper. Only the rows of changed and deleted shopkeepers get written, within a single transaction.
+ * If the storage type got changed and there is no data for the new storage type yet, the data of the previous storage
+ * type gets imported and the previous save file(s) get renamed to a backup.
  * </ul>
  */
 public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 	// this can be used to determine required migrations (that affect all shopkeepers or the save format as a whole)
 	// or force a save of all shopkeepers data:
-	private static final int DATA_VERSION = 1;
+	// 2: offer items are stored in per-shopkeeper item dictionaries
+	private static final int DATA_VERSION = 2;
 	// the data version that indicates a missing (first) data version:
 	private static final int MISSING_DATA_VERSION = 0;
 	private static final String DATA_VERSION_KEY = "data-version";
+	private static final String OWNER_LAST_SEEN_KEY = "owner-last-seen";
+	// the largest shopkeeper id that has been used so far (including deleted shopkeepers):
+	private static final String MAX_SHOPKEEPER_ID_KEY = "max-shopkeeper-id";
+	// save file name used for data stored in the main save file (world names cannot be empty):
+	private static final String MAIN_SAVE_FILE = "";
 
 	private final SKShopkeepersPlugin plugin;
+	private final SaveFileWriter saveFileWriter;
+	private final ShardedSaveFiles worldSaveFiles;
+	private final SQLiteShopkeeperDatabase database;
+	// whether the data is stored in the database (storage-type 'sqlite'), determined during loading:
+	private boolean usingDatabase = false;
 
 	/*
 	 * Holds the data that gets used by the current/next (possibly async) save task.
@@ -61,16 +101,38 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	 * This cannot be modified while an async save is in progress.
 	 */
 	private final FileConfiguration saveData = new YamlConfiguration();
-	private int maxStoredShopkeeperId = 0;
-	private int nextShopkeeperId = 1;
+	// also contains the ids of stored shopkeepers that could not be loaded:
+	private final ShopkeeperIdAllocator idAllocator = new ShopkeeperIdAllocator();
+	// stored together with the shopkeepers data:
+	private final OwnerLastSeenCache ownerLastSeenCache = new OwnerLastSeenCache();
+	// the save file (world name, or MAIN_SAVE_FILE) in which the data of each shopkeeper is stored, by section key:
+	private final Map<String, String> saveFileByKey = new HashMap<>();
+	private final Map<String, Set<String>> keysBySaveFile = new HashMap<>();
+	// save files whose data has changed since the last save:
+	private final Set<String> dirtySaveFiles = new LinkedHashSet<>();
+	// the keys whose data got moved out of a save file since the last save (by save file):
+	private final Map<String, Set<String>> movedKeysBySaveFile = new HashMap<>();
+	// keys of the shopkeepers whose database rows have changed or got deleted since the last save (only used when
+	// storing the data in the database, in which case the dirty MAIN_SAVE_FILE indicates changed metadata):
+	private final Set<String> dirtyRowKeys = new LinkedHashSet<>();
 
 	// flag to (temporary) turn off saving
 	private boolean savingDisabled = false;
 	private long lastSavingErrorMsgTimestamp = 0L;
 	// there might be shopkeepers with unsaved data, or we got an explicit save request:
 	private boolean dirty = false;
+	// the time at which the storage got marked dirty, or 0 if not dirty:
+	private long dirtySinceTimestamp = 0L;
 	private int delayedSaveTaskId = -1;
 
+	// write-behind of coalesced save requests (if save-instantly is enabled):
+	private int writeBehindTaskId = -1;
+	private long lastWriteTimestamp = 0L;
+	// the number of save requests that got coalesced into the next write:
+	private int coalescedSaveRequests = 0;
+	private long totalCoalescedSaveRequests = 0L;
+	private long totalWrites = 0L;
+
 	// current loading:
 	private boolean currentlyLoading = false;
 
@@ -81,6 +143,25 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	private final SaveResult saveResult = new SaveResult();
 	// previously dirty shopkeepers which we currently attempt to save:
 	private final List<AbstractShopkeeper> savingShopkeepers = new ArrayList<>();
+	// whether we currently attempt to save changes of the owner last seen data:
+	private boolean savingOwnerLastSeen = false;
+	// the save files which we currently attempt to write:
+	private final Set<String> savingSaveFiles = new HashSet<>();
+	// data of the save files which still need to be written during the current save (null for data that has already
+	// been written, or world save files that get deleted):
+	private FileConfiguration savingMainSaveData = null;
+	private final Map<String, FileConfiguration> savingWorldSaveData = new HashMap<>();
+	// data of the save files from which data got moved away, without the moved data: only written once all of the above
+	// save files have been written, so that the moved data is not lost if the save gets interrupted:
+	private FileConfiguration savingSourceMainSaveData = null;
+	private final Map<String, FileConfiguration> savingSourceWorldSaveData = new HashMap<>();
+	// the keys whose data got moved out of a save file, which got included in the current save (by save file):
+	private final Map<String, Set<String>> savingMovedKeysBySaveFile = new HashMap<>();
+	// data of the database rows which still need to be written during the current save (null for rows that get
+	// deleted):
+	private final Map<String, ConfigurationSection> savingRows = new LinkedHashMap<>();
+	// the periodic save task, only running if 'save-instantly' is disabled:
+	private int saveTaskId = -1;
 	// the task which performs async file io during a save:
 	private int saveIOTask = -1;
 	// the saving callback of the current save: may need to be run manually during plugin disable or save abortion
@@ -95,7 +176,15 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	private int deletedShopkeepersCount = 0;
 
 	public SKShopkeeperStorage(SKShopkeepersPlugin plugin) {
+		this(plugin, plugin.getDataFolder(), SaveFileWriter.DEFAULT_FILE_OPERATIONS);
+	}
+
+	// also used by tests
+	SKShopkeeperStorage(SKShopkeepersPlugin plugin, File dataFolder, SaveFileWriter.FileOperations fileOperations) {
 		this.plugin = plugin;
+		this.saveFileWriter = new SaveFileWriter(new File(dataFolder, "save.yml").toPath(), fileOperations);
+		this.worldSaveFiles = new ShardedSaveFiles(new File(dataFolder, "data").toPath(), fileOperations);
+		this.database = new SQLiteShopkeeperDatabase(new File(dataFolder, "save.db").toPath());
 	}
 
 	public void onEnable() {
@@ -119,24 +208,61 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		// reset a few things:
 		this.clearSaveData();
 		savingShopkeepers.clear();
+		savingOwnerLastSeen = false;
+		this.clearSavingData();
 		savingDisabled = false;
 		lastSavingErrorMsgTimestamp = 0L;
 		dirty = false;
+		dirtySinceTimestamp = 0L;
 		delayedSaveTaskId = -1;
+		writeBehindTaskId = -1;
+		saveTaskId = -1;
+		lastWriteTimestamp = 0L;
+		coalescedSaveRequests = 0;
+		totalCoalescedSaveRequests = 0L;
+		totalWrites = 0L;
 		saveIOTask = -1;
 		syncSavingCallback = null;
 		abortSave = false;
 		saveAgain = false;
 		shopkeepersToDelete.clear();
 		deletedShopkeepersCount = 0;
+
+		try {
+			database.close();
+		} catch (SQLException e) {
+			Log.warning("Failed to close the database!", e);
+		}
 	}
 
 	private void startSaveTask() {
-		Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+		saveTaskId = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
 			if (this.isDirty()) {
 				this.saveNow();
 			}
-		}, 6000, 6000); // 5 minutes
+		}, 6000, 6000).getTaskId(); // 5 minutes
+	}
+
+	private void stopSaveTask() {
+		if (saveTaskId != -1) {
+			Bukkit.getScheduler().cancelTask(saveTaskId);
+			saveTaskId = -1;
+		}
+	}
+
+	/**
+	 * Applies a change of the 'save-instantly' setting at runtime.
+	 */
+	public void onSettingsChanged() {
+		if (Settings.saveInstantly) {
+			this.stopSaveTask();
+			// pending changes would otherwise have waited for the periodic save task:
+			if (this.isDirty()) {
+				this.save();
+			}
+		} else if (saveTaskId == -1) {
+			this.startSaveTask();
+		}
 	}
 
 	private SKShopkeeperRegistry getShopkeeperRegistry() {
@@ -166,65 +292,86 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	}
 
 	private File getSaveFile() {
-		return new File(plugin.getDataFolder(), "save.yml");
+		return saveFileWriter.getSaveFile().toFile();
 	}
 
-	private File getTempSaveFile() {
-		File saveFile = this.getSaveFile();
-		return new File(saveFile.getParentFile(), saveFile.getName() + ".temp");
+	private static Charset getFileCharset(String fileEncoding) {
+		return StringUtils.isEmpty(fileEncoding) ? StandardCharsets.UTF_8 : Charset.forName(fileEncoding);
 	}
 
-	// SHOPKEEPER IDs
+	// SAVE FILE ASSIGNMENT
 
-	// does not increment the shopkeeper id counter on its own (we don't want to increment it in case the shopkeeper
-	// creation fails)
-	public int getNextShopkeeperId() {
-		int nextId = nextShopkeeperId; // can end up negative after increments due to overflows
-		if (nextId <= 0 || !this.isUnusedId(nextId)) {
-			// try to use an id larger than the max currently used id:
-			int maxId = maxStoredShopkeeperId;
-			for (Shopkeeper shopkeeper : this.getShopkeeperRegistry().getAllShopkeepers()) {
-				int id = shopkeeper.getId();
-				if (id > maxId) {
-					maxId = id;
-				}
-			}
-			assert maxId > 0;
-			if (maxId < Integer.MAX_VALUE) {
-				nextId = maxId + 1;
-			} else {
-				// find the first unused id:
-				nextId = 1;
-				while (!this.isUnusedId(nextId)) {
-					nextId++;
-					if (nextId <= 0) {
-						// overflow, all ids are in use..:
-						throw new IllegalStateException("No unused shopkeeper ids available!");
-					}
-				}
-				assert nextId > 0;
+	private static boolean isShopkeeperKey(String key) {
+		return !key.equals(DATA_VERSION_KEY) && !key.equals(OWNER_LAST_SEEN_KEY) && !key.equals(MAX_SHOPKEEPER_ID_KEY);
+	}
+
+	// the save file in which the given shopkeeper data is supposed to be stored according to the current settings:
+	private String getSaveFileFor(ConfigurationSection shopkeeperSection) {
+		if (!Settings.saveFilePerWorld) return MAIN_SAVE_FILE;
+		String worldName = shopkeeperSection.getString("world");
+		if (StringUtils.isEmpty(worldName)) return MAIN_SAVE_FILE; // ex. virtual shopkeepers
+		return worldName;
+	}
+
+	// returns true if the data got moved from a different save file, in which case both save files get marked dirty
+	private boolean assignSaveFile(String key, String saveFileName) {
+		String previousSaveFile = saveFileByKey.put(key, saveFileName);
+		if (saveFileName.equals(previousSaveFile)) return false; // unchanged
+		keysBySaveFile.computeIfAbsent(saveFileName, k -> new LinkedHashSet<>()).add(key);
+		if (previousSaveFile == null) return false;
+		this.removeFromSaveFile(key, previousSaveFile);
+		// the data only gets removed from the previous save file once it has been written to the new save file:
+		movedKeysBySaveFile.computeIfAbsent(previousSaveFile, k -> new HashSet<>()).add(key);
+		dirtySaveFiles.add(saveFileName);
+		return true;
+	}
+
+	private void unassignSaveFile(String key) {
+		String previousSaveFile = saveFileByKey.remove(key);
+		if (previousSaveFile != null) {
+			this.removeFromSaveFile(key, previousSaveFile);
+		}
+	}
+
+	private void removeFromSaveFile(String key, String saveFileName) {
+		Set<String> keys = keysBySaveFile.get(saveFileName);
+		if (keys != null) {
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				keysBySaveFile.remove(saveFileName);
 			}
-			// remember the found next id:
-			nextShopkeeperId = nextId;
 		}
-		return nextId;
+		dirtySaveFiles.add(saveFileName);
 	}
 
-	// also takes ids of stored shopkeepers in account that couldn't be loaded for some reason
-	private boolean isUnusedId(int id) {
-		return (!saveData.contains(String.valueOf(id)) && this.getShopkeeperRegistry().getShopkeeperById(id) == null);
+	// OWNER LAST SEEN
+
+	public OwnerLastSeenCache getOwnerLastSeenCache() {
+		return ownerLastSeenCache;
+	}
+
+	// SHOPKEEPER IDs
+
+	// does not mark the id as used on its own (we don't want to use up the id in case the shopkeeper creation fails)
+	public int getNextShopkeeperId() {
+		return idAllocator.getNextId();
 	}
 
 	public void onShopkeeperIdUsed(int id) {
-		if (id >= nextShopkeeperId) nextShopkeeperId = id + 1;
+		idAllocator.markUsed(id);
 	}
 
 	// SHOPKEEPER DATA REMOVAL
 
 	private void clearSaveData() {
 		ConfigUtils.clearConfigSection(saveData);
-		maxStoredShopkeeperId = 0;
-		nextShopkeeperId = 1;
+		idAllocator.clear();
+		ownerLastSeenCache.clear();
+		saveFileByKey.clear();
+		keysBySaveFile.clear();
+		dirtySaveFiles.clear();
+		movedKeysBySaveFile.clear();
+		dirtyRowKeys.clear();
 
 		// Setup data version as first / top entry:
 		// Explicitly setting the 'missing data version' value here ensures that the data version will be the first
@@ -242,6 +389,12 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		} else {
 			String key = String.valueOf(shopkeeper.getId());
 			saveData.set(key, null);
+			idAllocator.markUnused(shopkeeper.getId());
+			if (usingDatabase) {
+				dirtyRowKeys.add(key);
+			} else {
+				this.unassignSaveFile(key);
+			}
 			deletedShopkeepersCount++;
 		}
 	}
@@ -274,45 +427,33 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		// unload all currently loaded shopkeepers:
 		SKShopkeeperRegistry shopkeeperRegistry = this.getShopkeeperRegistry();
 		shopkeeperRegistry.unloadAllShopkeepers();
-		this.clearSaveData();
 
-		File saveFile = this.getSaveFile();
-		if (!saveFile.exists()) {
-			File tempSaveFile = this.getTempSaveFile();
-			if (tempSaveFile.exists()) {
-				// load from temporary save file instead:
-				Log.warning("Found no save file, but an existing temporary save file! (" + tempSaveFile.getName() + ")");
-				Log.warning("This might indicate an issue during a previous saving attempt!");
-				Log.warning("Trying to load the shopkeepers data from this temporary save file instead!");
-
-				saveFile = tempSaveFile;
-			} else {
-				// save file does not exist yet -> no shopkeeper data available
-				// silently setup data version and abort:
-				saveData.set(DATA_VERSION_KEY, DATA_VERSION);
-				return true;
-			}
+		Boolean dataExists = this.loadSaveData();
+		if (dataExists == null) return false; // disable without save
+		if (!dataExists) {
+			// save file does not exist yet -> no shopkeeper data available
+			// silently setup data version and abort:
+			saveData.set(DATA_VERSION_KEY, DATA_VERSION);
+			return true;
 		}
 
-		try {
-			if (!StringUtils.isEmpty(Settings.fileEncoding)) {
-				// load with specified charset:
-				try (	FileInputStream stream = new FileInputStream(saveFile);
-						InputStreamReader reader = new InputStreamReader(stream, Settings.fileEncoding)) {
-					saveData.load(reader);
-				}
-			} else {
-				// load with default charset handling:
-				saveData.load(saveFile);
-			}
-		} catch (Exception e) {
-			Log.severe("Failed to load save file!", e);
-			return false; // disable without save
+		// load owner last seen data:
+		ConfigurationSection ownerLastSeenSection = saveData.getConfigurationSection(OWNER_LAST_SEEN_KEY);
+		if (ownerLastSeenSection != null) {
+			ownerLastSeenCache.load(ownerLastSeenSection);
 		}
 
+		// the ids of deleted shopkeepers don't get reused:
+		idAllocator.raiseHighWaterMark(saveData.getInt(MAX_SHOPKEEPER_ID_KEY, 0));
+
 		Set<String> keys = saveData.getKeys(false);
 		assert keys.contains(DATA_VERSION_KEY); // contains at least the (missing) data-version entry
-		int shopkeepersCount = (keys.size() - 1);
+		int shopkeepersCount = 0;
+		for (String key : keys) {
+			if (isShopkeeperKey(key)) {
+				shopkeepersCount++;
+			}
+		}
 		if (shopkeepersCount == 0) {
 			// no shopkeeper data exists yet: silently setup/update data version and abort
 			saveData.set(DATA_VERSION_KEY, DATA_VERSION);
@@ -327,10 +468,11 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					+ "': Forcefully marking all loaded shopkeepers as dirty.");
 			// update data version:
 			saveData.set(DATA_VERSION_KEY, DATA_VERSION);
+			dirtySaveFiles.add(MAIN_SAVE_FILE);
 		}
 
 		for (String key : keys) {
-			if (key.equals(DATA_VERSION_KEY)) continue;
+			if (!isShopkeeperKey(key)) continue;
 
 			Integer idInt = ConversionUtils.parseInt(key);
 			if (idInt == null || idInt <= 0) {
@@ -338,8 +480,10 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 				continue;
 			}
 			int id = idInt.intValue();
-			if (id > maxStoredShopkeeperId) {
-				maxStoredShopkeeperId = id;
+			if (!idAllocator.markUsed(id)) {
+				// ex. if the same id is stored with different keys ('1' and '01'):
+				Log.warning("Failed to load shopkeeper '" + key + "': Duplicate id: " + id);
+				continue;
 			}
 
 			ConfigurationSection shopkeeperSection = saveData.getConfigurationSection(key);
@@ -383,6 +527,284 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		return true;
 	}
 
+	// loads the save data from the save files or the database (depending on the storage type), and imports the data of
+	// the previous storage type if there is no data for the current storage type yet
+	// returns true if there is any data, false if there is no data, and null if loading failed
+	// also used by tests
+	Boolean loadSaveData() {
+		this.clearSaveData();
+		usingDatabase = "sqlite".equals(Settings.storageType);
+
+		boolean dataExists;
+		if (usingDatabase) {
+			try {
+				database.open();
+				dataExists = this.loadDatabase();
+			} catch (Exception e) {
+				Log.severe("Failed to load the database!", e);
+				return null;
+			}
+			if (!dataExists) {
+				// import the data of any existing save files:
+				Boolean saveFilesLoaded = this.loadSaveFiles();
+				if (saveFilesLoaded == null) return null;
+				if (saveFilesLoaded) {
+					dataExists = true;
+					if (!this.importSaveFiles()) return null;
+				}
+			}
+		} else {
+			Boolean saveFilesLoaded = this.loadSaveFiles();
+			if (saveFilesLoaded == null) return null;
+			dataExists = saveFilesLoaded;
+			if (!dataExists && database.exists()) {
+				// export the data of the previously used database:
+				try {
+					database.open();
+					dataExists = this.loadDatabase();
+					database.close();
+				} catch (Exception e) {
+					Log.severe("Failed to load the database!", e);
+					return null;
+				}
+				if (dataExists && !this.exportDatabase()) return null;
+			}
+		}
+		return dataExists;
+	}
+
+	// loads the save file and world save files into the save data
+	// returns true if there is any data, false if there are no save files, and null if loading failed
+	private Boolean loadSaveFiles() {
+		// handle any temporary save file left behind by an interrupted previous save:
+		try {
+			saveFileWriter.recoverTempSaveFile();
+		} catch (IOException e) {
+			Log.severe("Failed to recover the temporary save file!", e);
+			return null;
+		}
+
+		File saveFile = this.getSaveFile();
+		boolean saveFileExists = saveFile.exists();
+		if (saveFileExists) {
+			try {
+				if (!StringUtils.isEmpty(Settings.fileEncoding)) {
+					// load with specified charset:
+					try (	FileInputStream stream = new FileInputStream(saveFile);
+							InputStreamReader reader = new InputStreamReader(stream, Settings.fileEncoding)) {
+						saveData.load(reader);
+					}
+				} else {
+					// load with default charset handling:
+					saveData.load(saveFile);
+				}
+			} catch (Exception e) {
+				Log.severe("Failed to load save file!", e);
+				return null;
+			}
+		}
+
+		// load the world save files (in parallel):
+		Map<String, YamlConfiguration> worldSaveData;
+		try {
+			worldSaveData = worldSaveFiles.loadAll(getFileCharset(Settings.fileEncoding));
+		} catch (Exception e) {
+			Log.severe("Failed to load world save files!", e);
+			return null;
+		}
+
+		if (!saveFileExists && worldSaveData.isEmpty()) {
+			return false; // no data
+		}
+		this.mergeWorldSaveData(worldSaveData, saveFileExists);
+		return true;
+	}
+
+	// loads the metadata and shopkeeper rows of the database into the save data
+	// returns true if the database contains any data
+	private boolean loadDatabase() throws SQLException {
+		Map<String, String> metadata = database.loadMetadata();
+		List<ShopkeeperRow> rows = database.loadShopkeepers();
+		if (metadata.isEmpty() && rows.isEmpty()) {
+			return false; // no data
+		}
+
+		Integer dataVersion = ConversionUtils.parseInt(metadata.get(DATA_VERSION_KEY));
+		saveData.set(DATA_VERSION_KEY, (dataVersion != null) ? dataVersion : MISSING_DATA_VERSION);
+		Integer maxShopkeeperId = ConversionUtils.parseInt(metadata.get(MAX_SHOPKEEPER_ID_KEY));
+		if (maxShopkeeperId != null) {
+			saveData.set(MAX_SHOPKEEPER_ID_KEY, maxShopkeeperId);
+		}
+		String ownerLastSeenData = metadata.get(OWNER_LAST_SEEN_KEY);
+		if (ownerLastSeenData != null) {
+			try {
+				saveData.set(OWNER_LAST_SEEN_KEY, parseYaml(ownerLastSeenData));
+			} catch (InvalidConfigurationException e) {
+				throw new IllegalStateException("Invalid data for '" + OWNER_LAST_SEEN_KEY + "' in the database!", e);
+			}
+		}
+
+		for (ShopkeeperRow row : rows) {
+			YamlConfiguration shopkeeperData;
+			try {
+				shopkeeperData = parseYaml(row.data);
+			} catch (InvalidConfigurationException e) {
+				// the row stays untouched in the database, and its id does not get reused:
+				Log.warning("Failed to load shopkeeper '" + row.id + "': Invalid data in the database!", e);
+				if (row.id > 0) {
+					idAllocator.markUsed(row.id);
+				}
+				continue;
+			}
+			saveData.set(String.valueOf(row.id), shopkeeperData);
+		}
+		return true;
+	}
+
+	private static YamlConfiguration parseYaml(String data) throws InvalidConfigurationException {
+		YamlConfiguration config = new YamlConfiguration();
+		config.loadFromString(data);
+		return config;
+	}
+
+	private static String toYamlString(ConfigurationSection section) {
+		YamlConfiguration config = new YamlConfiguration();
+		for (Map.Entry<String, Object> entry : section.getValues(false).entrySet()) {
+			config.set(entry.getKey(), entry.getValue());
+		}
+		return config.saveToString();
+	}
+
+	// writes the loaded data of the save files into the (empty) database, and then renames the save files to a backup
+	// returns false if writing the data failed
+	private boolean importSaveFiles() {
+		Log.info("Importing the shopkeepers data from the save file(s) into the database..");
+		// the data is no longer stored in separate save files:
+		saveFileByKey.clear();
+		keysBySaveFile.clear();
+		dirtySaveFiles.clear();
+		movedKeysBySaveFile.clear();
+		for (String key : saveData.getKeys(false)) {
+			if (!isShopkeeperKey(key)) continue;
+			if (ConversionUtils.parseInt(key) == null) {
+				Log.warning("Cannot import the data of shopkeeper '" + key + "': Invalid id: " + key);
+				continue;
+			}
+			dirtyRowKeys.add(key);
+		}
+		dirtySaveFiles.add(MAIN_SAVE_FILE); // metadata
+		this.prepareSaveFiles();
+		try {
+			this.writeDatabaseChanges();
+		} catch (Exception e) {
+			Log.severe("Failed to import the shopkeepers data into the database!", e);
+			return false;
+		} finally {
+			this.clearSavingData();
+		}
+
+		long timestamp = System.currentTimeMillis();
+		backupFile(saveFileWriter.getSaveFile(), timestamp);
+		backupFile(worldSaveFiles.getDirectory(), timestamp);
+		return true;
+	}
+
+	// writes the data loaded from the database into the save files, and then renames the database file to a backup
+	// returns false if writing the data failed
+	private boolean exportDatabase() {
+		Log.info("Exporting the shopkeepers data from the database into the save file(s)..");
+		this.mergeWorldSaveData(Collections.emptyMap(), true);
+		dirtySaveFiles.add(MAIN_SAVE_FILE);
+		dirtySaveFiles.addAll(keysBySaveFile.keySet());
+		this.prepareSaveFiles();
+		try {
+			this.writeSaveFiles(getFileCharset(Settings.fileEncoding));
+		} catch (Exception e) {
+			Log.severe("Failed to export the shopkeepers data from the database into the save file(s)!", e);
+			return false;
+		} finally {
+			this.clearSavingData();
+		}
+
+		Path databaseFile = database.getDatabaseFile();
+		long timestamp = System.currentTimeMillis();
+		backupFile(databaseFile, timestamp);
+		// any left over journal files:
+		backupFile(databaseFile.resolveSibling(databaseFile.getFileName() + "-wal"), timestamp);
+		backupFile(databaseFile.resolveSibling(databaseFile.getFileName() + "-shm"), timestamp);
+		return true;
+	}
+
+	// renames the given file or directory, if it exists, so that it no longer gets loaded
+	private static void backupFile(Path file, long timestamp) {
+		if (!Files.exists(file)) return;
+		Path backupFile = file.resolveSibling(file.getFileName() + ".backup-" + timestamp);
+		try {
+			Files.move(file, backupFile);
+			Log.info("Renamed '" + file.getFileName() + "' to '" + backupFile.getFileName() + "'.");
+		} catch (IOException e) {
+			Log.warning("Failed to rename '" + file.getFileName() + "' to '" + backupFile.getFileName()
+					+ "'! It needs to be removed manually, since its data is outdated now.", e);
+		}
+	}
+
+	// merges the loaded world save data into the save data, and moves shopkeepers data into the save files that match
+	// the current settings
+	private void mergeWorldSaveData(Map<String, YamlConfiguration> worldSaveData, boolean mainSaveFileLoaded) {
+		for (String key : saveData.getKeys(false)) {
+			if (!isShopkeeperKey(key)) continue;
+			this.assignSaveFile(key, MAIN_SAVE_FILE);
+		}
+
+		int worldDataVersion = Integer.MAX_VALUE;
+		for (Map.Entry<String, YamlConfiguration> entry : worldSaveData.entrySet()) {
+			String worldName = entry.getKey();
+			YamlConfiguration worldData = entry.getValue();
+			worldDataVersion = Math.min(worldDataVersion, worldData.getInt(DATA_VERSION_KEY, MISSING_DATA_VERSION));
+			for (String key : worldData.getKeys(false)) {
+				if (!isShopkeeperKey(key)) continue;
+				Object data = worldData.get(key);
+				String previousSaveFile = saveFileByKey.get(key);
+				if (previousSaveFile != null) {
+					// this can happen if a previous save got interrupted while moving data between save files:
+					Log.warning("Shopkeeper '" + key + "' is stored in multiple save files ('"
+							+ (previousSaveFile.equals(MAIN_SAVE_FILE) ? saveFileWriter.getSaveFile().getFileName() : previousSaveFile)
+							+ "' and '" + worldName + "')! Keeping only one of them.");
+					dirtySaveFiles.add(previousSaveFile);
+					dirtySaveFiles.add(worldName);
+					// prefer the data of the save file in which the shopkeeper is supposed to be stored:
+					if (!(data instanceof ConfigurationSection)
+							|| !worldName.equals(this.getSaveFileFor((ConfigurationSection) data))) {
+						continue;
+					}
+				}
+				saveData.set(key, data);
+				this.assignSaveFile(key, worldName);
+			}
+		}
+		if (!mainSaveFileLoaded && !worldSaveData.isEmpty()) {
+			// use the data version of the world save files:
+			saveData.set(DATA_VERSION_KEY, worldDataVersion);
+		}
+
+		// move shopkeepers data into the save files that match the current settings:
+		int movedCount = 0;
+		for (String key : new ArrayList<>(saveFileByKey.keySet())) {
+			ConfigurationSection shopkeeperSection = saveData.getConfigurationSection(key);
+			if (shopkeeperSection == null) continue; // invalid data: stays in its current save file
+			if (this.assignSaveFile(key, this.getSaveFileFor(shopkeeperSection))) {
+				movedCount++;
+			}
+		}
+		if (movedCount > 0) {
+			Log.info("Moving the data of " + movedCount + " shopkeepers into different save files.");
+		}
+		if (!dirtySaveFiles.isEmpty()) {
+			// write the affected save files with the next save:
+			this.markDirty();
+		}
+	}
+
 	private enum MigrationResult {
 		NOTHING_MIGRATED,
 		MIGRATED,
@@ -410,18 +832,50 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	}
 
 	public void markDirty() {
-		dirty = true;
+		if (!dirty) {
+			dirty = true;
+			dirtySinceTimestamp = System.currentTimeMillis();
+		}
 	}
 
 	@Override
 	public void save() {
 		if (Settings.saveInstantly) {
-			this.saveNow();
+			this.saveWriteBehind();
 		} else {
 			this.markDirty();
 		}
 	}
 
+	// writes the save file immediately if the min interval since the last write has passed, and otherwise schedules a
+	// write, which includes all save requests arriving in the meantime:
+	private void saveWriteBehind() {
+		this.markDirty();
+		if (writeBehindTaskId != -1) {
+			// there is already a pending write:
+			coalescedSaveRequests++;
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		long nextWriteTimestamp = Math.min(lastWriteTimestamp + Settings.saveMinIntervalTicks * 50L,
+				dirtySinceTimestamp + Settings.saveMaxDirtyAgeTicks * 50L);
+		long delayMillis = nextWriteTimestamp - now;
+		if (delayMillis <= 0L && !this.isCurrentlySavingAsync()) {
+			this.saveNow();
+			return;
+		}
+
+		coalescedSaveRequests++;
+		long delayTicks = Math.max(1L, (delayMillis + 49L) / 50L); // round up
+		writeBehindTaskId = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+			writeBehindTaskId = -1;
+			if (this.isDirty()) {
+				this.saveNow();
+			}
+		}, delayTicks).getTaskId();
+	}
+
 	@Override
 	public void saveDelayed() {
 		this.markDirty();
@@ -491,6 +945,10 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					Thread.currentThread().interrupt();
 				}
 			}
+			// the async task might have scheduled a retry of a failed saving attempt in the meantime, which we cancel
+			// here (in case the retry is about to start, it notices that it got cancelled via the changed generation):
+			asyncSavingGeneration++;
+			Bukkit.getScheduler().cancelTask(saveIOTask);
 			// at this point the async task was successfully cancelled or has finished execution
 		}
 
@@ -520,11 +978,19 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 			Bukkit.getScheduler().cancelTask(delayedSaveTaskId);
 			delayedSaveTaskId = -1;
 		}
+		// stop pending write-behind task (the save requests get included in this save):
+		if (writeBehindTaskId != -1) {
+			Bukkit.getScheduler().cancelTask(writeBehindTaskId);
+			writeBehindTaskId = -1;
+		}
 
 		// is another async save task already running?
 		if (this.isCurrentlySavingAsync()) {
 			if (async) {
 				// set flag which triggers a new save once that current task is done:
+				if (saveAgain) {
+					coalescedSaveRequests++;
+				}
 				saveAgain = true;
 				currentlyProcessingSave = false;
 				return;
@@ -539,6 +1005,15 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		saveResult.async = async;
 		saveResult.startTime = System.currentTimeMillis();
 
+		// write-behind statistics:
+		lastWriteTimestamp = saveResult.startTime;
+		totalWrites++;
+		totalCoalescedSaveRequests += coalescedSaveRequests;
+		saveResult.coalescedSaveRequests = coalescedSaveRequests;
+		saveResult.totalWrites = totalWrites;
+		saveResult.totalCoalescedSaveRequests = totalCoalescedSaveRequests;
+		coalescedSaveRequests = 0;
+
 		// store data of dirty shopkeepers into memory configuration:
 		saveResult.dirtyShopkeepersCount = 0;
 		for (AbstractShopkeeper shopkeeper : this.getShopkeeperRegistry().getAllShopkeepers()) {
@@ -563,14 +1038,45 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 				continue;
 			}
 
+			if (usingDatabase) {
+				dirtyRowKeys.add(sectionKey);
+			} else {
+				String saveFileName = this.getSaveFileFor(newSection);
+				this.assignSaveFile(sectionKey, saveFileName);
+				dirtySaveFiles.add(saveFileName);
+			}
+
 			savingShopkeepers.add(shopkeeper);
 			shopkeeper.onSave();
 		}
 
+		// store changed owner last seen data:
+		if (ownerLastSeenCache.isDirty()) {
+			ConfigurationSection ownerLastSeenSection = saveData.getConfigurationSection(OWNER_LAST_SEEN_KEY);
+			if (ownerLastSeenSection == null) {
+				ownerLastSeenSection = saveData.createSection(OWNER_LAST_SEEN_KEY);
+			}
+			saveResult.ownerLastSeenCount = ownerLastSeenCache.save(ownerLastSeenSection);
+			savingOwnerLastSeen = true;
+			dirtySaveFiles.add(MAIN_SAVE_FILE);
+		} else {
+			saveResult.ownerLastSeenCount = 0;
+		}
+
+		// store changed max shopkeeper id:
+		int maxShopkeeperId = idAllocator.getHighWaterMark();
+		if (saveData.getInt(MAX_SHOPKEEPER_ID_KEY, 0) != maxShopkeeperId) {
+			saveData.set(MAX_SHOPKEEPER_ID_KEY, maxShopkeeperId);
+			dirtySaveFiles.add(MAIN_SAVE_FILE);
+		}
+
 		// store number of deleted shopkeepers (for debugging purposes):
 		saveResult.deletedShopkeepersCount = deletedShopkeepersCount;
 		deletedShopkeepersCount = 0;
 
+		// prepare the data of the save files that need to be written:
+		this.prepareSaveFiles();
+
 		// time to store shopkeeper data in memory configuration:
 		saveResult.packingDuration = System.currentTimeMillis() - saveResult.startTime;
 
@@ -578,6 +1084,7 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		// however, the flag gets reset here (and not just after successful saving), so that any saving requests that
 		// arrive in the meantime get noticed and can cause another save later:
 		dirty = false;
+		dirtySinceTimestamp = 0L;
 
 		// gets run on the main thread after the save has been completed or aborted (counts as failure):
 		// note: this needs to be a new runnable (cannot be a lambda), in order to be able to reliable use the objects
@@ -603,10 +1110,16 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 				// mark all shopkeepers as dirty again, whose data we were not able to save:
 				if (saveResult.state != SaveResult.State.SUCCESS) { // failure or aborted or cancelled
-					if (!savingShopkeepers.isEmpty()) {
+					// the save files and database rows we were not able to write need to be written again:
+					restoreUnsavedData();
+					if (!savingShopkeepers.isEmpty() || savingOwnerLastSeen || !savingSaveFiles.isEmpty()
+							|| !savingRows.isEmpty()) {
 						for (AbstractShopkeeper shopkeeper : savingShopkeepers) {
 							shopkeeper.markDirty();
 						}
+						// the owner last seen data is already contained in the save data and gets written with the next
+						// save, which we request here:
+						markDirty();
 						// request another delayed save (if there isn't an abort request):
 						if (!abortSave) {
 							saveDelayed();
@@ -617,6 +1130,8 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					deletedShopkeepersCount = saveResult.deletedShopkeepersCount;
 				}
 				savingShopkeepers.clear();
+				savingOwnerLastSeen = false;
+				clearSavingData();
 
 				// remove data of shopkeepers that have been deleted during the save:
 				for (AbstractShopkeeper deletedShopkeeper : shopkeepersToDelete) {
@@ -667,237 +1182,323 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 		if (!async) {
 			// sync file io:
-			this.saveDataToFile(saveData, savingCallback);
+			// retried without delay, since we don't want to block the main thread:
+			int savingAttempt = 1;
+			while (!this.saveDataToFile(savingAttempt, SYNC_SAVING_MAX_ATTEMPTS)) {
+				savingAttempt++;
+			}
+			savingCallback.run();
 		} else {
 			// async file io:
 			final long asyncTaskSubmittedTime = System.currentTimeMillis();
+			final int generation = asyncSavingGeneration;
 			saveIOTask = Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
 				// note: if the task gets cancelled, this never gets run (everything that always needs to happen, has to
 				// be placed or copied into the callback as well)
 				saveResult.asyncTaskDelay = System.currentTimeMillis() - asyncTaskSubmittedTime;
-				// synchronization, so that only one thread at a time attempts to mess with the save files
-				final long ioLockStartTime = System.currentTimeMillis();
-				synchronized (SAVING_IO_LOCK) {
-					saveResult.ioLockAcquireDuration = System.currentTimeMillis() - ioLockStartTime;
-					// did we get an abort request? -> skip saving:
-					if (abortSave) {
-						saveResult.state = SaveResult.State.ABORTED;
-						// if aborted, the syncSavingCallback needs to be run manually
-					} else {
-						// actual saving IO:
-						this.saveDataToFile(saveData, savingCallback);
-						assert saveResult.state == SaveResult.State.SUCCESS || saveResult.state == SaveResult.State.FAILURE;
-					}
-					// async saving is over:
-					// it's important that the save result state gets set before the lock is released, because otherwise
-					// we cannot differentiate between whether the running task has already finished or is still going
-					// to acquire the lock
-					assert saveResult.state != SaveResult.State.NOT_YET_STARTED;
-
-					// notify all possibly waiting threads:
-					SAVING_IO_LOCK.notifyAll();
-				}
+				this.runAsyncSavingAttempt(savingCallback, 1, generation);
 			}).getTaskId();
 		}
 		currentlyProcessingSave = false;
 	}
 
-	// max total delay: 500ms
-	private static final int SAVING_MAX_ATTEMPTS = 20;
-	private static final long SAVING_ATTEMPTS_DELAY_MILLIS = 25;
-	private static final Object SAVING_IO_LOCK = new Object();
+	// runs async
+	private void runAsyncSavingAttempt(Runnable savingCallback, int savingAttempt, int generation) {
+		// synchronization, so that only one thread at a time attempts to mess with the save files
+		final long ioLockStartTime = System.currentTimeMillis();
+		synchronized (SAVING_IO_LOCK) {
+			if (generation != asyncSavingGeneration) {
+				// this save got already cancelled and handled while the task was about to start:
+				return;
+			}
+			saveResult.ioLockAcquireDuration += System.currentTimeMillis() - ioLockStartTime;
+			// did we get an abort request? -> skip saving:
+			if (abortSave) {
+				saveResult.state = SaveResult.State.ABORTED;
+				// if aborted, the syncSavingCallback needs to be run manually
+			} else {
+				// actual saving IO:
+				if (!this.saveDataToFile(savingAttempt, ASYNC_SAVING_MAX_ATTEMPTS)) {
+					// retry with a delay, without blocking this thread in the meantime:
+					BukkitTask retryTask = SchedulerUtils.runAsyncTaskLaterOrOmit(plugin, () -> {
+						this.runAsyncSavingAttempt(savingCallback, savingAttempt + 1, generation);
+					}, ASYNC_SAVING_RETRY_DELAY_TICKS);
+					if (retryTask != null) {
+						// the save result state stays NOT_YET_STARTED until the save is over:
+						saveIOTask = retryTask.getTaskId();
+						SAVING_IO_LOCK.notifyAll();
+						return;
+					}
+					// the plugin got disabled in the meantime: this counts as failure
+					saveResult.state = SaveResult.State.FAILURE;
+					Log.severe("Saving failed: Could not schedule another saving attempt!");
+				}
+				assert saveResult.state == SaveResult.State.SUCCESS || saveResult.state == SaveResult.State.FAILURE;
+				savingCallback.run();
+			}
+			// async saving is over:
+			// it's important that the save result state gets set before the lock is released, because otherwise
+			// we cannot differentiate between whether the running task has already finished or is still going
+			// to acquire the lock
+			assert saveResult.state != SaveResult.State.NOT_YET_STARTED;
+
+			// notify all possibly waiting threads:
+			SAVING_IO_LOCK.notifyAll();
+		}
+	}
 
-	// can be run async and sync
-	// TODO saveToString on main thread and only do the actual file writing async?
-	// Because Bukkit's serialization API is not strictly thread-safe..
-	private void saveDataToFile(FileConfiguration config, Runnable callback) {
-		assert config != null;
-		// actual IO:
-		final long ioStartTime = System.currentTimeMillis();
+	// sync saves block the main thread, so they are only retried a few times without delay:
+	private static final int SYNC_SAVING_MAX_ATTEMPTS = 3;
+	// async saves are retried via delayed async tasks (max total delay: 2 seconds):
+	private static final int ASYNC_SAVING_MAX_ATTEMPTS = 20;
+	private static final long ASYNC_SAVING_RETRY_DELAY_TICKS = 2L;
+	private static final Object SAVING_IO_LOCK = new Object();
+	// gets incremented when a pending async save gets cancelled (guarded by the SAVING_IO_LOCK):
+	private int asyncSavingGeneration = 0;
+
+	private void clearSavingData() {
+		savingSaveFiles.clear();
+		savingMainSaveData = null;
+		savingWorldSaveData.clear();
+		savingSourceMainSaveData = null;
+		savingSourceWorldSaveData.clear();
+		savingMovedKeysBySaveFile.clear();
+		savingRows.clear();
+	}
 
-		File saveFile = this.getSaveFile();
-		File tempSaveFile = this.getTempSaveFile();
-
-		// saving procedure:
-		// inside a retry-loop:
-		// * if there is a temporary save file:
-		// * * if there is no save file: rename temporary save file to save file
-		// * * else: remove temporary save file
-		// * create parent directories
-		// * create new temporary save file
-		// * save data to temporary save file
-		// * remove old save file
-		// * rename temporary save file to save file
-
-		int savingAttempt = 0;
-		boolean problem = false;
-		String error = null;
-		Exception exception;
-		boolean printStacktrace = true;
-
-		while (++savingAttempt <= SAVING_MAX_ATTEMPTS) {
-			// reset problem variables:
-			problem = false;
-			error = null;
-			exception = null;
+	// marks the save files and database rows of the current save dirty again, including any data that still needs to be
+	// moved between save files
+	private void restoreUnsavedData() {
+		dirtySaveFiles.addAll(savingSaveFiles);
+		dirtyRowKeys.addAll(savingRows.keySet());
+		for (Map.Entry<String, Set<String>> entry : savingMovedKeysBySaveFile.entrySet()) {
+			movedKeysBySaveFile.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+		}
+	}
 
-			try {
-				// handle already existing temporary save file:
-				if (!problem) {
-					if (tempSaveFile.exists()) {
-						// check write permission:
-						if (!tempSaveFile.canWrite()) {
-							error = "Cannot write to temporary save file! (" + tempSaveFile.getName() + ")";
-							problem = true;
-						}
+	// prepares the data of the dirty save files (or database rows) for the current save
+	// runs on the main thread, while there is no async save in progress
+	private void prepareSaveFiles() {
+		assert savingSaveFiles.isEmpty() && savingWorldSaveData.isEmpty() && savingSourceWorldSaveData.isEmpty()
+				&& savingMovedKeysBySaveFile.isEmpty() && savingRows.isEmpty();
+		if (usingDatabase) {
+			for (String key : dirtyRowKeys) {
+				// null if the shopkeeper got deleted:
+				savingRows.put(key, saveData.getConfigurationSection(key));
+			}
+			dirtyRowKeys.clear();
+			if (dirtySaveFiles.isEmpty() && savingRows.isEmpty()) {
+				// explicit save request without any changes: write the metadata
+				dirtySaveFiles.add(MAIN_SAVE_FILE);
+			}
+			// the dirty MAIN_SAVE_FILE indicates changed metadata:
+			savingSaveFiles.addAll(dirtySaveFiles);
+			dirtySaveFiles.clear();
+			return;
+		}
 
-						if (!problem) {
-							if (!saveFile.exists()) {
-								// if only the temporary file exists, but the actual save file does not, this might
-								// indicate, that a previous saving attempt saved to the temporary file and removed
-								// the
-								// actual save file, but wasn't able to then rename the temporary file to the actual
-								// save file
-								// -> the temporary file might contain the only backup of saved data, don't remove
-								// it!
-								// -> instead we try to rename it to make it the new 'actual save file' and then
-								// continue the saving procedure
-
-								Log.warning("Found an already existing temporary save file, but no old save file! (" + tempSaveFile.getName() + ")");
-								Log.warning("This might indicate an issue during a previous saving attempt!");
-								Log.warning("Trying to rename the temporary save file to use it as 'existing old save data', and then continue the saving!");
-
-								// rename temporary save file:
-								if (!tempSaveFile.renameTo(saveFile)) {
-									error = "Couldn't rename temporary save file! (" + tempSaveFile.getName() + " to " + saveFile.getName() + ")";
-									problem = true;
-								}
-							} else {
-								// remove old temporary save file:
-								if (!tempSaveFile.delete()) {
-									error = "Couldn't delete existing temporary save file! (" + tempSaveFile.getName() + ")";
-									problem = true;
-								}
-							}
-						}
-					}
+		if (dirtySaveFiles.isEmpty()) {
+			// explicit save request without any changes: write the main save file
+			dirtySaveFiles.add(MAIN_SAVE_FILE);
+		}
+		savingMovedKeysBySaveFile.putAll(movedKeysBySaveFile);
+		movedKeysBySaveFile.clear();
+		for (String saveFileName : dirtySaveFiles) {
+			savingSaveFiles.add(saveFileName);
+			if (saveFileName.equals(MAIN_SAVE_FILE)) continue;
+			Set<String> keys = keysBySaveFile.getOrDefault(saveFileName, Collections.emptySet());
+			Set<String> movedKeys = this.getMovedKeys(saveFileName);
+			// null if the save file no longer contains any data: it gets deleted
+			savingWorldSaveData.put(saveFileName, this.createWorldSaveData(keys, movedKeys));
+			if (!movedKeys.isEmpty()) {
+				savingSourceWorldSaveData.put(saveFileName, this.createWorldSaveData(keys, Collections.emptySet()));
+			}
+		}
+		dirtySaveFiles.clear();
+
+		if (savingSaveFiles.contains(MAIN_SAVE_FILE)) {
+			Set<String> keys = keysBySaveFile.getOrDefault(MAIN_SAVE_FILE, Collections.emptySet());
+			Set<String> movedKeys = this.getMovedKeys(MAIN_SAVE_FILE);
+			boolean onlyMainSaveFile = keysBySaveFile.isEmpty()
+					|| (keysBySaveFile.size() == 1 && keysBySaveFile.containsKey(MAIN_SAVE_FILE));
+			if (onlyMainSaveFile && movedKeys.isEmpty()) {
+				savingMainSaveData = saveData;
+			} else {
+				savingMainSaveData = this.createMainSaveData(keys, movedKeys);
+				if (!movedKeys.isEmpty()) {
+					savingSourceMainSaveData = this.createMainSaveData(keys, Collections.emptySet());
 				}
+			}
+		}
+	}
 
-				// make sure that the parent directories exist:
-				if (!problem) {
-					File parentDir = tempSaveFile.getParentFile();
-					if (parentDir != null && !parentDir.exists()) {
-						if (!parentDir.mkdirs()) {
-							error = "Couldn't create parent directories for temporary save file! (" + parentDir.getAbsolutePath() + ")";
-							problem = true;
-						}
-					}
-				}
+	// the keys of the current save whose data got moved out of the given save file, and is still contained in a
+	// different save file
+	private Set<String> getMovedKeys(String saveFileName) {
+		Set<String> movedKeys = savingMovedKeysBySaveFile.get(saveFileName);
+		if (movedKeys == null) return Collections.emptySet();
+		Set<String> keys = new LinkedHashSet<>();
+		for (String key : movedKeys) {
+			String currentSaveFile = saveFileByKey.get(key);
+			// skip the data of deleted shopkeepers, and data that got moved back into the save file:
+			if (currentSaveFile == null || currentSaveFile.equals(saveFileName)) continue;
+			keys.add(key);
+		}
+		return keys;
+	}
 
-				// create new temporary save file:
-				if (!problem) {
-					try {
-						tempSaveFile.createNewFile();
-					} catch (Exception e) {
-						error = "Couldn't create temporary save file! (" + tempSaveFile.getName() + ") : " + e.getMessage();
-						exception = e;
-						problem = true;
-					}
-				}
+	// returns null if there is no data
+	private YamlConfiguration createWorldSaveData(Set<String> keys, Set<String> movedKeys) {
+		if (keys.isEmpty() && movedKeys.isEmpty()) return null;
+		YamlConfiguration worldData = new YamlConfiguration();
+		worldData.set(DATA_VERSION_KEY, DATA_VERSION);
+		for (String key : keys) {
+			worldData.set(key, saveData.get(key));
+		}
+		for (String key : movedKeys) {
+			worldData.set(key, saveData.get(key));
+		}
+		return worldData;
+	}
 
-				// write shopkeeper data to temporary save file:
-				if (!problem) {
-					PrintWriter writer = null;
-					try {
-						String fileEncoding = Settings.async().fileEncoding;
-						if (fileEncoding != null && !fileEncoding.isEmpty()) {
-							writer = new PrintWriter(tempSaveFile, fileEncoding);
-							writer.write(config.saveToString());
-						} else {
-							config.save(tempSaveFile);
-						}
-					} catch (Exception e) {
-						error = "Couldn't save data to temporary save file! (" + tempSaveFile.getName() + ") : " + e.getMessage();
-						exception = e;
-						problem = true;
-					} finally {
-						if (writer != null) {
-							writer.close();
-						}
-					}
-				}
+	private YamlConfiguration createMainSaveData(Set<String> keys, Set<String> movedKeys) {
+		YamlConfiguration mainData = new YamlConfiguration();
+		mainData.set(DATA_VERSION_KEY, saveData.get(DATA_VERSION_KEY));
+		mainData.set(OWNER_LAST_SEEN_KEY, saveData.get(OWNER_LAST_SEEN_KEY));
+		mainData.set(MAX_SHOPKEEPER_ID_KEY, saveData.get(MAX_SHOPKEEPER_ID_KEY));
+		for (String key : keys) {
+			mainData.set(key, saveData.get(key));
+		}
+		for (String key : movedKeys) {
+			mainData.set(key, saveData.get(key));
+		}
+		return mainData;
+	}
 
-				// delete old save file:
-				if (!problem) {
-					if (saveFile.exists()) {
-						// check write permission:
-						if (!saveFile.canWrite()) {
-							error = "Cannot write to save file! (" + saveFile.getName() + ")";
-							problem = true;
-						} else {
-							// delete old save file:
-							if (!saveFile.delete()) {
-								error = "Couldn't delete existing old save file! (" + saveFile.getName() + ")";
-								problem = true;
-							}
-						}
-					}
-				}
+	// performs a single attempt of writing the data to the save files
+	// only the save files that could not be written during previous attempts of the same save get written again
+	// returns true if saving succeeded or finally failed, and false if saving failed and should be attempted again
+	// can be run async and sync
+	// TODO saveToString on main thread and only do the actual file writing async?
+	// Because Bukkit's serialization API is not strictly thread-safe..
+	private boolean saveDataToFile(int savingAttempt, int maxSavingAttempts) {
+		// actual IO:
+		final long ioStartTime = System.currentTimeMillis();
+		saveResult.savingAttempts = savingAttempt;
 
-				// rename temporary save file:
-				if (!problem) {
-					if (!tempSaveFile.renameTo(saveFile)) {
-						error = "Couldn't rename temporary save file! (" + tempSaveFile.getName() + " to " + saveFile.getName() + ")";
-						problem = true;
-					}
-				}
-			} catch (Exception e) {
-				// catching any exceptions not explicitly caught above already:
-				error = e.getMessage();
-				exception = e;
-				problem = true;
-			}
-
-			// handle problem situation:
-			if (problem) {
-				// don't spam with errors and stacktraces, only print them once for the first saving attempt:
-				if (exception != null && printStacktrace) {
-					printStacktrace = false;
-					exception.printStackTrace();
-				}
-				Log.severe("Saving attempt " + savingAttempt + " failed: " + (error != null ? error : "Unknown error"));
+		boolean done;
+		try {
+			if (usingDatabase) {
+				this.writeDatabaseChanges();
+			} else {
+				this.writeSaveFiles(getFileCharset(Settings.async().fileEncoding));
+			}
+			// saving was successful:
+			saveResult.state = SaveResult.State.SUCCESS;
+			done = true;
+		} catch (Exception e) {
+			// don't spam with stacktraces, only print it for the first saving attempt:
+			if (savingAttempt == 1) {
+				Log.severe("Saving attempt " + savingAttempt + " failed!", e);
+			} else {
+				Log.severe("Saving attempt " + savingAttempt + " failed: " + e.getMessage());
+			}
 
-				if (savingAttempt < SAVING_MAX_ATTEMPTS) {
-					// try again after a small delay:
-					try {
-						Thread.sleep(SAVING_ATTEMPTS_DELAY_MILLIS);
-					} catch (InterruptedException e) {
-					}
-				} else {
-					// saving failed even after a bunch of retries:
-					saveResult.state = SaveResult.State.FAILURE;
-					Log.severe("Saving failed! Save data might be lost! :(");
-					break;
-				}
+			if (savingAttempt >= maxSavingAttempts) {
+				// saving failed even after a bunch of retries:
+				saveResult.state = SaveResult.State.FAILURE;
+				Log.severe("Saving failed! The save file still contains the previously saved data.");
+				done = true;
 			} else {
-				// saving was successful:
-				saveResult.state = SaveResult.State.SUCCESS;
-				break;
+				done = false;
 			}
 		}
 
 		final long now = System.currentTimeMillis();
-		saveResult.ioDuration = now - ioStartTime; // time for pure io
+		saveResult.ioDuration += now - ioStartTime; // time for pure io
 		saveResult.totalDuration = now - saveResult.startTime; // time from saveReal() call to finished save
+		return done;
+	}
 
-		// file IO over
+	// writes the prepared data of the save files
+	// the save files that got written successfully don't get written again by subsequent calls
+	// moved data only gets removed from its previous save files once all save files have been written with the moved
+	// data, so that it is still contained in at least one of the save files if the save gets interrupted
+	private void writeSaveFiles(Charset charset) throws IOException {
+		if (savingMainSaveData != null) {
+			saveFileWriter.write(savingMainSaveData.saveToString(), charset);
+			savingMainSaveData = null; // written
+		}
+		this.writeWorldSaveFiles(savingWorldSaveData, charset);
 
-		// run callback:
-		if (callback != null) {
-			callback.run();
+		// remove the moved data from its previous save files:
+		this.writeWorldSaveFiles(savingSourceWorldSaveData, charset);
+		if (savingSourceMainSaveData != null) {
+			saveFileWriter.write(savingSourceMainSaveData.saveToString(), charset);
+			savingSourceMainSaveData = null; // written
 		}
 	}
 
+	private void writeWorldSaveFiles(Map<String, FileConfiguration> worldSaveData, Charset charset) throws IOException {
+		if (worldSaveData.isEmpty()) return;
+		Map<String, Exception> errors = worldSaveFiles.writeAll(worldSaveData, charset);
+		// only the failed world save files need to be written again:
+		worldSaveData.keySet().retainAll(errors.keySet());
+		if (!errors.isEmpty()) {
+			throw new IOException("Couldn't write " + errors.size() + " world save file(s): "
+					+ String.join(", ", errors.keySet()), errors.values().iterator().next());
+		}
+	}
+
+	// prepares and writes the dirty save files or database rows (used by tests)
+	void writeDirtyData() throws IOException, SQLException {
+		this.prepareSaveFiles();
+		try {
+			if (usingDatabase) {
+				this.writeDatabaseChanges();
+			} else {
+				this.writeSaveFiles(getFileCharset(Settings.fileEncoding));
+			}
+		} catch (IOException | SQLException e) {
+			this.restoreUnsavedData();
+			throw e;
+		} finally {
+			this.clearSavingData();
+		}
+	}
+
+	// writes the prepared database rows and (if changed) the metadata within a single transaction
+	private void writeDatabaseChanges() throws SQLException {
+		List<ShopkeeperRow> updatedRows = new ArrayList<>();
+		List<Integer> deletedIds = new ArrayList<>();
+		for (Map.Entry<String, ConfigurationSection> entry : savingRows.entrySet()) {
+			Integer id = ConversionUtils.parseInt(entry.getKey());
+			if (id == null) continue; // only valid ids get marked dirty
+			ConfigurationSection shopkeeperSection = entry.getValue();
+			if (shopkeeperSection == null) {
+				deletedIds.add(id);
+			} else {
+				String worldName = StringUtils.getNotEmpty(shopkeeperSection.getString("world"));
+				int chunkX = shopkeeperSection.getInt("x") >> 4;
+				int chunkZ = shopkeeperSection.getInt("z") >> 4;
+				updatedRows.add(new ShopkeeperRow(id, worldName, chunkX, chunkZ, toYamlString(shopkeeperSection)));
+			}
+		}
+
+		Map<String, String> metadata = new LinkedHashMap<>();
+		if (savingSaveFiles.contains(MAIN_SAVE_FILE)) {
+			metadata.put(DATA_VERSION_KEY, String.valueOf(saveData.getInt(DATA_VERSION_KEY, MISSING_DATA_VERSION)));
+			metadata.put(MAX_SHOPKEEPER_ID_KEY, String.valueOf(saveData.getInt(MAX_SHOPKEEPER_ID_KEY, 0)));
+			ConfigurationSection ownerLastSeenSection = saveData.getConfigurationSection(OWNER_LAST_SEEN_KEY);
+			if (ownerLastSeenSection != null) {
+				metadata.put(OWNER_LAST_SEEN_KEY, toYamlString(ownerLastSeenSection));
+			}
+		}
+
+		database.writeChanges(updatedRows, deletedIds, metadata);
+		savingRows.clear(); // written
+	}
+
 	private static class SaveResult {
 
 		// note: synchronization for those values is not needed, because they get synchronized externally before getting
@@ -914,7 +1515,12 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		private State state;
 		private int dirtyShopkeepersCount = 0;
 		private int deletedShopkeepersCount = 0;
+		private int ownerLastSeenCount = 0;
 		private boolean async;
+		private int savingAttempts;
+		private int coalescedSaveRequests;
+		private long totalWrites;
+		private long totalCoalescedSaveRequests;
 		private long startTime;
 		private long packingDuration;
 		private long asyncTaskDelay;
@@ -924,15 +1530,22 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 		public void reset() {
 			state = State.NOT_YET_STARTED;
+			savingAttempts = 0;
+			ioLockAcquireDuration = 0L;
+			ioDuration = 0L;
 			// all other attributes get set appropriately before getting used
 		}
 
 		public void printDebugInfo() {
 			Log.debug(() -> "Saved shopkeeper data (" + totalDuration + "ms (Data packing ("
-					+ dirtyShopkeepersCount + " dirty, " + deletedShopkeepersCount + " deleted): " + packingDuration + "ms, "
+					+ dirtyShopkeepersCount + " dirty, " + deletedShopkeepersCount + " deleted"
+					+ ((ownerLastSeenCount > 0) ? ", " + ownerLastSeenCount + " owner last seen" : "") + "): " + packingDuration + "ms, "
 					+ (async ? "AsyncTask delay: " + asyncTaskDelay + "ms, " : "")
 					+ ((ioLockAcquireDuration > 1) ? "IO lock delay: " + ioLockAcquireDuration + "ms, " : "")
-					+ (async ? "Async " : "Sync ") + "IO: " + ioDuration + "ms))"
+					+ (async ? "Async " : "Sync ") + "IO: " + ioDuration + "ms"
+					+ ((savingAttempts > 1) ? " (" + savingAttempts + " attempts)" : "") + "), "
+					+ "Coalesced requests: " + coalescedSaveRequests + " (total: " + totalCoalescedSaveRequests
+					+ " coalesced, " + totalWrites + " writes))"
 					+ ((state == State.FAILURE) ? ": Saving failed!" : ""));
 		}
 	}
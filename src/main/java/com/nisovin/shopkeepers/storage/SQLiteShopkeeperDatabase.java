@@ -0,0 +1,216 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.nisovin.shopkeepers.util.Validate;
+
+/**
+ * An embedded SQLite database that stores the shopkeepers data.
+ * <p>
+ * Each shopkeeper is stored in its own row, which contains the shopkeeper's serialized data together with its world and
+ * chunk coordinates (indexed). Additional data, such as the data version, is stored as key-value pairs in a separate
+ * metadata table. Changes get written in batches within a single transaction.
+ * <p>
+ * All shopkeepers are currently loaded during startup, since the shopkeeper registry keeps all shopkeepers in memory.
+ * The index on the world and chunk coordinates is not used for queries yet.
+ * <p>
+ * This uses the SQLite JDBC driver that is bundled with CraftBukkit and Spigot. Callers need to ensure that there is
+ * only one thread accessing the database at the same time.
+ */
+class SQLiteShopkeeperDatabase {
+
+	private static final String DRIVER_CLASS = "org.sqlite.JDBC";
+
+	/**
+	 * The data of a single shopkeeper.
+	 */
+	static final class ShopkeeperRow {
+
+		final int id;
+		final String worldName; // can be null
+		final int chunkX;
+		final int chunkZ;
+		final String data;
+
+		ShopkeeperRow(int id, String worldName, int chunkX, int chunkZ, String data) {
+			Validate.notNull(data, "Data is null!");
+			this.id = id;
+			this.worldName = worldName;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			this.data = data;
+		}
+	}
+
+	private final Path databaseFile;
+	private Connection connection = null;
+
+	SQLiteShopkeeperDatabase(Path databaseFile) {
+		Validate.notNull(databaseFile, "Database file is null!");
+		this.databaseFile = databaseFile;
+	}
+
+	public Path getDatabaseFile() {
+		return databaseFile;
+	}
+
+	public boolean exists() {
+		return Files.exists(databaseFile);
+	}
+
+	public boolean isOpen() {
+		return (connection != null);
+	}
+
+	// creates the database if it does not exist yet
+	public void open() throws SQLException {
+		if (connection != null) return; // already open
+		try {
+			Class.forName(DRIVER_CLASS);
+		} catch (ClassNotFoundException e) {
+			throw new SQLException("Could not find the SQLite driver (" + DRIVER_CLASS + ")!", e);
+		}
+
+		Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.toAbsolutePath());
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA journal_mode=WAL");
+			statement.execute("CREATE TABLE IF NOT EXISTS shopkeepers ("
+					+ "id INTEGER PRIMARY KEY, world TEXT, chunk_x INTEGER NOT NULL, chunk_z INTEGER NOT NULL, "
+					+ "data TEXT NOT NULL)");
+			statement.execute("CREATE INDEX IF NOT EXISTS shopkeepers_by_chunk ON shopkeepers (world, chunk_x, chunk_z)");
+			statement.execute("CREATE TABLE IF NOT EXISTS metadata (key TEXT PRIMARY KEY, value TEXT NOT NULL)");
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			connection.close();
+			throw e;
+		}
+		this.connection = connection;
+	}
+
+	public void close() throws SQLException {
+		if (connection == null) return; // not open
+		try {
+			connection.close();
+		} finally {
+			connection = null;
+		}
+	}
+
+	private Connection getConnection() throws SQLException {
+		if (connection == null) {
+			throw new SQLException("Database is not open!");
+		}
+		return connection;
+	}
+
+	/**
+	 * Loads the metadata.
+	 * 
+	 * @return the metadata values by key, empty if the database contains no data yet
+	 * @throws SQLException
+	 *             if the metadata cannot be loaded
+	 */
+	public Map<String, String> loadMetadata() throws SQLException {
+		Map<String, String> metadata = new HashMap<>();
+		try (	Statement statement = this.getConnection().createStatement();
+				ResultSet result = statement.executeQuery("SELECT key, value FROM metadata")) {
+			while (result.next()) {
+				metadata.put(result.getString(1), result.getString(2));
+			}
+		}
+		return metadata;
+	}
+
+	/**
+	 * Loads the data of all shopkeepers.
+	 * 
+	 * @return the loaded shopkeeper rows
+	 * @throws SQLException
+	 *             if the data cannot be loaded
+	 */
+	public List<ShopkeeperRow> loadShopkeepers() throws SQLException {
+		List<ShopkeeperRow> rows = new ArrayList<>();
+		try (	Statement statement = this.getConnection().createStatement();
+				ResultSet result = statement.executeQuery("SELECT id, world, chunk_x, chunk_z, data FROM shopkeepers ORDER BY id")) {
+			while (result.next()) {
+				rows.add(new ShopkeeperRow(result.getInt(1), result.getString(2), result.getInt(3), result.getInt(4), result.getString(5)));
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Writes the given changes within a single transaction.
+	 * <p>
+	 * If this fails, none of the changes get applied.
+	 * 
+	 * @param updatedShopkeepers
+	 *            the shopkeepers to insert or replace
+	 * @param deletedShopkeeperIds
+	 *            the ids of the shopkeepers to delete
+	 * @param metadata
+	 *            the metadata values to insert or replace
+	 * @throws SQLException
+	 *             if writing fails
+	 */
+	public void writeChanges(	Collection<ShopkeeperRow> updatedShopkeepers, Collection<Integer> deletedShopkeeperIds,
+								Map<String, String> metadata) throws SQLException {
+		Connection connection = this.getConnection();
+		try {
+			if (!updatedShopkeepers.isEmpty()) {
+				try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO shopkeepers "
+						+ "(id, world, chunk_x, chunk_z, data) VALUES (?, ?, ?, ?, ?)")) {
+					for (ShopkeeperRow row : updatedShopkeepers) {
+						statement.setInt(1, row.id);
+						statement.setString(2, row.worldName);
+						statement.setInt(3, row.chunkX);
+						statement.setInt(4, row.chunkZ);
+						statement.setString(5, row.data);
+						statement.addBatch();
+					}
+					statement.executeBatch();
+				}
+			}
+			if (!deletedShopkeeperIds.isEmpty()) {
+				try (PreparedStatement statement = connection.prepareStatement("DELETE FROM shopkeepers WHERE id = ?")) {
+					for (Integer id : deletedShopkeeperIds) {
+						statement.setInt(1, id);
+						statement.addBatch();
+					}
+					statement.executeBatch();
+				}
+			}
+			if (!metadata.isEmpty()) {
+				try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO metadata "
+						+ "(key, value) VALUES (?, ?)")) {
+					for (Map.Entry<String, String> entry : metadata.entrySet()) {
+						statement.setString(1, entry.getKey());
+						statement.setString(2, entry.getValue());
+						statement.addBatch();
+					}
+					statement.executeBatch();
+				}
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			try {
+				connection.rollback();
+			} catch (SQLException rollbackException) {
+				e.addSuppressed(rollbackException);
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.Validate;
+
+/**
+ * Writes data to a save file in a crash-consistent way.
+ * <p>
+ * The data is first written to a temporary file next to the save file and flushed to the storage device. The temporary
+ * file then atomically replaces the save file. The save file is therefore never deleted or partially written: After a
+ * crash or power loss, it either contains the old or the new data.
+ * <p>
+ * A single call to {@link #write(String, Charset)} performs only one saving attempt and does not block in order to
+ * retry failed attempts. Retrying is up to the caller.
+ * <p>
+ * This is not thread-safe: Callers need to ensure that there is only one thread using the writer at the same time.
+ */
+class SaveFileWriter {
+
+	/**
+	 * The file system operations used by the {@link SaveFileWriter}.
+	 */
+	interface FileOperations {
+
+		boolean exists(Path path);
+
+		void createDirectories(Path directory) throws IOException;
+
+		/**
+		 * Writes the given data to the specified file, replacing any previous contents, and then flushes the file's
+		 * contents to the storage device.
+		 * 
+		 * @param path
+		 *            the file path
+		 * @param data
+		 *            the data
+		 * @throws IOException
+		 *             if writing fails
+		 */
+		void writeAndSync(Path path, byte[] data) throws IOException;
+
+		/**
+		 * Moves the source file to the target path, replacing any existing target file.
+		 * <p>
+		 * This uses an atomic move if the file system supports it.
+		 * 
+		 * @param source
+		 *            the source file
+		 * @param target
+		 *            the target path
+		 * @throws IOException
+		 *             if moving fails
+		 */
+		void replace(Path source, Path target) throws IOException;
+
+		void deleteIfExists(Path path) throws IOException;
+	}
+
+	static final FileOperations DEFAULT_FILE_OPERATIONS = new FileOperations() {
+		@Override
+		public boolean exists(Path path) {
+			return Files.exists(path);
+		}
+
+		@Override
+		public void createDirectories(Path directory) throws IOException {
+			Files.createDirectories(directory);
+		}
+
+		@Override
+		public void writeAndSync(Path path, byte[] data) throws IOException {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+		}
+
+		@Override
+		public void replace(Path source, Path target) throws IOException {
+			try {
+				Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			this.syncDirectory(target.toAbsolutePath().getParent());
+		}
+
+		// persists the directory entry of a moved file (not supported on all platforms, ex. not on Windows):
+		private void syncDirectory(Path directory) {
+			if (directory == null) return;
+			try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+				channel.force(true);
+			} catch (IOException e) {
+				// ignored: best effort
+			}
+		}
+
+		@Override
+		public void deleteIfExists(Path path) throws IOException {
+			Files.deleteIfExists(path);
+		}
+	};
+
+	private static final String TEMP_FILE_SUFFIX = ".temp";
+
+	private final Path saveFile;
+	private final Path tempSaveFile;
+	private final FileOperations fileOperations;
+
+	SaveFileWriter(Path saveFile) {
+		this(saveFile, DEFAULT_FILE_OPERATIONS);
+	}
+
+	SaveFileWriter(Path saveFile, FileOperations fileOperations) {
+		Validate.notNull(saveFile, "Save file is null!");
+		Validate.notNull(fileOperations, "File operations is null!");
+		this.saveFile = saveFile;
+		this.tempSaveFile = saveFile.resolveSibling(saveFile.getFileName().toString() + TEMP_FILE_SUFFIX);
+		this.fileOperations = fileOperations;
+	}
+
+	public Path getSaveFile() {
+		return saveFile;
+	}
+
+	public Path getTempSaveFile() {
+		return tempSaveFile;
+	}
+
+	/**
+	 * Handles a temporary save file that was left behind by an interrupted previous saving attempt.
+	 * <p>
+	 * If the save file exists, it is still intact and the temporary save file gets deleted. Otherwise, the temporary save
+	 * file is the only available data and gets moved into the place of the save file. This is meant to be called before
+	 * the save file gets loaded.
+	 * 
+	 * @throws IOException
+	 *             if the temporary save file cannot be deleted or moved
+	 */
+	public void recoverTempSaveFile() throws IOException {
+		if (!fileOperations.exists(tempSaveFile)) return; // nothing to recover
+		if (fileOperations.exists(saveFile)) {
+			// the previous saving attempt got interrupted before it replaced the save file:
+			Log.warning("Found a left over temporary save file (" + tempSaveFile.getFileName() + ") from an interrupted "
+					+ "previous save. Deleting it, since the save file is still intact.");
+			fileOperations.deleteIfExists(tempSaveFile);
+		} else {
+			// this can also be left behind by previous plugin versions which deleted the save file before renaming:
+			Log.warning("Found no save file, but an existing temporary save file! (" + tempSaveFile.getFileName() + ")");
+			Log.warning("This might indicate an issue during a previous saving attempt!");
+			Log.warning("Using the temporary save file as save file!");
+			fileOperations.replace(tempSaveFile, saveFile);
+		}
+	}
+
+	/**
+	 * Writes the given data to the save file.
+	 * <p>
+	 * If this fails, the previous save file remains unchanged.
+	 * 
+	 * @param data
+	 *            the data, not <code>null</code>
+	 * @param charset
+	 *            the charset to use, not <code>null</code>
+	 * @throws IOException
+	 *             if saving fails
+	 */
+	public void write(String data, Charset charset) throws IOException {
+		Validate.notNull(data, "Data is null!");
+		Validate.notNull(charset, "Charset is null!");
+		Path parentDir = tempSaveFile.toAbsolutePath().getParent();
+		if (parentDir != null) {
+			fileOperations.createDirectories(parentDir);
+		}
+		// any left over temporary save file gets overwritten:
+		fileOperations.writeAndSync(tempSaveFile, data.getBytes(charset));
+		fileOperations.replace(tempSaveFile, saveFile);
+	}
+
+	/**
+	 * Deletes the save file, and any left over temporary save file.
+	 * 
+	 * @throws IOException
+	 *             if deleting fails
+	 */
+	public void delete() throws IOException {
+		fileOperations.deleteIfExists(saveFile);
+		fileOperations.deleteIfExists(tempSaveFile);
+	}
+}
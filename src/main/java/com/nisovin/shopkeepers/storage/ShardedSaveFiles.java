@@ -0,0 +1,228 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import com.nisovin.shopkeepers.util.Validate;
+
+/**
+ * A directory of save files that each store a separate part (shard) of the save data, ex. the shopkeepers of a
+ * specific world.
+ * <p>
+ * The shards are stored in files named after the shard (<code>&lt;shard&gt;.yml</code>), each written via its own
+ * {@link SaveFileWriter}. The save files of independent shards get read and written in parallel by a small dedicated
+ * thread pool (instead of the common fork join pool that is shared with the server and other plugins). The save data
+ * itself gets parsed and serialized on the calling thread, since the deserialization of some of its contents (ex. item
+ * stacks) is not guaranteed to be thread-safe.
+ */
+class ShardedSaveFiles {
+
+	private static final String FILE_EXTENSION = ".yml";
+	private static final String TEMP_FILE_EXTENSION = FILE_EXTENSION + ".temp";
+	// the max number of threads used for the file IO of a single load or write:
+	private static final int MAX_IO_THREADS = 4;
+
+	private final Path directory;
+	private final SaveFileWriter.FileOperations fileOperations;
+	private final Map<String, SaveFileWriter> writers = new ConcurrentHashMap<>();
+
+	ShardedSaveFiles(Path directory) {
+		this(directory, SaveFileWriter.DEFAULT_FILE_OPERATIONS);
+	}
+
+	ShardedSaveFiles(Path directory, SaveFileWriter.FileOperations fileOperations) {
+		Validate.notNull(directory, "Directory is null!");
+		Validate.notNull(fileOperations, "File operations is null!");
+		this.directory = directory;
+		this.fileOperations = fileOperations;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	private SaveFileWriter getWriter(String shardName) {
+		return writers.computeIfAbsent(shardName, name -> {
+			return new SaveFileWriter(directory.resolve(name + FILE_EXTENSION), fileOperations);
+		});
+	}
+
+	public Path getSaveFile(String shardName) {
+		Validate.notEmpty(shardName, "Shard name is empty!");
+		return this.getWriter(shardName).getSaveFile();
+	}
+
+	/**
+	 * Gets the names of all shards for which there are save files (or left over temporary save files).
+	 * 
+	 * @return the shard names
+	 * @throws IOException
+	 *             if the directory cannot be read
+	 */
+	public Set<String> getExistingShards() throws IOException {
+		if (!Files.isDirectory(directory)) return Collections.emptySet();
+		Set<String> shardNames = new LinkedHashSet<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String fileName = file.getFileName().toString();
+				if (fileName.endsWith(FILE_EXTENSION)) {
+					shardNames.add(fileName.substring(0, fileName.length() - FILE_EXTENSION.length()));
+				} else if (fileName.endsWith(TEMP_FILE_EXTENSION)) {
+					shardNames.add(fileName.substring(0, fileName.length() - TEMP_FILE_EXTENSION.length()));
+				}
+			}
+		}
+		shardNames.remove(""); // ignore files without name
+		return shardNames;
+	}
+
+	/**
+	 * Loads the save files of all existing shards.
+	 * <p>
+	 * The save files get read in parallel, and then parsed on the calling thread.
+	 * <p>
+	 * Temporary save files left behind by interrupted previous saves get recovered first, see
+	 * {@link SaveFileWriter#recoverTempSaveFile()}.
+	 * 
+	 * @param charset
+	 *            the charset of the save files, not <code>null</code>
+	 * @return the loaded save data by shard name
+	 * @throws IOException
+	 *             if a save file cannot be read or is invalid
+	 */
+	public Map<String, YamlConfiguration> loadAll(Charset charset) throws IOException {
+		Validate.notNull(charset, "Charset is null!");
+		Set<String> shardNames = this.getExistingShards();
+		for (String shardName : shardNames) {
+			this.getWriter(shardName).recoverTempSaveFile();
+		}
+		if (shardNames.isEmpty()) return new LinkedHashMap<>();
+
+		ExecutorService executor = createIOExecutor(shardNames.size());
+		try {
+			Map<String, Future<byte[]>> fileContents = new LinkedHashMap<>();
+			for (String shardName : shardNames) {
+				Path saveFile = this.getSaveFile(shardName);
+				fileContents.put(shardName, executor.submit(() -> {
+					if (!Files.exists(saveFile)) return null;
+					return Files.readAllBytes(saveFile);
+				}));
+			}
+
+			Map<String, YamlConfiguration> shards = new LinkedHashMap<>();
+			for (Map.Entry<String, Future<byte[]>> entry : fileContents.entrySet()) {
+				String shardName = entry.getKey();
+				byte[] fileContent = getResult(entry.getValue());
+				if (fileContent == null) continue; // save file does not exist
+				YamlConfiguration shardData = new YamlConfiguration();
+				try {
+					shardData.loadFromString(new String(fileContent, charset));
+				} catch (InvalidConfigurationException e) {
+					throw new IOException("Invalid save file: " + this.getSaveFile(shardName).getFileName(), e);
+				}
+				shards.put(shardName, shardData);
+			}
+			return shards;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Writes the given shards.
+	 * <p>
+	 * The save data gets serialized on the calling thread, and the save files then get written in parallel. The save
+	 * files of shards mapped to <code>null</code> get deleted.
+	 * 
+	 * @param shards
+	 *            the save data by shard name, not <code>null</code>
+	 * @param charset
+	 *            the charset to use, not <code>null</code>
+	 * @return the errors by shard name of the shards that could not be written, empty on success
+	 */
+	public Map<String, Exception> writeAll(Map<String, ? extends FileConfiguration> shards, Charset charset) {
+		Validate.notNull(shards, "Shards is null!");
+		Validate.notNull(charset, "Charset is null!");
+		Map<String, Exception> errors = new LinkedHashMap<>();
+		if (shards.isEmpty()) return errors;
+
+		ExecutorService executor = createIOExecutor(shards.size());
+		try {
+			Map<String, Future<Void>> results = new LinkedHashMap<>();
+			for (Map.Entry<String, ? extends FileConfiguration> entry : shards.entrySet()) {
+				String shardName = entry.getKey();
+				FileConfiguration shardData = entry.getValue();
+				SaveFileWriter writer = this.getWriter(shardName);
+				String data;
+				try {
+					data = (shardData == null) ? null : shardData.saveToString();
+				} catch (Exception e) {
+					errors.put(shardName, e);
+					continue;
+				}
+				results.put(shardName, executor.submit(() -> {
+					if (data == null) {
+						writer.delete();
+					} else {
+						writer.write(data, charset);
+					}
+					return null;
+				}));
+			}
+
+			for (Map.Entry<String, Future<Void>> entry : results.entrySet()) {
+				try {
+					getResult(entry.getValue());
+				} catch (IOException e) {
+					errors.put(entry.getKey(), e);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return errors;
+	}
+
+	// the threads only exist during a single load or write, so that they don't need to be shut down separately
+	private static ExecutorService createIOExecutor(int taskCount) {
+		int threadCount = Math.max(1, Math.min(taskCount, MAX_IO_THREADS));
+		return Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable, "Shopkeepers save file IO");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// waits for the given file IO task, and rethrows its exception as IOException
+	private static <T> T getResult(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the file IO!", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
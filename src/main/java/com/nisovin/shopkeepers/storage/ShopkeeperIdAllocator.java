@@ -0,0 +1,140 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.nisovin.shopkeepers.util.Validate;
+
+/**
+ * Keeps track of the used shopkeeper ids and determines the id for the next shopkeeper.
+ * <p>
+ * New ids get allocated above the high-water mark, which is the largest id that has ever been used (including the ids
+ * of already deleted shopkeepers, if the high-water mark gets persisted). This allocation is O(1). Only once the
+ * high-water mark has reached the maximum id, the ids of deleted shopkeepers get reused, starting with the lowest
+ * free id.
+ * <p>
+ * The used ids are tracked via a bitset. Ids above {@link #MAX_BITSET_ID} are tracked separately, so that single large
+ * ids don't blow up the size of the bitset.
+ */
+class ShopkeeperIdAllocator {
+
+	// ids up to this limit are tracked via the bitset (max size: 2 MB)
+	static final int MAX_BITSET_ID = (1 << 24) - 1;
+
+	private final BitSet usedIds = new BitSet();
+	private final Set<Integer> usedLargeIds = new HashSet<>();
+	private int usedCount = 0;
+	// the largest id that has been used so far:
+	private int highWaterMark = 0;
+
+	ShopkeeperIdAllocator() {
+	}
+
+	public void clear() {
+		usedIds.clear();
+		usedLargeIds.clear();
+		usedCount = 0;
+		highWaterMark = 0;
+	}
+
+	public int getUsedCount() {
+		return usedCount;
+	}
+
+	public int getHighWaterMark() {
+		return highWaterMark;
+	}
+
+	/**
+	 * Raises the high-water mark to the given id (ex. when loading a persisted high-water mark).
+	 * <p>
+	 * This has no effect if the high-water mark is already larger than the given id.
+	 * 
+	 * @param id
+	 *            the id
+	 */
+	public void raiseHighWaterMark(int id) {
+		if (id > highWaterMark) {
+			highWaterMark = id;
+		}
+	}
+
+	public boolean isUsed(int id) {
+		if (id <= 0) return false;
+		if (id <= MAX_BITSET_ID) {
+			return usedIds.get(id);
+		} else {
+			return usedLargeIds.contains(id);
+		}
+	}
+
+	/**
+	 * Marks the given id as used.
+	 * 
+	 * @param id
+	 *            the id, has to be positive
+	 * @return <code>true</code> if the id was unused before, <code>false</code> if it is already used (a collision)
+	 */
+	public boolean markUsed(int id) {
+		Validate.isTrue(id > 0, "Id has to be positive!");
+		if (id <= MAX_BITSET_ID) {
+			if (usedIds.get(id)) return false;
+			usedIds.set(id);
+		} else {
+			if (!usedLargeIds.add(id)) return false;
+		}
+		usedCount++;
+		this.raiseHighWaterMark(id);
+		return true;
+	}
+
+	/**
+	 * Marks the given id as unused.
+	 * <p>
+	 * The high-water mark remains unchanged, so the id does not get reused until all larger ids have been used.
+	 * 
+	 * @param id
+	 *            the id
+	 */
+	public void markUnused(int id) {
+		if (!this.isUsed(id)) return;
+		if (id <= MAX_BITSET_ID) {
+			usedIds.clear(id);
+		} else {
+			usedLargeIds.remove(id);
+		}
+		usedCount--;
+	}
+
+	/**
+	 * Gets the next unused id.
+	 * <p>
+	 * This does not mark the id as used yet.
+	 * 
+	 * @return the next unused id
+	 * @throws IllegalStateException
+	 *             if all ids are in use
+	 */
+	public int getNextId() {
+		if (highWaterMark < Integer.MAX_VALUE) {
+			return highWaterMark + 1;
+		}
+
+		// all ids up to the max id have been handed out already: find the lowest free id
+		if (usedCount == Integer.MAX_VALUE) {
+			throw new IllegalStateException("No unused shopkeeper ids available!");
+		}
+		int id = usedIds.nextClearBit(1);
+		if (id > 0 && id <= MAX_BITSET_ID) {
+			return id;
+		}
+		// only large ids are free (rare): linear search
+		for (id = MAX_BITSET_ID + 1; id > 0; id++) {
+			if (!usedLargeIds.contains(id)) {
+				return id;
+			}
+		}
+		throw new IllegalStateException("No unused shopkeeper ids available!");
+	}
+}
@@ -1,9 +1,12 @@
 package com.nisovin.shopkeepers.ui;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
 
 import org.bukkit.Bukkit;
@@ -18,6 +21,7 @@ import com.nisovin.shopkeepers.api.ui.UIRegistry;
 import com.nisovin.shopkeepers.api.ui.UIType;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.types.AbstractTypeRegistry;
+import com.nisovin.shopkeepers.ui.defaults.TradingHandler;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.Validate;
 
@@ -180,6 +184,87 @@ public class SKUIRegistry extends AbstractTypeRegistry<AbstractUIType> implement
 		});
 	}
 
+	/**
+	 * Closes all open windows of the given shopkeepers, similar to {@link #closeAllDelayed(Shopkeeper)}.
+	 * <p>
+	 * Instead of scheduling a separate task for every shopkeeper, this closes the windows of all given shopkeepers
+	 * within a single delayed task.
+	 * 
+	 * @param shopkeepers
+	 *            the shopkeepers
+	 */
+	public void closeAllDelayed(Collection<? extends Shopkeeper> shopkeepers) {
+		// ignore during disable: all UIs get closed anyways already
+		if (shopkeepers == null || shopkeepers.isEmpty() || !plugin.isEnabled()) return;
+
+		// deactivate currently active UIs:
+		Set<Shopkeeper> affectedShopkeepers = new HashSet<>(shopkeepers);
+		for (Shopkeeper shopkeeper : affectedShopkeepers) {
+			shopkeeper.deactivateUI();
+		}
+
+		// delayed because this is/was originally called from inside the PlayerCloseInventoryEvent
+		Bukkit.getScheduler().runTask(plugin, () -> {
+			Iterator<Entry<UUID, SKUISession>> iterator = playerSessions.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Entry<UUID, SKUISession> entry = iterator.next();
+				SKUISession session = entry.getValue();
+				if (affectedShopkeepers.contains(session.getShopkeeper())) {
+					iterator.remove();
+					this.onSessionEnd(session, null);
+					Player player = session.getPlayer();
+					player.closeInventory();
+				}
+			}
+
+			// reactivate UIs:
+			for (Shopkeeper shopkeeper : affectedShopkeepers) {
+				shopkeeper.activateUI();
+			}
+		});
+	}
+
+	/**
+	 * Updates the trades of all players that are currently trading with the given shopkeeper, and closes all other
+	 * open windows of the shopkeeper.
+	 * <p>
+	 * Unlike {@link #closeAllDelayed(Shopkeeper)}, this keeps the trading windows open. Similar to
+	 * {@link #closeAllDelayed(Shopkeeper)}, this happens delayed and the shopkeeper's UIs are deactivated in the
+	 * meantime.
+	 * 
+	 * @param shopkeeper
+	 *            the shopkeeper
+	 */
+	public void updateTradesDelayed(Shopkeeper shopkeeper) {
+		// ignore during disable: all UIs get closed anyways already
+		if (shopkeeper == null || !plugin.isEnabled()) return;
+
+		// deactivate currently active UIs:
+		shopkeeper.deactivateUI();
+
+		// delayed because this is/was originally called from inside the PlayerCloseInventoryEvent
+		Bukkit.getScheduler().runTask(plugin, () -> {
+			Iterator<Entry<UUID, SKUISession>> iterator = playerSessions.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Entry<UUID, SKUISession> entry = iterator.next();
+				SKUISession session = entry.getValue();
+				if (!session.getShopkeeper().equals(shopkeeper)) continue;
+				UIHandler uiHandler = session.getUIHandler();
+				Player player = session.getPlayer();
+				if (uiHandler instanceof TradingHandler) {
+					((TradingHandler) uiHandler).updateTrades(player);
+				} else {
+					iterator.remove();
+					this.onSessionEnd(session, null);
+					player.closeInventory();
+				}
+			}
+
+			// reactivate UIs:
+			shopkeeper.activateUI();
+		});
+	}
+
 	@Override
 	public void closeAll() {
 		Iterator<Entry<UUID, SKUISession>> iterator = playerSessions.entrySet().iterator();
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
@@ -142,6 +143,13 @@ public abstract class EditorHandler extends UIHandler {
 		private EditorHandler editorHandler;
 		private int slot = NO_SLOT;
 
+		// the cached icon, and the state it was created for:
+		private boolean iconCached = false;
+		private ItemStack cachedIcon = null; // can be null
+		private int cachedIconStateVersion;
+		private int cachedIconSettingsVersion;
+		private Object cachedIconSessionState;
+
 		public Button(Shopkeeper shopkeeper) {
 			this(shopkeeper, false);
 		}
@@ -161,13 +169,45 @@ public abstract class EditorHandler extends UIHandler {
 
 		public abstract ItemStack getIcon(Session session);
 
+		/**
+		 * Gets the session specific state that the {@link #getIcon(Session) icon} of this button depends on.
+		 * <p>
+		 * Icons get cached and are only recreated if the shopkeeper got {@link AbstractShopkeeper#markDirty() marked
+		 * dirty}, the settings have changed, or the session state returned by this method has changed. By default,
+		 * icons are not expected to depend on any session specific state.
+		 * 
+		 * @param session
+		 *            the session
+		 * @return the session state, can be <code>null</code>
+		 */
+		protected Object getIconSessionState(Session session) {
+			return null;
+		}
+
+		// the returned icon is shared and must not be modified
+		private ItemStack getCachedIcon(Session session) {
+			int stateVersion = ((AbstractShopkeeper) shopkeeper).getStateVersion();
+			int settingsVersion = Settings.DerivedSettings.settingsVersion;
+			Object sessionState = this.getIconSessionState(session);
+			if (!iconCached || cachedIconStateVersion != stateVersion || cachedIconSettingsVersion != settingsVersion
+					|| !Objects.equals(cachedIconSessionState, sessionState)) {
+				cachedIcon = this.getIcon(session);
+				cachedIconStateVersion = stateVersion;
+				cachedIconSettingsVersion = settingsVersion;
+				cachedIconSessionState = sessionState;
+				iconCached = true;
+			}
+			return cachedIcon;
+		}
+
 		// updates the icon in all sessions
 		// note: cannot deal with changes to the registered buttons (the button's slot) while the inventory is open
 		protected final void updateIcon() {
 			if (slot != NO_SLOT && editorHandler != null) {
 				for (Session session : editorHandler.sessions.values()) {
-					session.inventory.setItem(slot, this.getIcon(session));
-					session.player.updateInventory();
+					if (session.setIcon(slot, this.getCachedIcon(session))) {
+						session.player.updateInventory();
+					}
 				}
 			}
 		}
@@ -221,7 +261,6 @@ public abstract class EditorHandler extends UIHandler {
 	private final Button[] tradesPageBarButtons = new Button[TRADES_PAGE_BAR_END - TRADES_PAGE_BAR_START + 1];
 
 	private Button[] getTradesPageBarButtons() {
-		this.setupTradesPageBarButtons();
 		return tradesPageBarButtons;
 	}
 
@@ -264,6 +303,11 @@ public abstract class EditorHandler extends UIHandler {
 				return createPrevPageIcon(page);
 			}
 
+			@Override
+			protected Object getIconSessionState(Session session) {
+				return session.currentPage;
+			}
+
 			@Override
 			protected void onClick(InventoryClickEvent clickEvent, Player player) {
 				// previous page button:
@@ -291,6 +335,11 @@ public abstract class EditorHandler extends UIHandler {
 				return createNextPageIcon(page);
 			}
 
+			@Override
+			protected Object getIconSessionState(Session session) {
+				return session.currentPage;
+			}
+
 			@Override
 			protected void onClick(InventoryClickEvent clickEvent, Player player) {
 				// next page button:
@@ -317,6 +366,11 @@ public abstract class EditorHandler extends UIHandler {
 				return createCurrentPageIcon(page);
 			}
 
+			@Override
+			protected Object getIconSessionState(Session session) {
+				return session.currentPage;
+			}
+
 			@Override
 			protected void onClick(InventoryClickEvent clickEvent, Player player) {
 				// current page button: doing nothing
@@ -612,13 +666,28 @@ public abstract class EditorHandler extends UIHandler {
 
 		private final Player player;
 		private final List<TradingRecipeDraft> recipes;
+		// the recipes at the time the editor got opened, used to detect changes:
+		private final List<TradingRecipeDraft> initialRecipes;
 		private final Inventory inventory;
+		// the (shared) button icons that are currently displayed in the inventory, by slot:
+		private final ItemStack[] displayedIcons;
 		private int currentPage = 1;
 
 		private Session(Player player, List<TradingRecipeDraft> recipes, Inventory inventory) {
 			this.player = player;
 			this.recipes = recipes;
+			this.initialRecipes = new ArrayList<>(recipes);
 			this.inventory = inventory;
+			this.displayedIcons = new ItemStack[inventory.getSize()];
+		}
+
+		// only updates the slot if it does not already display the given icon
+		// icons are compared by identity, since unchanged icons are cached and reused
+		private boolean setIcon(int slot, ItemStack icon) {
+			if (displayedIcons[slot] == icon) return false; // already up-to-date
+			displayedIcons[slot] = icon;
+			inventory.setItem(slot, icon);
+			return true;
 		}
 
 		public final Player getPlayer() {
@@ -677,45 +746,31 @@ public abstract class EditorHandler extends UIHandler {
 		assert session != null;
 		Inventory inventory = session.inventory;
 
-		// clear trades area:
-		for (int i = TRADES_ROW_1_START; i <= TRADES_ROW_1_END; ++i) {
-			inventory.setItem(i, null);
-		}
-		for (int i = TRADES_ROW_2_START; i <= TRADES_ROW_2_END; ++i) {
-			inventory.setItem(i, null);
-		}
-		for (int i = TRADES_ROW_3_START; i <= TRADES_ROW_3_END; ++i) {
-			inventory.setItem(i, null);
-		}
-
-		// insert trades:
+		// insert trades, and clear the remaining columns:
+		// every slot is only set once
 		int page = session.currentPage;
 		assert page >= 1;
 		List<TradingRecipeDraft> recipes = session.recipes;
 		int recipesPerPage = COLUMNS_PER_ROW;
 		int startIndex = (page - 1) * recipesPerPage;
-		for (int column = 0, i = startIndex; column < COLUMNS_PER_ROW && i < recipes.size(); ++column, ++i) {
-			TradingRecipeDraft recipe = recipes.get(i);
+		for (int column = 0, i = startIndex; column < TRADES_COLUMNS; ++column, ++i) {
+			TradingRecipeDraft recipe = (i < recipes.size()) ? recipes.get(i) : TradingRecipeDraft.EMPTY;
 			this.setTradeColumn(inventory, column, recipe);
 		}
 	}
 
 	protected void setupTradesPageBar(Session session) {
 		assert session != null;
-		Inventory inventory = session.inventory;
-		// clear page bar area:
-		for (int i = TRADES_PAGE_BAR_START; i <= TRADES_PAGE_BAR_END; ++i) {
-			inventory.setItem(i, null);
-		}
-
-		// insert buttons:
+		// insert buttons, and clear the remaining slots:
+		// only slots whose icons have changed get updated
 		Button[] buttons = this.getTradesPageBarButtons();
 		for (int i = 0; i < buttons.length; ++i) {
 			Button button = buttons[i];
-			if (button == null) continue;
-			ItemStack icon = button.getIcon(session);
-			if (icon == null) continue;
-			inventory.setItem(button.slot, icon);
+			ItemStack icon = null;
+			if (button != null) {
+				icon = button.getCachedIcon(session);
+			}
+			session.setIcon(TRADES_PAGE_BAR_START + i, icon);
 		}
 	}
 
@@ -726,9 +781,9 @@ public abstract class EditorHandler extends UIHandler {
 	}
 
 	// also used to refresh all button icons in an already open inventory
+	// only slots whose icons have changed get updated
 	protected void setupButtons(Session session) {
-		Inventory inventory = session.inventory;
-		final int inventorySize = inventory.getSize();
+		final int inventorySize = session.inventory.getSize();
 		Button[] buttons = this.getBakedButtons();
 		for (int buttonIndex = 0; buttonIndex < buttons.length; ++buttonIndex) {
 			int slot = BUTTONS_START + buttonIndex;
@@ -736,11 +791,11 @@ public abstract class EditorHandler extends UIHandler {
 			ItemStack icon = null;
 			Button button = buttons[buttonIndex];
 			if (button != null) {
-				icon = button.getIcon(session);
+				icon = button.getCachedIcon(session);
 			}
 			// null will clear the slot (required if this is called to refresh the buttons in an already setup
 			// inventory):
-			inventory.setItem(slot, icon);
+			session.setIcon(slot, icon);
 		}
 	}
 
@@ -866,13 +921,17 @@ public abstract class EditorHandler extends UIHandler {
 
 		if (closeEvent != null) {
 			// only saving if caused by an inventory close event:
-			this.saveEditor(session);
+			if (!this.saveEditor(session)) {
+				Log.debug(() -> "Trades of shopkeeper " + this.getShopkeeper().getId() + " were not changed by player " + player.getName());
+				return; // nothing changed
+			}
 
 			// call event:
-			Shopkeeper shopkeeper = this.getShopkeeper();
+			AbstractShopkeeper shopkeeper = this.getShopkeeper();
 			Bukkit.getPluginManager().callEvent(new ShopkeeperEditedEvent(shopkeeper, player));
 
-			shopkeeper.closeAllOpenWindows();
+			// update the trades of players currently trading with the shopkeeper, instead of closing their windows:
+			shopkeeper.updateOpenTradingWindows();
 			shopkeeper.save();
 		}
 	}
@@ -909,25 +968,50 @@ public abstract class EditorHandler extends UIHandler {
 
 	/**
 	 * Saves the current state of the editor interface.
+	 * <p>
+	 * The shopkeeper's recipes only get replaced if the valid recipe drafts differ from the recipes at the time the
+	 * editor got opened.
 	 * 
 	 * @param session
 	 *            the session
+	 * @return <code>true</code> if the shopkeeper's recipes got changed
 	 */
-	protected void saveEditor(Session session) {
+	protected boolean saveEditor(Session session) {
 		assert session != null;
 		// save current page:
 		this.saveEditorPage(session);
 
-		// save recipes:
 		Player player = session.player;
-		this.clearRecipes();
+		List<TradingRecipeDraft> validRecipes = new ArrayList<>(session.recipes.size());
 		for (TradingRecipeDraft recipe : session.recipes) {
 			if (!recipe.isValid()) {
 				this.handleInvalidRecipeDraft(player, recipe);
 				continue;
 			}
+			validRecipes.add(recipe);
+		}
+
+		// check for changes:
+		if (validRecipes.equals(getValidRecipes(session.initialRecipes))) {
+			return false;
+		}
+
+		// save recipes:
+		this.clearRecipes();
+		for (TradingRecipeDraft recipe : validRecipes) {
 			this.addRecipe(player, recipe);
 		}
+		return true;
+	}
+
+	private static List<TradingRecipeDraft> getValidRecipes(List<TradingRecipeDraft> recipes) {
+		List<TradingRecipeDraft> validRecipes = new ArrayList<>(recipes.size());
+		for (TradingRecipeDraft recipe : recipes) {
+			if (recipe.isValid()) {
+				validRecipes.add(recipe);
+			}
+		}
+		return validRecipes;
 	}
 
 	// called for every recipe draft that is not valid:
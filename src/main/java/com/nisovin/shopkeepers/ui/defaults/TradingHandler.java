@@ -118,6 +118,8 @@ public class TradingHandler extends UIHandler {
 
 	// counts the trades triggered by the last click-event:
 	protected int tradeCounter = 0;
+	// whether we are currently handling multiple successive trades triggered by the same click-event:
+	private boolean bulkTrading = false;
 
 	public TradingHandler(AbstractUIType uiType, AbstractShopkeeper shopkeeper) {
 		super(uiType, shopkeeper);
@@ -202,7 +204,7 @@ public class TradingHandler extends UIHandler {
 		return Settings.msgTradingTitlePrefix + title;
 	}
 
-	protected void updateTrades(Player player) {
+	public void updateTrades(Player player) {
 		// check if the currently open inventory still corresponds to this UI:
 		if (!this.isOpen(player)) return;
 
@@ -253,6 +255,7 @@ public class TradingHandler extends UIHandler {
 		// note: this expects that there are no other click-events while this event is getting processed
 		// reset trade counter:
 		tradeCounter = 0;
+		bulkTrading = false;
 
 		Shopkeeper shopkeeper = this.getShopkeeper();
 		String playerName = player.getName();
@@ -365,21 +368,27 @@ public class TradingHandler extends UIHandler {
 			// if the current trading recipe is no longer fulfilled, and the currently selected recipe index is 0,
 			// it will switch to the next applicable trading recipe, and continue the trading if the new result item is
 			// equal to the previous result item
+			// bulk trading: the inventory changes of all these trades get applied at once in the end
+			bulkTrading = true;
+
+			// minecraft is adding items in reverse container order (starting with hotbar slot 9),
+			// so we reverse the player contents accordingly before adding items:
+			// changes write through to the original array:
+			ItemStack[] newPlayerContents = playerInventory.getStorageContents();
+			List<ItemStack> listView = Arrays.asList(newPlayerContents);
+			List<ItemStack> hotbarView = listView.subList(0, 9);
+			List<ItemStack> contentsView = listView.subList(9, 36);
+			Collections.reverse(hotbarView);
+			Collections.reverse(contentsView);
+			boolean playerContentsChanged = false;
+
 			while (true) {
 				// check if there is enough space in the player's inventory:
-				ItemStack[] newPlayerContents = playerInventory.getStorageContents();
-
-				// minecraft is adding items in reverse container order (starting with hotbar slot 9),
-				// so we reverse the player contents accordingly before adding items:
-				// changes write through to the original array:
-				List<ItemStack> listView = Arrays.asList(newPlayerContents);
-				List<ItemStack> hotbarView = listView.subList(0, 9);
-				List<ItemStack> contentsView = listView.subList(9, 36);
-				Collections.reverse(hotbarView);
-				Collections.reverse(contentsView);
-
+				// adding items doesn't modify the contained item stacks, so a shallow copy is sufficient to be able to
+				// discard the changes in case the trade gets aborted:
+				ItemStack[] tradeContents = newPlayerContents.clone();
 				// no item copy required here
-				if (ItemUtils.addItems(newPlayerContents, resultItem) != 0) {
+				if (ItemUtils.addItems(tradeContents, resultItem) != 0) {
 					// not enough inventory space, abort trading:
 					break;
 				}
@@ -389,12 +398,9 @@ public class TradingHandler extends UIHandler {
 					break;
 				}
 
-				// revert previous reverse:
-				Collections.reverse(hotbarView);
-				Collections.reverse(contentsView);
-
-				// apply player inventory changes:
-				playerInventory.setStorageContents(newPlayerContents);
+				// keep the player inventory changes:
+				System.arraycopy(tradeContents, 0, newPlayerContents, 0, newPlayerContents.length);
+				playerContentsChanged = true;
 
 				// common apply trade:
 				this.commonApplyTrade(tradeData);
@@ -414,6 +420,18 @@ public class TradingHandler extends UIHandler {
 				// update result item:
 				resultItem = newResultItem;
 			}
+
+			bulkTrading = false;
+			if (playerContentsChanged) {
+				// revert previous reverse:
+				Collections.reverse(hotbarView);
+				Collections.reverse(contentsView);
+
+				// apply player inventory changes:
+				playerInventory.setStorageContents(newPlayerContents);
+			}
+			// apply any other deferred inventory changes:
+			this.onBulkTradingFinished(player);
 			this.updateTrades(player);
 		} else {
 			// the inventory action involves the result slot, but doesn't trigger a trade usually, or isn't supported
@@ -671,6 +689,34 @@ public class TradingHandler extends UIHandler {
 	protected void onTradeApplied(TradeData tradeData) {
 	}
 
+	/**
+	 * Checks whether the currently handled trade is part of multiple successive trades that got triggered by the same
+	 * inventory action (eg. by shift clicking the result slot).
+	 * <p>
+	 * During bulk trading, the changes to the player's inventory get applied only once all trades have been handled.
+	 * Sub-classes can make use of this to defer their own inventory changes until
+	 * {@link #onBulkTradingFinished(Player)} gets called.
+	 * 
+	 * @return <code>true</code> if bulk trading
+	 */
+	protected final boolean isBulkTrading() {
+		return bulkTrading;
+	}
+
+	/**
+	 * This gets called after all trades that got triggered by the same bulk trading inventory action have been
+	 * handled.
+	 * <p>
+	 * This gets called regardless of whether any of the trades got actually applied. Any inventory changes that got
+	 * deferred during the bulk trading have to be applied here.
+	 * 
+	 * @param player
+	 *            the trading player
+	 * @see #isBulkTrading()
+	 */
+	protected void onBulkTradingFinished(Player player) {
+	}
+
 	// returns a value >= 0 and <= amount
 	protected int getAmountAfterTaxes(int amount) {
 		assert amount >= 0;
@@ -0,0 +1,35 @@
+package com.nisovin.shopkeepers.util;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+
+/**
+ * Packs chunk coordinates into single <code>long</code> keys.
+ * <p>
+ * Unlike {@link ChunkCoords}, these keys don't include the world. They are meant to be used as keys inside per-world
+ * data structures (eg. a {@link LongHashMap}), without having to allocate key objects or compare world names.
+ */
+public final class ChunkKeys {
+
+	private ChunkKeys() {
+	}
+
+	public static long of(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	public static long of(ChunkCoords chunkCoords) {
+		return of(chunkCoords.getChunkX(), chunkCoords.getChunkZ());
+	}
+
+	public static long fromBlockPos(int blockX, int blockZ) {
+		return of(ChunkCoords.convertBlockCoord(blockX), ChunkCoords.convertBlockCoord(blockZ));
+	}
+
+	public static int getChunkX(long chunkKey) {
+		return (int) (chunkKey >> 32);
+	}
+
+	public static int getChunkZ(long chunkKey) {
+		return (int) chunkKey;
+	}
+}
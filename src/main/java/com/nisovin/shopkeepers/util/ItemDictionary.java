@@ -0,0 +1,132 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * A list of distinct items that other save data can reference by their index, instead of storing each item in full.
+ * <p>
+ * When saving, items get added via {@link #getIndex(ItemStack)} and then the dictionary gets stored via
+ * {@link #save(ConfigurationSection, String)}. When loading, the dictionary gets loaded via
+ * {@link #load(ConfigurationSection, String)} and items get looked up by their index. The loaded items are interned
+ * (see {@link ItemInterner}) and must therefore not be modified.
+ */
+public class ItemDictionary {
+
+	private final List<ItemStack> items;
+	// only used while saving:
+	private final Map<ItemStack, Integer> indices = new HashMap<>();
+
+	public ItemDictionary() {
+		this.items = new ArrayList<>();
+	}
+
+	private ItemDictionary(List<ItemStack> items) {
+		this.items = items;
+	}
+
+	public int getSize() {
+		return items.size();
+	}
+
+	/**
+	 * Gets the index of the given item, and adds the item if it is not yet contained.
+	 *
+	 * @param item
+	 *            the item, not empty
+	 * @return the index
+	 */
+	public int getIndex(ItemStack item) {
+		Validate.isTrue(!ItemUtils.isEmpty(item), "Item is empty!");
+		Integer index = indices.get(item);
+		if (index == null) {
+			index = items.size();
+			items.add(item);
+			indices.put(item, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the item at the specified index.
+	 *
+	 * @param index
+	 *            the index
+	 * @return the (interned) item, or <code>null</code> if there is no item at the specified index
+	 */
+	public ItemStack getItem(int index) {
+		if (index < 0 || index >= items.size()) return null;
+		return items.get(index);
+	}
+
+	/**
+	 * Gets the item stored at the given key, which is either the index of an item of this dictionary, or the item
+	 * itself (ex. for data that was saved before the item got stored in a dictionary).
+	 *
+	 * @param config
+	 *            the config section
+	 * @param key
+	 *            the key
+	 * @return the item, or <code>null</code> if there is no valid item
+	 */
+	public ItemStack getItem(ConfigurationSection config, String key) {
+		if (config.isInt(key)) {
+			return this.getItem(config.getInt(key));
+		} else {
+			return config.getItemStack(key);
+		}
+	}
+
+	/**
+	 * Stores the items of this dictionary.
+	 * <p>
+	 * Nothing gets stored if the dictionary is empty.
+	 *
+	 * @param config
+	 *            the config section
+	 * @param node
+	 *            the node to store the items at
+	 */
+	public void save(ConfigurationSection config, String node) {
+		if (items.isEmpty()) {
+			config.set(node, null);
+			return;
+		}
+		List<Map<String, Object>> serializedItems = new ArrayList<>(items.size());
+		for (ItemStack item : items) {
+			serializedItems.add(ItemInterner.serialize(item));
+		}
+		config.set(node, serializedItems);
+	}
+
+	/**
+	 * Loads the items of a dictionary.
+	 * <p>
+	 * Invalid items get loaded as <code>null</code> entries.
+	 *
+	 * @param config
+	 *            the config section
+	 * @param node
+	 *            the node the items are stored at
+	 * @return the loaded dictionary, empty if there is no dictionary stored
+	 */
+	public static ItemDictionary load(ConfigurationSection config, String node) {
+		List<?> serializedItems = config.getList(node);
+		if (serializedItems == null) return new ItemDictionary(Collections.emptyList());
+		List<ItemStack> items = new ArrayList<>(serializedItems.size());
+		for (Object serializedItem : serializedItems) {
+			if (serializedItem instanceof ItemStack) {
+				items.add(ItemInterner.intern((ItemStack) serializedItem));
+			} else {
+				items.add(null); // invalid item
+			}
+		}
+		return new ItemDictionary(items);
+	}
+}
@@ -0,0 +1,151 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
+
+/**
+ * Pool of shared immutable item stacks.
+ * <p>
+ * Equal items (such as the items of the offers of many shops that trade the same items) share a single interned
+ * instance. Besides reducing memory usage, this allows for quick equality checks via the identity of the items. The
+ * pool only holds weak references to its items, so items that are no longer used by anyone get removed.
+ * <p>
+ * The serialized form of interned items gets cached, so that the same item does not need to be serialized again with
+ * every save.
+ * <p>
+ * Interned items are shared and therefore <b>must not be modified</b>! Only clones of them shall be handed out.
+ */
+public final class ItemInterner {
+
+	private ItemInterner() {
+	}
+
+	private static class InternedItemData {
+
+		// lazily set, and not modified afterwards:
+		private volatile Map<String, Object> serialized = null;
+	}
+
+	private static final Interner<ItemStack> ITEMS = Interners.newWeakInterner();
+	// weak keys: compared by identity, and removed once the interned item is no longer used
+	private static final Map<ItemStack, InternedItemData> INTERNED_ITEMS_DATA = new MapMaker().weakKeys().makeMap();
+
+	/**
+	 * Gets the interned instance of the given item.
+	 * <p>
+	 * The given item itself does not get interned, but a copy of it, so it can still be modified afterwards.
+	 * 
+	 * @param item
+	 *            the item
+	 * @return the interned item, or <code>null</code> if the given item is empty
+	 */
+	public static ItemStack intern(ItemStack item) {
+		if (ItemUtils.isEmpty(item)) return null;
+		ItemStack internedItem = ITEMS.intern(item.clone());
+		INTERNED_ITEMS_DATA.computeIfAbsent(internedItem, key -> new InternedItemData());
+		return internedItem;
+	}
+
+	/**
+	 * Checks if the given item is an interned item.
+	 * 
+	 * @param item
+	 *            the item
+	 * @return <code>true</code> if the item is interned
+	 */
+	public static boolean isInterned(ItemStack item) {
+		if (item == null) return false;
+		return INTERNED_ITEMS_DATA.containsKey(item);
+	}
+
+	/**
+	 * Gets the serialized form of the given item, in the same format in which it would be stored inside a
+	 * configuration.
+	 * <p>
+	 * The serialized form of interned items gets cached. The returned data is a copy and can therefore be stored inside
+	 * configurations freely.
+	 * 
+	 * @param item
+	 *            the item, not <code>null</code>
+	 * @return the serialized item
+	 */
+	public static Map<String, Object> serialize(ItemStack item) {
+		Validate.notNull(item, "Item is null!");
+		Map<String, Object> serialized;
+		InternedItemData internedItemData = INTERNED_ITEMS_DATA.get(item);
+		if (internedItemData == null) {
+			// not interned: not cached
+			serialized = serializeObject(item);
+		} else {
+			serialized = internedItemData.serialized;
+			if (serialized == null) {
+				serialized = serializeObject(item);
+				internedItemData.serialized = serialized;
+			}
+		}
+		// copy: the same data instance within a configuration would get stored as yaml alias
+		return copy(serialized);
+	}
+
+	private static Map<String, Object> serializeObject(ConfigurationSerializable object) {
+		Map<String, Object> serialized = new LinkedHashMap<>();
+		serialized.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, ConfigurationSerialization.getAlias(object.getClass()));
+		for (Map.Entry<String, Object> entry : object.serialize().entrySet()) {
+			serialized.put(entry.getKey(), serializeValue(entry.getValue()));
+		}
+		return serialized;
+	}
+
+	private static Object serializeValue(Object value) {
+		if (value instanceof ConfigurationSerializable) {
+			return serializeObject((ConfigurationSerializable) value);
+		} else if (value instanceof Map) {
+			Map<Object, Object> serialized = new LinkedHashMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				serialized.put(entry.getKey(), serializeValue(entry.getValue()));
+			}
+			return serialized;
+		} else if (value instanceof List) {
+			List<Object> serialized = new ArrayList<>();
+			for (Object element : (List<?>) value) {
+				serialized.add(serializeValue(element));
+			}
+			return serialized;
+		} else {
+			return value;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> copy(Map<String, Object> serialized) {
+		return (Map<String, Object>) copyValue(serialized);
+	}
+
+	private static Object copyValue(Object value) {
+		if (value instanceof Map) {
+			Map<Object, Object> copy = new LinkedHashMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				copy.put(entry.getKey(), copyValue(entry.getValue()));
+			}
+			return copy;
+		} else if (value instanceof List) {
+			List<Object> copy = new ArrayList<>();
+			for (Object element : (List<?>) value) {
+				copy.add(copyValue(element));
+			}
+			return copy;
+		} else {
+			return value;
+		}
+	}
+}
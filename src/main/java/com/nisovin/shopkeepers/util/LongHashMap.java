@@ -0,0 +1,201 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map with primitive <code>long</code> keys.
+ * <p>
+ * This uses open addressing with linear probing and avoids the boxing of keys and the allocation of entry objects.
+ * <code>null</code> values are not supported.
+ * <p>
+ * The map is not thread-safe.
+ * 
+ * @param <V>
+ *            the value type
+ */
+public class LongHashMap<V> {
+
+	private static final int DEFAULT_CAPACITY = 16; // power of two
+	private static final float LOAD_FACTOR = 0.5F;
+
+	private long[] keys;
+	// null indicates an empty slot:
+	private V[] values;
+	private int size = 0;
+	private int resizeThreshold;
+	private int modCount = 0;
+
+	private final Collection<V> valuesView = new AbstractCollection<V>() {
+		@Override
+		public Iterator<V> iterator() {
+			return new ValuesIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	};
+
+	public LongHashMap() {
+		this.allocate(DEFAULT_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = (V[]) new Object[capacity];
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int hash(long key) {
+		// mixes the bits of both coordinates (from MurmurHash3's fmix64):
+		key ^= (key >>> 33);
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= (key >>> 33);
+		return (int) key;
+	}
+
+	// returns the slot of the given key, or the empty slot at which the key would be inserted
+	private int findSlot(long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != null && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return (size == 0);
+	}
+
+	public boolean containsKey(long key) {
+		return (this.get(key) != null);
+	}
+
+	public V get(long key) {
+		return values[this.findSlot(key)];
+	}
+
+	/**
+	 * Maps the given value to the specified key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value, not <code>null</code>
+	 * @return the previous value, or <code>null</code> if there was none
+	 */
+	public V put(long key, V value) {
+		Validate.notNull(value, "Value is null!");
+		int slot = this.findSlot(key);
+		V previous = values[slot];
+		if (previous == null) {
+			keys[slot] = key;
+			size++;
+			modCount++;
+		}
+		values[slot] = value;
+		if (size > resizeThreshold) {
+			this.rehash(keys.length * 2);
+		}
+		return previous;
+	}
+
+	public V remove(long key) {
+		int slot = this.findSlot(key);
+		V previous = values[slot];
+		if (previous == null) return null; // not found
+		this.removeSlot(slot);
+		return previous;
+	}
+
+	private void removeSlot(int slot) {
+		values[slot] = null;
+		size--;
+		modCount++;
+
+		// shift back subsequent entries of the same probe sequence to fill the gap:
+		int mask = keys.length - 1;
+		int gap = slot;
+		int current = (slot + 1) & mask;
+		while (values[current] != null) {
+			int home = hash(keys[current]) & mask;
+			// move the entry if its home slot is not located cyclically within (gap, current]:
+			boolean move = (gap <= current) ? (home <= gap || home > current) : (home <= gap && home > current);
+			if (move) {
+				keys[gap] = keys[current];
+				values[gap] = values[current];
+				values[current] = null;
+				gap = current;
+			}
+			current = (current + 1) & mask;
+		}
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		V[] oldValues = values;
+		this.allocate(newCapacity);
+		for (int i = 0; i < oldValues.length; ++i) {
+			V value = oldValues[i];
+			if (value == null) continue;
+			int slot = this.findSlot(oldKeys[i]);
+			keys[slot] = oldKeys[i];
+			values[slot] = value;
+		}
+	}
+
+	public void clear() {
+		if (size == 0) return;
+		Arrays.fill(values, null);
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Gets an unmodifiable view on the values of this map.
+	 * <p>
+	 * The map must not be modified while the view is being iterated.
+	 * 
+	 * @return a view on the values
+	 */
+	public Collection<V> values() {
+		return valuesView;
+	}
+
+	private final class ValuesIterator implements Iterator<V> {
+
+		private int nextSlot = 0;
+		private final int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			while (nextSlot < values.length && values[nextSlot] == null) {
+				nextSlot++;
+			}
+			return (nextSlot < values.length);
+		}
+
+		@Override
+		public V next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return values[nextSlot++];
+		}
+	}
+}
@@ -0,0 +1,349 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable hash map which shares its structure with the maps it got derived from.
+ * <p>
+ * This is a hash array mapped trie: Each level of the trie consumes 5 bits of the key's hash. Adding or removing a
+ * mapping only copies the nodes along the path to the affected key (at most 7 nodes with up to 32 slots each), and
+ * shares all other nodes with the previous map. Keys with equal hashes are kept in a linked list of entries.
+ * <p>
+ * <code>null</code> keys and values are not supported. Since instances are immutable, they can be safely shared among
+ * threads.
+ * 
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public final class PersistentHashMap<K, V> {
+
+	private static final int BITS_PER_LEVEL = 5;
+	private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+	// 32 bits of hash, 5 bits per level:
+	private static final int MAX_DEPTH = 7;
+
+	private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+	// entries with equal hashes are linked
+	private static final class Entry {
+
+		private final int hash;
+		private final Object key;
+		private final Object value;
+		private final Entry next; // can be null
+
+		Entry(int hash, Object key, Object value, Entry next) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	// each slot contains either an Entry or a Node
+	private static final class Node {
+
+		private final int bitmap;
+		private final Object[] slots;
+
+		Node(int bitmap, Object[] slots) {
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		Node withSlot(int index, Object slot) {
+			Object[] newSlots = slots.clone();
+			newSlots[index] = slot;
+			return new Node(bitmap, newSlots);
+		}
+
+		Node withInsertedSlot(int bit, int index, Object slot) {
+			Object[] newSlots = new Object[slots.length + 1];
+			System.arraycopy(slots, 0, newSlots, 0, index);
+			newSlots[index] = slot;
+			System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+			return new Node(bitmap | bit, newSlots);
+		}
+
+		// returns null if the node would be empty
+		Node withoutSlot(int bit, int index) {
+			if (slots.length == 1) return null;
+			Object[] newSlots = new Object[slots.length - 1];
+			System.arraycopy(slots, 0, newSlots, 0, index);
+			System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+			return new Node(bitmap & ~bit, newSlots);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentHashMap<K, V> empty() {
+		return (PersistentHashMap<K, V>) EMPTY;
+	}
+
+	private final Node root; // null if empty
+	private final int size;
+
+	private final Collection<V> valuesView = new AbstractCollection<V>() {
+		@Override
+		public Iterator<V> iterator() {
+			return new ValuesIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	};
+
+	private PersistentHashMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	private static int hash(Object key) {
+		int hash = key.hashCode();
+		// spreads the higher bits, so that the first levels of the trie are used evenly:
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int levelBit(int hash, int shift) {
+		return 1 << ((hash >>> shift) & LEVEL_MASK);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return (size == 0);
+	}
+
+	public boolean containsKey(Object key) {
+		return (this.get(key) != null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		Validate.notNull(key, "Key is null!");
+		int hash = hash(key);
+		Node node = root;
+		int shift = 0;
+		while (node != null) {
+			int bit = levelBit(hash, shift);
+			if ((node.bitmap & bit) == 0) return null;
+			Object slot = node.slots[node.index(bit)];
+			if (slot instanceof Node) {
+				node = (Node) slot;
+				shift += BITS_PER_LEVEL;
+				continue;
+			}
+			Entry entry = (Entry) slot;
+			if (entry.hash != hash) return null;
+			for (; entry != null; entry = entry.next) {
+				if (entry.key.equals(key)) return (V) entry.value;
+			}
+			return null;
+		}
+		return null;
+	}
+
+	/**
+	 * Gets a map which contains the mappings of this map, and which maps the given value to the specified key.
+	 * 
+	 * @param key
+	 *            the key, not <code>null</code>
+	 * @param value
+	 *            the value, not <code>null</code>
+	 * @return the new map, or this map if it already contains the given mapping
+	 */
+	public PersistentHashMap<K, V> with(K key, V value) {
+		Validate.notNull(key, "Key is null!");
+		Validate.notNull(value, "Value is null!");
+		boolean[] added = new boolean[1];
+		Node newRoot = put(root, 0, hash(key), key, value, added);
+		if (newRoot == root) return this;
+		return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+	}
+
+	/**
+	 * Gets a map which contains the mappings of this map, except the mapping for the specified key.
+	 * 
+	 * @param key
+	 *            the key, not <code>null</code>
+	 * @return the new map, or this map if it contains no mapping for the given key
+	 */
+	public PersistentHashMap<K, V> without(Object key) {
+		Validate.notNull(key, "Key is null!");
+		Object newRoot = remove(root, 0, hash(key), key);
+		if (newRoot == root) return this;
+		if (newRoot == null) return empty();
+		if (newRoot instanceof Entry) {
+			// there is no parent node that could inline the remaining entry:
+			Entry entry = (Entry) newRoot;
+			newRoot = new Node(levelBit(entry.hash, 0), new Object[] { entry });
+		}
+		return new PersistentHashMap<>((Node) newRoot, size - 1);
+	}
+
+	private static Node put(Node node, int shift, int hash, Object key, Object value, boolean[] added) {
+		int bit = levelBit(hash, shift);
+		if (node == null) {
+			added[0] = true;
+			return new Node(bit, new Object[] { new Entry(hash, key, value, null) });
+		}
+		int index = node.index(bit);
+		if ((node.bitmap & bit) == 0) {
+			added[0] = true;
+			return node.withInsertedSlot(bit, index, new Entry(hash, key, value, null));
+		}
+
+		Object slot = node.slots[index];
+		if (slot instanceof Node) {
+			Node child = (Node) slot;
+			Node newChild = put(child, shift + BITS_PER_LEVEL, hash, key, value, added);
+			if (newChild == child) return node;
+			return node.withSlot(index, newChild);
+		}
+
+		Entry entry = (Entry) slot;
+		if (entry.hash == hash) {
+			Entry newEntry = putEntry(entry, hash, key, value, added);
+			if (newEntry == entry) return node;
+			return node.withSlot(index, newEntry);
+		}
+
+		// different hashes: split into a new child node (the hashes differ at the latest at the last level)
+		assert shift + BITS_PER_LEVEL < BITS_PER_LEVEL * MAX_DEPTH;
+		int childShift = shift + BITS_PER_LEVEL;
+		Node child = new Node(levelBit(entry.hash, childShift), new Object[] { entry });
+		return node.withSlot(index, put(child, childShift, hash, key, value, added));
+	}
+
+	// entries with equal hashes:
+	private static Entry putEntry(Entry entry, int hash, Object key, Object value, boolean[] added) {
+		for (Entry current = entry; current != null; current = current.next) {
+			if (current.key.equals(key)) {
+				if (current.value == value) return entry; // unchanged
+				return new Entry(hash, key, value, removeEntry(entry, key));
+			}
+		}
+		added[0] = true;
+		return new Entry(hash, key, value, entry);
+	}
+
+	// returns the same entry if the key is not contained, or null if no entry remains
+	private static Entry removeEntry(Entry entry, Object key) {
+		if (entry == null) return null;
+		if (entry.key.equals(key)) return entry.next;
+		Entry newNext = removeEntry(entry.next, key);
+		if (newNext == entry.next) return entry;
+		return new Entry(entry.hash, entry.key, entry.value, newNext);
+	}
+
+	// returns the same node if the key is not contained, null if the node is empty afterwards, or an Entry if only a
+	// single entry (chain) remains that can be inlined into the parent node
+	private static Object remove(Node node, int shift, int hash, Object key) {
+		if (node == null) return null;
+		int bit = levelBit(hash, shift);
+		if ((node.bitmap & bit) == 0) return node;
+		int index = node.index(bit);
+
+		Object slot = node.slots[index];
+		Object newSlot;
+		if (slot instanceof Node) {
+			newSlot = remove((Node) slot, shift + BITS_PER_LEVEL, hash, key);
+		} else {
+			Entry entry = (Entry) slot;
+			if (entry.hash != hash) return node;
+			newSlot = removeEntry(entry, key);
+		}
+		if (newSlot == slot) return node; // not contained
+
+		Node newNode;
+		if (newSlot == null) {
+			newNode = node.withoutSlot(bit, index);
+			if (newNode == null) return null;
+		} else {
+			newNode = node.withSlot(index, newSlot);
+		}
+		// inline a single remaining entry into the parent node:
+		if (shift > 0 && newNode.slots.length == 1 && newNode.slots[0] instanceof Entry) {
+			return newNode.slots[0];
+		}
+		return newNode;
+	}
+
+	/**
+	 * Gets an unmodifiable view on the values of this map.
+	 * 
+	 * @return the values
+	 */
+	public Collection<V> values() {
+		return valuesView;
+	}
+
+	private class ValuesIterator implements Iterator<V> {
+
+		private final Object[][] slotsStack = new Object[MAX_DEPTH][];
+		private final int[] indexStack = new int[MAX_DEPTH];
+		private int depth = -1;
+		private Entry nextEntry = null;
+
+		ValuesIterator() {
+			if (root != null) {
+				depth = 0;
+				slotsStack[0] = root.slots;
+				indexStack[0] = 0;
+				this.advance();
+			}
+		}
+
+		private void advance() {
+			if (nextEntry != null) {
+				nextEntry = nextEntry.next;
+				if (nextEntry != null) return;
+			}
+			while (depth >= 0) {
+				Object[] slots = slotsStack[depth];
+				int index = indexStack[depth];
+				if (index >= slots.length) {
+					depth--;
+					continue;
+				}
+				indexStack[depth] = index + 1;
+				Object slot = slots[index];
+				if (slot instanceof Node) {
+					depth++;
+					slotsStack[depth] = ((Node) slot).slots;
+					indexStack[depth] = 0;
+				} else {
+					nextEntry = (Entry) slot;
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return (nextEntry != null);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V next() {
+			if (nextEntry == null) throw new NoSuchElementException();
+			V value = (V) nextEntry.value;
+			this.advance();
+			return value;
+		}
+	}
+}
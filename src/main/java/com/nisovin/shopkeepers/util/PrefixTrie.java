@@ -0,0 +1,213 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * A trie that maps String keys to (possibly multiple) values and supports efficient prefix lookups.
+ * <p>
+ * The values matching a given prefix are iterated lazily in breadth-first order, i.e. the values of shorter keys are
+ * returned before the values of longer keys. Keys of equal length are ordered by their characters. This allows callers
+ * to only retrieve the first few (most relevant) matches without having to visit all matching entries.
+ * <p>
+ * The trie is not thread-safe and must not be modified while being iterated.
+ * 
+ * @param <V>
+ *            the value type
+ */
+public class PrefixTrie<V> {
+
+	private static final class Node<V> {
+
+		final Node<V> parent; // null for the root node
+		final char key;
+		// lazily created:
+		Map<Character, Node<V>> children = null;
+		List<V> values = null;
+		// the number of values stored in this node and all of its child nodes:
+		int size = 0;
+
+		Node(Node<V> parent, char key) {
+			this.parent = parent;
+			this.key = key;
+		}
+
+		Node<V> getChild(char key) {
+			if (children == null) return null;
+			return children.get(key);
+		}
+
+		Node<V> getOrCreateChild(char key) {
+			if (children == null) {
+				// sorted by key:
+				children = new TreeMap<>();
+			}
+			Node<V> child = children.get(key);
+			if (child == null) {
+				child = new Node<>(this, key);
+				children.put(key, child);
+			}
+			return child;
+		}
+	}
+
+	private final Node<V> root = new Node<>(null, '\0');
+
+	public PrefixTrie() {
+	}
+
+	/**
+	 * Gets the number of values stored inside this trie.
+	 * 
+	 * @return the number of values
+	 */
+	public int size() {
+		return root.size;
+	}
+
+	public boolean isEmpty() {
+		return (root.size == 0);
+	}
+
+	public void clear() {
+		root.children = null;
+		root.values = null;
+		root.size = 0;
+	}
+
+	private Node<V> getNode(String key) {
+		Node<V> node = root;
+		for (int i = 0, length = key.length(); i < length; ++i) {
+			node = node.getChild(key.charAt(i));
+			if (node == null) return null;
+		}
+		return node;
+	}
+
+	/**
+	 * Adds the given value for the specified key.
+	 * <p>
+	 * Multiple values can be stored for the same key.
+	 * 
+	 * @param key
+	 *            the key, not <code>null</code>
+	 * @param value
+	 *            the value
+	 */
+	public void add(String key, V value) {
+		Validate.notNull(key, "Key is null!");
+		Node<V> node = root;
+		for (int i = 0, length = key.length(); i < length; ++i) {
+			node.size++;
+			node = node.getOrCreateChild(key.charAt(i));
+		}
+		node.size++;
+		if (node.values == null) {
+			node.values = new ArrayList<>(1);
+		}
+		node.values.add(value);
+	}
+
+	/**
+	 * Removes the given value for the specified key.
+	 * 
+	 * @param key
+	 *            the key, not <code>null</code>
+	 * @param value
+	 *            the value
+	 * @return <code>true</code> if the value was found and removed
+	 */
+	public boolean remove(String key, V value) {
+		Validate.notNull(key, "Key is null!");
+		Node<V> node = this.getNode(key);
+		if (node == null || node.values == null) return false; // not found
+		if (!node.values.remove(value)) return false; // not found
+		if (node.values.isEmpty()) {
+			node.values = null;
+		}
+
+		// update sizes and remove nodes that no longer contain any values:
+		while (node != null) {
+			node.size--;
+			Node<V> parent = node.parent;
+			if (node.size == 0 && parent != null) {
+				parent.children.remove(node.key);
+				if (parent.children.isEmpty()) {
+					parent.children = null;
+				}
+			}
+			node = parent;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the values stored for the specified key.
+	 * 
+	 * @param key
+	 *            the key, not <code>null</code>
+	 * @return an unmodifiable view on the values, can be empty
+	 */
+	public List<V> get(String key) {
+		Validate.notNull(key, "Key is null!");
+		Node<V> node = this.getNode(key);
+		if (node == null || node.values == null) return Collections.emptyList();
+		return Collections.unmodifiableList(node.values);
+	}
+
+	/**
+	 * Gets the values of all keys starting with the given prefix.
+	 * <p>
+	 * The values are iterated lazily in breadth-first order: Values of shorter keys are returned first.
+	 * 
+	 * @param prefix
+	 *            the key prefix, can be empty, not <code>null</code>
+	 * @return the matching values
+	 */
+	public Iterable<V> getWithPrefix(String prefix) {
+		Validate.notNull(prefix, "Prefix is null!");
+		Node<V> node = this.getNode(prefix);
+		if (node == null) return Collections.emptyList();
+		return () -> new BreadthFirstIterator<>(node);
+	}
+
+	private static final class BreadthFirstIterator<V> implements Iterator<V> {
+
+		private final Deque<Node<V>> pendingNodes = new ArrayDeque<>();
+		private Iterator<V> currentValues = Collections.emptyIterator();
+
+		BreadthFirstIterator(Node<V> startNode) {
+			pendingNodes.add(startNode);
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!currentValues.hasNext()) {
+				Node<V> node = pendingNodes.poll();
+				if (node == null) return false; // no more values
+				if (node.children != null) {
+					pendingNodes.addAll(node.children.values());
+				}
+				if (node.values != null) {
+					currentValues = node.values.iterator();
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public V next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return currentValues.next();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Delegates to the default file operations, but fails the specified operations.
+ */
+class FaultyFileOperations implements SaveFileWriter.FileOperations {
+
+	private final SaveFileWriter.FileOperations delegate = SaveFileWriter.DEFAULT_FILE_OPERATIONS;
+	boolean failReplace = false;
+	// simulates a crash in the middle of writing by only writing half of the data before failing:
+	boolean partialWrite = false;
+	// writes to these save files (and their temporary save files) fail, ex. 'world_nether.yml':
+	final Set<String> failingSaveFiles = new HashSet<>();
+
+	private boolean isFailing(Path path) {
+		String fileName = path.getFileName().toString();
+		for (String failingSaveFile : failingSaveFiles) {
+			if (fileName.startsWith(failingSaveFile)) return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean exists(Path path) {
+		return delegate.exists(path);
+	}
+
+	@Override
+	public void createDirectories(Path directory) throws IOException {
+		delegate.createDirectories(directory);
+	}
+
+	@Override
+	public void writeAndSync(Path path, byte[] data) throws IOException {
+		if (this.isFailing(path)) {
+			throw new IOException("Simulated write failure!");
+		}
+		if (partialWrite) {
+			byte[] partialData = new byte[data.length / 2];
+			System.arraycopy(data, 0, partialData, 0, partialData.length);
+			delegate.writeAndSync(path, partialData);
+			throw new IOException("Simulated crash during write!");
+		}
+		delegate.writeAndSync(path, data);
+	}
+
+	@Override
+	public void replace(Path source, Path target) throws IOException {
+		if (failReplace) {
+			throw new IOException("Simulated move failure!");
+		}
+		delegate.replace(source, target);
+	}
+
+	@Override
+	public void deleteIfExists(Path path) throws IOException {
+		if (this.isFailing(path)) {
+			throw new IOException("Simulated delete failure!");
+		}
+		delegate.deleteIfExists(path);
+	}
+}
@@ -0,0 +1,364 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.storage.SQLiteShopkeeperDatabase.ShopkeeperRow;
+import com.nisovin.shopkeepers.testutil.AbstractBukkitTest;
+import com.nisovin.shopkeepers.util.Log;
+
+public class SKShopkeeperStorageTest extends AbstractBukkitTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File dataFolder;
+	private FaultyFileOperations fileOperations;
+
+	@BeforeClass
+	public static void setupLogger() {
+		Log.setLogger(Logger.getLogger(SKShopkeeperStorageTest.class.getName()));
+	}
+
+	@Before
+	public void setup() {
+		dataFolder = tempFolder.getRoot();
+		fileOperations = new FaultyFileOperations();
+	}
+
+	@After
+	public void resetSettings() {
+		Settings.saveFilePerWorld = false;
+		Settings.storageType = "yaml";
+	}
+
+	// loads the save files into a new storage, which moves the data into the save files that match the current settings
+	private SKShopkeeperStorage loadStorage() {
+		SKShopkeeperStorage storage = new SKShopkeeperStorage(null, dataFolder, fileOperations);
+		Assert.assertEquals(Boolean.TRUE, storage.loadSaveData());
+		return storage;
+	}
+
+	private Path getMainSaveFile() {
+		return dataFolder.toPath().resolve("save.yml");
+	}
+
+	private Path getDatabaseFile() {
+		return dataFolder.toPath().resolve("save.db");
+	}
+
+	private boolean hasBackup(String fileName) {
+		return dataFolder.list((dir, name) -> name.startsWith(fileName + ".backup-")).length > 0;
+	}
+
+	private Path getWorldSaveFile(String worldName) {
+		return dataFolder.toPath().resolve("data").resolve(worldName + ".yml");
+	}
+
+	private static void addShopkeeper(YamlConfiguration data, int id, String worldName, String name) {
+		if (worldName != null) {
+			data.set(id + ".world", worldName);
+		}
+		data.set(id + ".name", name);
+		data.set(id + ".x", id * 10);
+	}
+
+	private static void write(Path path, YamlConfiguration data) throws IOException {
+		Files.createDirectories(path.getParent());
+		Files.write(path, data.saveToString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static YamlConfiguration read(Path path) {
+		Assert.assertTrue("Missing save file: " + path, Files.exists(path));
+		return YamlConfiguration.loadConfiguration(path.toFile());
+	}
+
+	private static Set<String> getShopkeeperKeys(Path path) {
+		if (!Files.exists(path)) return new HashSet<>();
+		Set<String> keys = new HashSet<>(read(path).getKeys(false));
+		keys.remove("data-version");
+		keys.remove("owner-last-seen");
+		keys.remove("max-shopkeeper-id");
+		return keys;
+	}
+
+	private static Set<String> keys(String... keys) {
+		return new HashSet<>(Arrays.asList(keys));
+	}
+
+	private void writeSingleSaveFile() throws IOException {
+		YamlConfiguration mainData = new YamlConfiguration();
+		mainData.set("data-version", 2);
+		mainData.set("max-shopkeeper-id", 3);
+		addShopkeeper(mainData, 1, "world", "Shop 1");
+		addShopkeeper(mainData, 2, "world_nether", "Shop 2");
+		addShopkeeper(mainData, 3, null, "Virtual shop");
+		write(this.getMainSaveFile(), mainData);
+	}
+
+	private void writeWorldSaveFiles() throws IOException {
+		YamlConfiguration mainData = new YamlConfiguration();
+		mainData.set("data-version", 2);
+		mainData.set("max-shopkeeper-id", 3);
+		addShopkeeper(mainData, 3, null, "Virtual shop");
+		write(this.getMainSaveFile(), mainData);
+
+		YamlConfiguration worldData = new YamlConfiguration();
+		worldData.set("data-version", 2);
+		addShopkeeper(worldData, 1, "world", "Shop 1");
+		write(this.getWorldSaveFile("world"), worldData);
+
+		YamlConfiguration netherData = new YamlConfiguration();
+		netherData.set("data-version", 2);
+		addShopkeeper(netherData, 2, "world_nether", "Shop 2");
+		write(this.getWorldSaveFile("world_nether"), netherData);
+	}
+
+	private void assertWorldSaveFiles() {
+		Assert.assertEquals(keys("3"), getShopkeeperKeys(this.getMainSaveFile()));
+		Assert.assertEquals(3, read(this.getMainSaveFile()).getInt("max-shopkeeper-id"));
+		Assert.assertEquals(keys("1"), getShopkeeperKeys(this.getWorldSaveFile("world")));
+		Assert.assertEquals(keys("2"), getShopkeeperKeys(this.getWorldSaveFile("world_nether")));
+		Assert.assertEquals("Shop 2", read(this.getWorldSaveFile("world_nether")).getString("2.name"));
+	}
+
+	private void assertSingleSaveFile() {
+		Assert.assertEquals(keys("1", "2", "3"), getShopkeeperKeys(this.getMainSaveFile()));
+		Assert.assertEquals(3, read(this.getMainSaveFile()).getInt("max-shopkeeper-id"));
+		Assert.assertFalse(Files.exists(this.getWorldSaveFile("world")));
+		Assert.assertFalse(Files.exists(this.getWorldSaveFile("world_nether")));
+	}
+
+	@Test
+	public void testMigrationToSaveFilePerWorld() throws Exception {
+		this.writeSingleSaveFile();
+		Settings.saveFilePerWorld = true;
+		SKShopkeeperStorage storage = this.loadStorage();
+
+		// the data is not removed from the main save file before all world save files have been written:
+		fileOperations.failingSaveFiles.add("world_nether.yml");
+		try {
+			storage.writeDirtyData();
+			Assert.fail("Expected the save to fail!");
+		} catch (IOException e) {
+			// expected
+		}
+		Assert.assertEquals(keys("1", "2", "3"), getShopkeeperKeys(this.getMainSaveFile()));
+		Assert.assertFalse(Files.exists(this.getWorldSaveFile("world_nether")));
+
+		// the next save completes the migration:
+		fileOperations.failingSaveFiles.clear();
+		storage.writeDirtyData();
+		this.assertWorldSaveFiles();
+
+		// loading the migrated save files does not move any data:
+		storage = this.loadStorage();
+		storage.writeDirtyData();
+		this.assertWorldSaveFiles();
+	}
+
+	@Test
+	public void testMigrationToSingleSaveFile() throws Exception {
+		this.writeWorldSaveFiles();
+		Settings.saveFilePerWorld = false;
+		SKShopkeeperStorage storage = this.loadStorage();
+
+		// the world save files are not deleted before the main save file has been written:
+		fileOperations.failingSaveFiles.add("save.yml");
+		try {
+			storage.writeDirtyData();
+			Assert.fail("Expected the save to fail!");
+		} catch (IOException e) {
+			// expected
+		}
+		Assert.assertEquals(keys("3"), getShopkeeperKeys(this.getMainSaveFile()));
+		Assert.assertEquals(keys("1"), getShopkeeperKeys(this.getWorldSaveFile("world")));
+		Assert.assertEquals(keys("2"), getShopkeeperKeys(this.getWorldSaveFile("world_nether")));
+
+		fileOperations.failingSaveFiles.clear();
+		storage.writeDirtyData();
+		this.assertSingleSaveFile();
+
+		// migrating back:
+		Settings.saveFilePerWorld = true;
+		storage = this.loadStorage();
+		storage.writeDirtyData();
+		this.assertWorldSaveFiles();
+	}
+
+	@Test
+	public void testInterruptedMigrationKeepsAllData() throws Exception {
+		this.writeWorldSaveFiles();
+		Settings.saveFilePerWorld = false;
+		SKShopkeeperStorage storage = this.loadStorage();
+
+		// the main save file gets written, but writing the nether save file fails:
+		fileOperations.failingSaveFiles.add("world_nether.yml");
+		try {
+			storage.writeDirtyData();
+			Assert.fail("Expected the save to fail!");
+		} catch (IOException e) {
+			// expected
+		}
+		Assert.assertEquals(keys("1", "2", "3"), getShopkeeperKeys(this.getMainSaveFile()));
+		Assert.assertEquals(keys("2"), getShopkeeperKeys(this.getWorldSaveFile("world_nether")));
+
+		// after a restart, the data that is stored in both save files is only kept once:
+		fileOperations.failingSaveFiles.clear();
+		storage = this.loadStorage();
+		storage.writeDirtyData();
+		this.assertSingleSaveFile();
+	}
+
+	@Test
+	public void testShopkeeperStoredInMultipleSaveFiles() throws Exception {
+		YamlConfiguration mainData = new YamlConfiguration();
+		mainData.set("data-version", 2);
+		mainData.set("max-shopkeeper-id", 1);
+		addShopkeeper(mainData, 1, "world", "Main copy");
+		write(this.getMainSaveFile(), mainData);
+
+		YamlConfiguration worldData = new YamlConfiguration();
+		worldData.set("data-version", 2);
+		addShopkeeper(worldData, 1, "world", "World copy");
+		write(this.getWorldSaveFile("world"), worldData);
+
+		// the data of the save file in which the shopkeeper is supposed to be stored is preferred:
+		Settings.saveFilePerWorld = true;
+		SKShopkeeperStorage storage = this.loadStorage();
+		storage.writeDirtyData();
+		Assert.assertEquals(keys(), getShopkeeperKeys(this.getMainSaveFile()));
+		Assert.assertEquals(keys("1"), getShopkeeperKeys(this.getWorldSaveFile("world")));
+		Assert.assertEquals("World copy", read(this.getWorldSaveFile("world")).getString("1.name"));
+
+		write(this.getMainSaveFile(), mainData);
+		Settings.saveFilePerWorld = false;
+		storage = this.loadStorage();
+		storage.writeDirtyData();
+		Assert.assertEquals(keys("1"), getShopkeeperKeys(this.getMainSaveFile()));
+		Assert.assertEquals("Main copy", read(this.getMainSaveFile()).getString("1.name"));
+		Assert.assertFalse(Files.exists(this.getWorldSaveFile("world")));
+	}
+
+	@Test
+	public void testImportIntoDatabase() throws Exception {
+		this.writeSingleSaveFile();
+		YamlConfiguration mainData = read(this.getMainSaveFile());
+		UUID ownerUUID = UUID.randomUUID();
+		mainData.set("owner-last-seen." + ownerUUID, 1234567890123L);
+		write(this.getMainSaveFile(), mainData);
+
+		Settings.storageType = "sqlite";
+		SKShopkeeperStorage storage = this.loadStorage();
+		storage.onDisable(); // closes the database
+		Assert.assertFalse(Files.exists(this.getMainSaveFile()));
+		Assert.assertTrue(this.hasBackup("save.yml"));
+
+		SQLiteShopkeeperDatabase database = new SQLiteShopkeeperDatabase(this.getDatabaseFile());
+		database.open();
+		try {
+			List<ShopkeeperRow> rows = database.loadShopkeepers();
+			Assert.assertEquals(3, rows.size());
+			ShopkeeperRow row = rows.get(1);
+			Assert.assertEquals(2, row.id);
+			Assert.assertEquals("world_nether", row.worldName);
+			Assert.assertEquals(20 >> 4, row.chunkX);
+			Assert.assertEquals(0, row.chunkZ);
+			YamlConfiguration shopkeeperData = new YamlConfiguration();
+			shopkeeperData.loadFromString(row.data);
+			Assert.assertEquals("Shop 2", shopkeeperData.getString("name"));
+			Assert.assertNull(rows.get(2).worldName);
+
+			Map<String, String> metadata = database.loadMetadata();
+			Assert.assertEquals("2", metadata.get("data-version"));
+			Assert.assertEquals("3", metadata.get("max-shopkeeper-id"));
+			YamlConfiguration ownerLastSeen = new YamlConfiguration();
+			ownerLastSeen.loadFromString(metadata.get("owner-last-seen"));
+			Assert.assertEquals(1234567890123L, ownerLastSeen.getLong(ownerUUID.toString()));
+		} finally {
+			database.close();
+		}
+
+		// the imported data gets loaded from the database:
+		storage = this.loadStorage();
+		storage.onDisable();
+	}
+
+	@Test
+	public void testExportFromDatabase() throws Exception {
+		this.writeSingleSaveFile();
+		YamlConfiguration mainData = read(this.getMainSaveFile());
+		UUID ownerUUID = UUID.randomUUID();
+		mainData.set("owner-last-seen." + ownerUUID, 1234567890123L);
+		write(this.getMainSaveFile(), mainData);
+
+		Settings.storageType = "sqlite";
+		this.loadStorage().onDisable();
+
+		Settings.storageType = "yaml";
+		this.loadStorage().onDisable();
+		Assert.assertFalse(Files.exists(this.getDatabaseFile()));
+		Assert.assertTrue(this.hasBackup("save.db"));
+
+		YamlConfiguration exportedData = read(this.getMainSaveFile());
+		Assert.assertEquals(keys("1", "2", "3"), getShopkeeperKeys(this.getMainSaveFile()));
+		for (String key : mainData.getKeys(true)) {
+			if (mainData.isConfigurationSection(key)) continue;
+			Assert.assertEquals("Different value for '" + key + "'!", String.valueOf(mainData.get(key)),
+					String.valueOf(exportedData.get(key)));
+		}
+	}
+
+	@Test
+	public void testInvalidDatabaseRowGetsSkipped() throws Exception {
+		this.writeSingleSaveFile();
+		Settings.storageType = "sqlite";
+		this.loadStorage().onDisable();
+
+		String invalidData = "name: 'Shop 2\n";
+		SQLiteShopkeeperDatabase database = new SQLiteShopkeeperDatabase(this.getDatabaseFile());
+		database.open();
+		try {
+			ShopkeeperRow invalidRow = new ShopkeeperRow(2, "world_nether", 1, 0, invalidData);
+			database.writeChanges(Arrays.asList(invalidRow), Collections.emptyList(), Collections.emptyMap());
+		} finally {
+			database.close();
+		}
+
+		// the other shopkeepers still get loaded:
+		SKShopkeeperStorage storage = this.loadStorage();
+		storage.writeDirtyData();
+		storage.onDisable();
+
+		// the invalid row stays untouched:
+		database.open();
+		try {
+			List<ShopkeeperRow> rows = database.loadShopkeepers();
+			Assert.assertEquals(3, rows.size());
+			Assert.assertEquals(invalidData, rows.get(1).data);
+		} finally {
+			database.close();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.nisovin.shopkeepers.storage.SQLiteShopkeeperDatabase.ShopkeeperRow;
+
+public class SQLiteShopkeeperDatabaseTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private SQLiteShopkeeperDatabase database;
+
+	@Before
+	public void setup() throws SQLException {
+		Path databaseFile = tempFolder.getRoot().toPath().resolve("save.db");
+		database = new SQLiteShopkeeperDatabase(databaseFile);
+		Assert.assertFalse(database.exists());
+		database.open();
+		Assert.assertTrue(database.exists());
+	}
+
+	@After
+	public void cleanup() throws SQLException {
+		database.close();
+	}
+
+	private void reopen() throws SQLException {
+		database.close();
+		Assert.assertFalse(database.isOpen());
+		database.open();
+	}
+
+	private static ShopkeeperRow createRow(int id, String worldName, String name) {
+		return new ShopkeeperRow(id, worldName, id * 2, -id, "name: " + name + "\n");
+	}
+
+	private static void assertRow(ShopkeeperRow expected, ShopkeeperRow actual) {
+		Assert.assertEquals(expected.id, actual.id);
+		Assert.assertEquals(expected.worldName, actual.worldName);
+		Assert.assertEquals(expected.chunkX, actual.chunkX);
+		Assert.assertEquals(expected.chunkZ, actual.chunkZ);
+		Assert.assertEquals(expected.data, actual.data);
+	}
+
+	@Test
+	public void testEmptyDatabase() throws SQLException {
+		Assert.assertTrue(database.loadMetadata().isEmpty());
+		Assert.assertTrue(database.loadShopkeepers().isEmpty());
+	}
+
+	@Test
+	public void testRoundTrip() throws SQLException {
+		List<ShopkeeperRow> rows = Arrays.asList(createRow(1, "world", "Shop 1"), createRow(2, "world_nether", "Shop 2"),
+				createRow(3, null, "Virtual shop"));
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("data-version", "2");
+		metadata.put("max-shopkeeper-id", "3");
+		database.writeChanges(rows, Collections.emptyList(), metadata);
+
+		this.reopen();
+		List<ShopkeeperRow> loadedRows = database.loadShopkeepers();
+		Assert.assertEquals(rows.size(), loadedRows.size());
+		for (int i = 0; i < rows.size(); i++) {
+			assertRow(rows.get(i), loadedRows.get(i));
+		}
+		Assert.assertEquals(metadata, database.loadMetadata());
+	}
+
+	@Test
+	public void testUpdateAndDeleteRows() throws SQLException {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("data-version", "2");
+		metadata.put("max-shopkeeper-id", "3");
+		database.writeChanges(Arrays.asList(createRow(1, "world", "Shop 1"), createRow(2, "world", "Shop 2"),
+				createRow(3, "world", "Shop 3")), Collections.emptyList(), metadata);
+
+		// only the given rows and metadata entries get replaced or deleted:
+		ShopkeeperRow updatedRow = new ShopkeeperRow(2, "world_nether", 10, 20, "name: Moved shop\n");
+		database.writeChanges(Arrays.asList(updatedRow), Arrays.asList(3), Collections.singletonMap("max-shopkeeper-id", "4"));
+
+		this.reopen();
+		List<ShopkeeperRow> loadedRows = database.loadShopkeepers();
+		Assert.assertEquals(2, loadedRows.size());
+		assertRow(createRow(1, "world", "Shop 1"), loadedRows.get(0));
+		assertRow(updatedRow, loadedRows.get(1));
+		Map<String, String> loadedMetadata = database.loadMetadata();
+		Assert.assertEquals("2", loadedMetadata.get("data-version"));
+		Assert.assertEquals("4", loadedMetadata.get("max-shopkeeper-id"));
+	}
+
+	@Test
+	public void testFailedWriteGetsRolledBack() throws SQLException {
+		database.writeChanges(Arrays.asList(createRow(1, "world", "Shop 1")), Collections.emptyList(), Collections.emptyMap());
+
+		// metadata values cannot be null:
+		Map<String, String> invalidMetadata = new HashMap<>();
+		invalidMetadata.put("max-shopkeeper-id", null);
+		try {
+			database.writeChanges(Arrays.asList(createRow(2, "world", "Shop 2")), Arrays.asList(1), invalidMetadata);
+			Assert.fail("Expected the write to fail!");
+		} catch (SQLException e) {
+			// expected
+		}
+
+		List<ShopkeeperRow> loadedRows = database.loadShopkeepers();
+		Assert.assertEquals(1, loadedRows.size());
+		assertRow(createRow(1, "world", "Shop 1"), loadedRows.get(0));
+		Assert.assertTrue(database.loadMetadata().isEmpty());
+	}
+}
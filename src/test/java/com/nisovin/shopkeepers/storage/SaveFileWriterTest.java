@@ -0,0 +1,115 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.nisovin.shopkeepers.util.Log;
+
+public class SaveFileWriterTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private Path saveFile;
+	private FaultyFileOperations fileOperations;
+	private SaveFileWriter writer;
+
+	@BeforeClass
+	public static void setupLogger() {
+		Log.setLogger(Logger.getLogger(SaveFileWriterTest.class.getName()));
+	}
+
+	@Before
+	public void setup() {
+		saveFile = tempFolder.getRoot().toPath().resolve("data").resolve("save.yml");
+		fileOperations = new FaultyFileOperations();
+		writer = new SaveFileWriter(saveFile, fileOperations);
+	}
+
+	private static String read(Path path) throws IOException {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testWriteCreatesSaveFile() throws IOException {
+		writer.write("first", StandardCharsets.UTF_8);
+		Assert.assertEquals("first", read(saveFile));
+		Assert.assertFalse(Files.exists(writer.getTempSaveFile()));
+
+		writer.write("second", StandardCharsets.UTF_8);
+		Assert.assertEquals("second", read(saveFile));
+		Assert.assertFalse(Files.exists(writer.getTempSaveFile()));
+	}
+
+	@Test
+	public void testFailedWriteKeepsPreviousData() throws IOException {
+		writer.write("previous", StandardCharsets.UTF_8);
+
+		fileOperations.partialWrite = true;
+		try {
+			writer.write("new data", StandardCharsets.UTF_8);
+			Assert.fail("Expected the write to fail!");
+		} catch (IOException e) {
+			// expected
+		}
+		Assert.assertEquals("previous", read(saveFile));
+
+		fileOperations.partialWrite = false;
+		fileOperations.failReplace = true;
+		try {
+			writer.write("new data", StandardCharsets.UTF_8);
+			Assert.fail("Expected the write to fail!");
+		} catch (IOException e) {
+			// expected
+		}
+		Assert.assertEquals("previous", read(saveFile));
+
+		// a subsequent attempt succeeds and overwrites the left over temporary save file:
+		fileOperations.failReplace = false;
+		writer.write("new data", StandardCharsets.UTF_8);
+		Assert.assertEquals("new data", read(saveFile));
+		Assert.assertFalse(Files.exists(writer.getTempSaveFile()));
+	}
+
+	@Test
+	public void testRecoverDeletesIncompleteTempFile() throws IOException {
+		writer.write("intact", StandardCharsets.UTF_8);
+		fileOperations.partialWrite = true;
+		try {
+			writer.write("incomplete data", StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			// expected
+		}
+		Assert.assertTrue(Files.exists(writer.getTempSaveFile()));
+
+		writer.recoverTempSaveFile();
+		Assert.assertFalse(Files.exists(writer.getTempSaveFile()));
+		Assert.assertEquals("intact", read(saveFile));
+	}
+
+	@Test
+	public void testRecoverUsesTempFileIfSaveFileIsMissing() throws IOException {
+		Files.createDirectories(saveFile.getParent());
+		Files.write(writer.getTempSaveFile(), "only copy".getBytes(StandardCharsets.UTF_8));
+
+		writer.recoverTempSaveFile();
+		Assert.assertFalse(Files.exists(writer.getTempSaveFile()));
+		Assert.assertEquals("only copy", read(saveFile));
+	}
+
+	@Test
+	public void testRecoverWithoutTempFile() throws IOException {
+		writer.recoverTempSaveFile();
+		Assert.assertFalse(Files.exists(saveFile));
+	}
+}
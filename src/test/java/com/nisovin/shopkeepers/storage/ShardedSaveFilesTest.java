@@ -0,0 +1,122 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.nisovin.shopkeepers.util.Log;
+
+public class ShardedSaveFilesTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private Path directory;
+	private ShardedSaveFiles saveFiles;
+
+	@BeforeClass
+	public static void setupLogger() {
+		Log.setLogger(Logger.getLogger(ShardedSaveFilesTest.class.getName()));
+	}
+
+	@Before
+	public void setup() {
+		directory = tempFolder.getRoot().toPath().resolve("data");
+		saveFiles = new ShardedSaveFiles(directory);
+	}
+
+	private static YamlConfiguration createShardData(String worldName, int... ids) {
+		YamlConfiguration shardData = new YamlConfiguration();
+		shardData.set("data-version", 1);
+		for (int id : ids) {
+			shardData.set(id + ".world", worldName);
+			shardData.set(id + ".name", "Shop " + id);
+			shardData.set(id + ".x", id * 10);
+		}
+		return shardData;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Assert.assertTrue(saveFiles.loadAll(StandardCharsets.UTF_8).isEmpty());
+
+		Map<String, YamlConfiguration> shards = new HashMap<>();
+		shards.put("world", createShardData("world", 1, 2, 3));
+		shards.put("world_nether", createShardData("world_nether", 4));
+		shards.put("world_the_end", createShardData("world_the_end", 5, 6));
+		Assert.assertTrue(saveFiles.writeAll(shards, StandardCharsets.UTF_8).isEmpty());
+		Assert.assertEquals(shards.keySet(), saveFiles.getExistingShards());
+
+		Map<String, YamlConfiguration> loaded = saveFiles.loadAll(StandardCharsets.UTF_8);
+		Assert.assertEquals(shards.keySet(), loaded.keySet());
+		for (Map.Entry<String, YamlConfiguration> entry : shards.entrySet()) {
+			Assert.assertEquals(entry.getValue().saveToString(), loaded.get(entry.getKey()).saveToString());
+		}
+	}
+
+	@Test
+	public void testOnlyGivenShardsGetWritten() throws IOException {
+		Map<String, YamlConfiguration> shards = new HashMap<>();
+		shards.put("world", createShardData("world", 1));
+		shards.put("world_nether", createShardData("world_nether", 2));
+		saveFiles.writeAll(shards, StandardCharsets.UTF_8);
+
+		// update one shard and delete the other one:
+		Map<String, YamlConfiguration> changedShards = new HashMap<>();
+		changedShards.put("world", createShardData("world", 1, 3));
+		changedShards.put("world_nether", null);
+		Assert.assertTrue(saveFiles.writeAll(changedShards, StandardCharsets.UTF_8).isEmpty());
+
+		Map<String, YamlConfiguration> loaded = saveFiles.loadAll(StandardCharsets.UTF_8);
+		Assert.assertEquals(new HashSet<>(Arrays.asList("world")), loaded.keySet());
+		Assert.assertEquals(changedShards.get("world").saveToString(), loaded.get("world").saveToString());
+		Assert.assertFalse(Files.exists(saveFiles.getSaveFile("world_nether")));
+	}
+
+	@Test
+	public void testRecoversTempSaveFiles() throws IOException {
+		Files.createDirectories(directory);
+		// a temporary save file without save file:
+		YamlConfiguration shardData = createShardData("world", 1);
+		Files.write(directory.resolve("world.yml.temp"), shardData.saveToString().getBytes(StandardCharsets.UTF_8));
+		// an incomplete temporary save file next to an intact save file:
+		YamlConfiguration netherData = createShardData("world_nether", 2);
+		Files.write(directory.resolve("world_nether.yml"), netherData.saveToString().getBytes(StandardCharsets.UTF_8));
+		Files.write(directory.resolve("world_nether.yml.temp"), "2:\n  name: 'incompl".getBytes(StandardCharsets.UTF_8));
+
+		Map<String, YamlConfiguration> loaded = saveFiles.loadAll(StandardCharsets.UTF_8);
+		Assert.assertEquals(shardData.saveToString(), loaded.get("world").saveToString());
+		Assert.assertEquals(netherData.saveToString(), loaded.get("world_nether").saveToString());
+		Assert.assertFalse(Files.exists(directory.resolve("world.yml.temp")));
+		Assert.assertFalse(Files.exists(directory.resolve("world_nether.yml.temp")));
+	}
+
+	@Test
+	public void testFailedShardsGetReported() throws IOException {
+		FaultyFileOperations failingNether = new FaultyFileOperations();
+		failingNether.failingSaveFiles.add("world_nether.yml");
+		saveFiles = new ShardedSaveFiles(directory, failingNether);
+
+		Map<String, YamlConfiguration> shards = new HashMap<>();
+		shards.put("world", createShardData("world", 1));
+		shards.put("world_nether", createShardData("world_nether", 2));
+		Map<String, Exception> errors = saveFiles.writeAll(shards, StandardCharsets.UTF_8);
+		Assert.assertEquals(new HashSet<>(Arrays.asList("world_nether")), errors.keySet());
+		Assert.assertTrue(Files.exists(saveFiles.getSaveFile("world")));
+		Assert.assertFalse(Files.exists(saveFiles.getSaveFile("world_nether")));
+	}
+}
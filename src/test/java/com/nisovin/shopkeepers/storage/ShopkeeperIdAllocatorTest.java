@@ -0,0 +1,96 @@
+package com.nisovin.shopkeepers.storage;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShopkeeperIdAllocatorTest {
+
+	private static final int SHOPKEEPERS_COUNT = 200000;
+
+	private ShopkeeperIdAllocator allocator;
+
+	@Before
+	public void setup() {
+		allocator = new ShopkeeperIdAllocator();
+	}
+
+	// similar to the shopkeeper registry: gets the next id and then marks it as used
+	private int createShopkeeper() {
+		int id = allocator.getNextId();
+		Assert.assertTrue("Id is already used: " + id, allocator.markUsed(id));
+		return id;
+	}
+
+	@Test
+	public void testSequentialAllocation() {
+		for (int i = 1; i <= SHOPKEEPERS_COUNT; i++) {
+			Assert.assertEquals(i, this.createShopkeeper());
+		}
+		Assert.assertEquals(SHOPKEEPERS_COUNT, allocator.getUsedCount());
+		Assert.assertEquals(SHOPKEEPERS_COUNT, allocator.getHighWaterMark());
+	}
+
+	@Test
+	public void testDeletedIdsDontGetReused() {
+		for (int i = 1; i <= SHOPKEEPERS_COUNT; i++) {
+			this.createShopkeeper();
+		}
+		// delete every second shopkeeper, including the one with the largest id:
+		for (int id = SHOPKEEPERS_COUNT; id > 0; id -= 2) {
+			allocator.markUnused(id);
+			Assert.assertFalse(allocator.isUsed(id));
+		}
+		Assert.assertEquals(SHOPKEEPERS_COUNT / 2, allocator.getUsedCount());
+		Assert.assertEquals(SHOPKEEPERS_COUNT + 1, this.createShopkeeper());
+	}
+
+	@Test
+	public void testPersistedHighWaterMark() {
+		// after a restart, only the remaining shopkeepers get loaded:
+		allocator.raiseHighWaterMark(500);
+		allocator.markUsed(3);
+		allocator.markUsed(7);
+		Assert.assertEquals(501, this.createShopkeeper());
+
+		// the high-water mark does not get lowered:
+		allocator.raiseHighWaterMark(10);
+		Assert.assertEquals(502, this.createShopkeeper());
+	}
+
+	@Test
+	public void testCollisions() {
+		Assert.assertTrue(allocator.markUsed(5));
+		Assert.assertFalse(allocator.markUsed(5));
+		Assert.assertEquals(1, allocator.getUsedCount());
+
+		int largeId = ShopkeeperIdAllocator.MAX_BITSET_ID + 10;
+		Assert.assertTrue(allocator.markUsed(largeId));
+		Assert.assertFalse(allocator.markUsed(largeId));
+		Assert.assertTrue(allocator.isUsed(largeId));
+		Assert.assertEquals(2, allocator.getUsedCount());
+		Assert.assertEquals(largeId + 1, allocator.getNextId());
+
+		allocator.markUnused(largeId);
+		Assert.assertFalse(allocator.isUsed(largeId));
+		Assert.assertEquals(1, allocator.getUsedCount());
+	}
+
+	@Test
+	public void testReusesLowestFreeIdAfterMaxId() {
+		for (int i = 1; i <= SHOPKEEPERS_COUNT; i++) {
+			this.createShopkeeper();
+		}
+		Assert.assertTrue(allocator.markUsed(Integer.MAX_VALUE));
+		allocator.markUnused(1000);
+		allocator.markUnused(50);
+		Assert.assertEquals(50, this.createShopkeeper());
+		Assert.assertEquals(1000, this.createShopkeeper());
+		Assert.assertEquals(SHOPKEEPERS_COUNT + 1, this.createShopkeeper());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidId() {
+		allocator.markUsed(0);
+	}
+}
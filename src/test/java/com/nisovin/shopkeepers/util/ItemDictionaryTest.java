@@ -0,0 +1,90 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.Arrays;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.testutil.AbstractBukkitTest;
+
+public class ItemDictionaryTest extends AbstractBukkitTest {
+
+	private static ItemStack createItemStack() {
+		ItemStack itemStack = new ItemStack(Material.DIAMOND_SWORD, 1);
+		ItemMeta itemMeta = itemStack.getItemMeta();
+		itemMeta.setDisplayName(ChatColor.RED + "Custom Name");
+		itemMeta.setLore(Arrays.asList(ChatColor.GREEN + "lore1", "lore2"));
+		itemMeta.addEnchant(Enchantment.DAMAGE_ALL, 2, true);
+		itemStack.setItemMeta(itemMeta);
+		return itemStack;
+	}
+
+	@Test
+	public void testEqualItemsGetInterned() {
+		ItemStack item = createItemStack();
+		ItemStack internedItem = ItemInterner.intern(item);
+		Assert.assertNotSame(item, internedItem);
+		Assert.assertEquals(item, internedItem);
+		Assert.assertTrue(ItemInterner.isInterned(internedItem));
+		Assert.assertFalse(ItemInterner.isInterned(item));
+		Assert.assertSame(internedItem, ItemInterner.intern(createItemStack()));
+		Assert.assertNotSame(internedItem, ItemInterner.intern(new ItemStack(Material.DIAMOND_SWORD, 1)));
+		Assert.assertNull(ItemInterner.intern(new ItemStack(Material.AIR)));
+	}
+
+	@Test
+	public void testSerializedFormMatchesRegularSerialization() {
+		ItemStack internedItem = ItemInterner.intern(createItemStack());
+		YamlConfiguration expected = new YamlConfiguration();
+		expected.set("item", internedItem);
+		YamlConfiguration actual = new YamlConfiguration();
+		actual.set("item", ItemInterner.serialize(internedItem));
+		// cached serialized form:
+		actual.set("item2", ItemInterner.serialize(internedItem));
+		expected.set("item2", internedItem.clone());
+		Assert.assertEquals(expected.saveToString(), actual.saveToString());
+	}
+
+	@Test
+	public void testRoundTrip() throws InvalidConfigurationException {
+		ItemStack item1 = ItemInterner.intern(createItemStack());
+		ItemStack item2 = ItemInterner.intern(new ItemStack(Material.EMERALD, 5));
+
+		ItemDictionary dictionary = new ItemDictionary();
+		YamlConfiguration config = new YamlConfiguration();
+		config.set("a", dictionary.getIndex(item1));
+		config.set("b", dictionary.getIndex(item2));
+		config.set("c", dictionary.getIndex(item1.clone()));
+		Assert.assertEquals(2, dictionary.getSize());
+		dictionary.save(config, "items");
+
+		YamlConfiguration loadedConfig = new YamlConfiguration();
+		loadedConfig.loadFromString(config.saveToString());
+		ItemDictionary loadedDictionary = ItemDictionary.load(loadedConfig, "items");
+		Assert.assertEquals(2, loadedDictionary.getSize());
+		Assert.assertSame(item1, loadedDictionary.getItem(loadedConfig, "a"));
+		Assert.assertSame(item2, loadedDictionary.getItem(loadedConfig, "b"));
+		Assert.assertSame(item1, loadedDictionary.getItem(loadedConfig, "c"));
+		Assert.assertNull(loadedDictionary.getItem(5));
+	}
+
+	@Test
+	public void testLoadsInlineItems() throws InvalidConfigurationException {
+		ItemStack item = createItemStack();
+		YamlConfiguration config = new YamlConfiguration();
+		config.set("item", item);
+		YamlConfiguration loadedConfig = new YamlConfiguration();
+		loadedConfig.loadFromString(config.saveToString());
+
+		ItemDictionary dictionary = ItemDictionary.load(loadedConfig, "items");
+		Assert.assertEquals(0, dictionary.getSize());
+		Assert.assertEquals(item, dictionary.getItem(loadedConfig, "item"));
+	}
+}
@@ -0,0 +1,59 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongHashMapTest {
+
+	@Test
+	public void testBasicOperations() {
+		LongHashMap<String> map = new LongHashMap<>();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(0L, "a"));
+		Assert.assertNull(map.put(-1L, "b"));
+		Assert.assertEquals("a", map.put(0L, "c"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("c", map.get(0L));
+		Assert.assertEquals("b", map.get(-1L));
+		Assert.assertNull(map.get(1L));
+
+		Assert.assertEquals("b", map.remove(-1L));
+		Assert.assertNull(map.remove(-1L));
+		Assert.assertFalse(map.containsKey(-1L));
+		Assert.assertEquals(1, map.size());
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(0L));
+	}
+
+	@Test
+	public void testMatchesHashMap() {
+		LongHashMap<Long> map = new LongHashMap<>();
+		Map<Long, Long> expected = new HashMap<>();
+		Random random = new Random(42L);
+		for (int i = 0; i < 20000; ++i) {
+			// small key range to provoke collisions and removals of existing keys:
+			long key = (long) (random.nextInt(64) - 32) << 32 | (random.nextInt(64) - 32) & 0xFFFFFFFFL;
+			if (random.nextInt(3) == 0) {
+				Assert.assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				Assert.assertEquals(expected.put(key, key), map.put(key, key));
+			}
+			Assert.assertEquals(expected.size(), map.size());
+		}
+		for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+			Assert.assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+		List<Long> values = new ArrayList<>(map.values());
+		Assert.assertEquals(expected.size(), values.size());
+		Assert.assertEquals(new HashSet<>(expected.values()), new HashSet<>(values));
+	}
+}
@@ -0,0 +1,98 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PersistentHashMapTest {
+
+	// all instances have the same hash:
+	private static final class CollidingKey {
+
+		private final int id;
+
+		CollidingKey(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return 7;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof CollidingKey && ((CollidingKey) obj).id == id);
+		}
+	}
+
+	@Test
+	public void testBasicOperations() {
+		PersistentHashMap<Integer, String> empty = PersistentHashMap.empty();
+		Assert.assertTrue(empty.isEmpty());
+		PersistentHashMap<Integer, String> map1 = empty.with(0, "a").with(-1, "b");
+		PersistentHashMap<Integer, String> map2 = map1.with(0, "c");
+		Assert.assertEquals(2, map1.size());
+		Assert.assertEquals(2, map2.size());
+		Assert.assertEquals("a", map1.get(0));
+		Assert.assertEquals("c", map2.get(0));
+		Assert.assertEquals("b", map2.get(-1));
+		Assert.assertNull(map2.get(1));
+
+		PersistentHashMap<Integer, String> map3 = map2.without(-1);
+		Assert.assertSame(map3, map3.without(-1));
+		Assert.assertFalse(map3.containsKey(-1));
+		Assert.assertEquals(1, map3.size());
+		// the previous maps are unaffected:
+		Assert.assertEquals("b", map2.get(-1));
+		Assert.assertTrue(empty.isEmpty());
+
+		Assert.assertTrue(map3.without(0).isEmpty());
+	}
+
+	@Test
+	public void testHashCollisions() {
+		PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.empty();
+		for (int i = 0; i < 10; ++i) {
+			map = map.with(new CollidingKey(i), i);
+		}
+		map = map.with(new CollidingKey(3), 30);
+		Assert.assertEquals(10, map.size());
+		Assert.assertEquals(Integer.valueOf(30), map.get(new CollidingKey(3)));
+		map = map.without(new CollidingKey(0));
+		Assert.assertNull(map.get(new CollidingKey(0)));
+		Assert.assertEquals(9, map.size());
+		Assert.assertEquals(9, new ArrayList<>(map.values()).size());
+	}
+
+	@Test
+	public void testMatchesHashMap() {
+		PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+		Map<Integer, Integer> expected = new HashMap<>();
+		Random random = new Random(42L);
+		for (int i = 0; i < 20000; ++i) {
+			// spreads keys across the whole int range, but also provokes updates and removals of existing keys:
+			int key = (random.nextBoolean() ? random.nextInt(512) : random.nextInt());
+			if (random.nextInt(3) == 0) {
+				map = map.without(key);
+				expected.remove(key);
+			} else {
+				map = map.with(key, i);
+				expected.put(key, i);
+			}
+			Assert.assertEquals(expected.size(), map.size());
+		}
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			Assert.assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+		List<Integer> values = new ArrayList<>(map.values());
+		Assert.assertEquals(expected.size(), values.size());
+		Assert.assertEquals(new HashSet<>(expected.values()), new HashSet<>(values));
+	}
+}
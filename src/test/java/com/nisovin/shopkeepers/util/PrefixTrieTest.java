@@ -0,0 +1,49 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrefixTrieTest {
+
+	private static <V> List<V> toList(Iterable<V> iterable) {
+		List<V> list = new ArrayList<>();
+		iterable.forEach(list::add);
+		return list;
+	}
+
+	@Test
+	public void testShortKeysFirst() {
+		PrefixTrie<Integer> trie = new PrefixTrie<>();
+		for (int id : new int[] { 200, 21, 2, 201, 20, 3, 12 }) {
+			trie.add(String.valueOf(id), id);
+		}
+		Assert.assertEquals(7, trie.size());
+		Assert.assertEquals(Arrays.asList(2, 20, 21, 200, 201), toList(trie.getWithPrefix("2")));
+		Assert.assertEquals(Arrays.asList(2, 3, 12, 20, 21, 200, 201), toList(trie.getWithPrefix("")));
+		Assert.assertTrue(toList(trie.getWithPrefix("4")).isEmpty());
+	}
+
+	@Test
+	public void testRemove() {
+		PrefixTrie<String> trie = new PrefixTrie<>();
+		trie.add("shop", "a");
+		trie.add("shop", "b");
+		trie.add("shopkeeper", "c");
+		Assert.assertEquals(Arrays.asList("a", "b"), trie.get("shop"));
+
+		Assert.assertTrue(trie.remove("shop", "a"));
+		Assert.assertFalse(trie.remove("shop", "a"));
+		Assert.assertFalse(trie.remove("sho", "b"));
+		Assert.assertEquals(Arrays.asList("b", "c"), toList(trie.getWithPrefix("sh")));
+
+		Assert.assertTrue(trie.remove("shopkeeper", "c"));
+		Assert.assertTrue(toList(trie.getWithPrefix("shopk")).isEmpty());
+		Assert.assertTrue(trie.remove("shop", "b"));
+		Assert.assertTrue(trie.isEmpty());
+		Assert.assertTrue(toList(trie.getWithPrefix("")).isEmpty());
+	}
+}